@@ -1,9 +1,10 @@
 package com.magicrepokit.auth.config;
 
-import com.magicrepokit.auth.constant.MRKAuthConstant;
 import com.magicrepokit.auth.granter.MRKTokenGranter;
 import com.magicrepokit.auth.service.MRKClientDetailsServiceImpl;
+import com.magicrepokit.auth.service.MRKUserInfoServiceImpl;
 import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
 import com.magicrepokit.system.feign.ISystemClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -18,12 +19,10 @@ import org.springframework.security.oauth2.config.annotation.web.configurers.Aut
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
 import org.springframework.security.oauth2.provider.ClientDetailsService;
 import org.springframework.security.oauth2.provider.TokenGranter;
-import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.token.*;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 
-import javax.sql.DataSource;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,7 +45,7 @@ public class MRKAuthorizationService extends AuthorizationServerConfigurerAdapte
     @Autowired
     private ClientDetailsService clientDetailsService;
     @Autowired
-    private DataSource dataSource;
+    private MRKClientDetailsServiceImpl mrkClientDetailsService;
     @Autowired
     private AuthorizationCodeServices authorizationCodeServices;
     @Autowired
@@ -56,6 +55,10 @@ public class MRKAuthorizationService extends AuthorizationServerConfigurerAdapte
     @Autowired
     private ISystemClient ISystemClient;
     @Autowired
+    private MRKUserInfoServiceImpl mrkUserInfoService;
+    @Autowired
+    private MRKRedisUtils mrkRedisUtils;
+    @Autowired
     private MRKOAuthRequestFactory mrkoAuthRequestFactory;
     /**
      * 配置客户端详情信息
@@ -64,13 +67,10 @@ public class MRKAuthorizationService extends AuthorizationServerConfigurerAdapte
      */
     @Override
     public void configure(ClientDetailsServiceConfigurer clients) throws Exception {
-        JdbcClientDetailsService clientDetailsService = new MRKClientDetailsServiceImpl(dataSource);
-        //从数据库获取客户端信息
-        clientDetailsService.setSelectClientDetailsSql(MRKAuthConstant.SELECT_BY_CLIENT_ID);
-        clientDetailsService.setFindClientDetailsSql(MRKAuthConstant.BASE_SELECT);
+        //使用带缓存的客户端服务(同一个bean，变更时的缓存清理才能生效)
         //设置密码验证方法
-        clientDetailsService.setPasswordEncoder(passwordEncoder);
-        clients.withClientDetails(clientDetailsService);
+        mrkClientDetailsService.setPasswordEncoder(passwordEncoder);
+        clients.withClientDetails(mrkClientDetailsService);
     }
 
     /**
@@ -81,7 +81,7 @@ public class MRKAuthorizationService extends AuthorizationServerConfigurerAdapte
     @Override
     public void configure(AuthorizationServerEndpointsConfigurer endpoints) throws Exception {
         //获取自定义tokenGranter
-        TokenGranter tokenGranter = MRKTokenGranter.getTokenGranter(authenticationManager, endpoints, ISystemClient);
+        TokenGranter tokenGranter = MRKTokenGranter.getTokenGranter(authenticationManager, endpoints, ISystemClient, mrkUserInfoService, mrkRedisUtils);
         //令牌增强器
         TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
         List<TokenEnhancer> enhancerList = new ArrayList<>();
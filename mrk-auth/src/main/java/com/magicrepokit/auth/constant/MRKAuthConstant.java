@@ -28,33 +28,58 @@ public interface MRKAuthConstant {
     String SELECT_BY_CLIENT_ID = BASE_SELECT + " where client_id = ?";
 
     /**
-     * redis中授权码存储前缀key
+     * redis中客户端信息缓存前缀key
      */
-    String REDIS_KEY_AUTHORIZATION_CODE_PREFIX = "mrk:auth:authorization_code:";
+    String REDIS_KEY_CLIENT_PREFIX = "mrk:auth:client:";
 
     /**
-     * 用户登录的type
+     * redis中客户端信息版本号前缀key，客户端变更时+1，回填缓存时版本号不一致则放弃
      */
-    String USER_TYPE = "User-Type";
+    String REDIS_KEY_CLIENT_VERSION_PREFIX = "mrk:auth:clientVersion:";
 
-    String PASSWORD = "password";
+    /**
+     * 客户端信息变更通知频道，消息内容为client_id
+     */
+    String REDIS_CHANNEL_CLIENT = "mrk:channel:client";
 
-    String GRANT_TYPE = "grant_type";
+    /**
+     * 客户端信息本地缓存时间(秒)
+     */
+    long CLIENT_LOCAL_CACHE_SECONDS = 60;
 
-    String REFRESH_TOKEN = "refresh_token";
+    /**
+     * 客户端信息redis缓存时间(秒)
+     */
+    long CLIENT_REDIS_CACHE_SECONDS = 600;
+
+    /**
+     * 客户端信息版本号保留时间(秒)，需要长于缓存时间
+     */
+    long CLIENT_VERSION_SECONDS = 24 * 60 * 60;
 
     /**
-     * 用户锁定的key
+     * 用户信息本地缓存时间(秒)，redis缓存由系统服务维护
      */
-    String FAIL_REDIS_KEY = "mrk:auth:login:fail:";
+    long USER_LOCAL_CACHE_SECONDS = 30;
 
+    /**
+     * redis中授权码存储前缀key
+     */
+    String REDIS_KEY_AUTHORIZATION_CODE_PREFIX = "mrk:auth:authorization_code:";
 
     /**
-     * 被锁定的最多次数
+     * redis中已使用的可信断言前缀key，断言只能换取一次令牌
      */
-    int FAIL_COUNT = 5;
+    String REDIS_KEY_ASSERTION_PREFIX = "mrk:auth:assertion:";
 
-    static String getFailRedisKey(String account){
-        return FAIL_REDIS_KEY+account;
-    }
+    /**
+     * 用户登录的type
+     */
+    String USER_TYPE = "User-Type";
+
+    String PASSWORD = "password";
+
+    String GRANT_TYPE = "grant_type";
+
+    String REFRESH_TOKEN = "refresh_token";
 }
@@ -60,6 +60,11 @@ public enum MRKI18N {
      */
     UNKNOWN_REFRESH_TOKEN("UNKNOWN_REFRESH_TOKEN"),
 
+    /**
+     * 登录繁忙
+     */
+    LOGIN_BUSY("LOGIN_BUSY"),
+
     ;
 
 
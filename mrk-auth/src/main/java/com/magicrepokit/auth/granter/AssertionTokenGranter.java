@@ -0,0 +1,69 @@
+package com.magicrepokit.auth.granter;
+
+import com.magicrepokit.auth.constant.MRKAuthConstant;
+import com.magicrepokit.auth.constant.MRKI18N;
+import com.magicrepokit.auth.service.MrkUserDetails;
+import com.magicrepokit.common.utils.StringUtil;
+import com.magicrepokit.common.utils.WebUtil;
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.entity.MRKUser;
+import com.magicrepokit.jwt.support.TrustedIdentity;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.common.exceptions.UserDeniedAuthorizationException;
+import org.springframework.security.oauth2.provider.*;
+import org.springframework.security.oauth2.provider.token.AbstractTokenGranter;
+import org.springframework.security.oauth2.provider.token.AuthorizationServerTokenServices;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 可信断言登录
+ * <p>
+ * 系统服务已经查询用户并校验过密码，只把签名后的用户身份发给认证中心换取令牌，
+ * 这里只校验签名、有效期和是否已使用，不再查询用户和校验密码。
+ * 客户端的authorized_grant_types需要包含assertion
+ */
+public class AssertionTokenGranter extends AbstractTokenGranter {
+    private static final String GRANT_TYPE = JWTConstant.ASSERTION;
+    private final MRKRedisUtils mrkRedisUtils;
+
+    protected AssertionTokenGranter(AuthorizationServerTokenServices tokenServices, ClientDetailsService clientDetailsService, OAuth2RequestFactory requestFactory, MRKRedisUtils mrkRedisUtils) {
+        super(tokenServices, clientDetailsService, requestFactory, GRANT_TYPE);
+        this.mrkRedisUtils = mrkRedisUtils;
+    }
+
+    @Override
+    protected OAuth2Authentication getOAuth2Authentication(ClientDetails client, TokenRequest tokenRequest) {
+        Map<String, String> parameters = new LinkedHashMap<>(tokenRequest.getRequestParameters());
+        String userType = WebUtil.getRequest().getHeader(MRKAuthConstant.USER_TYPE);
+        if (StringUtil.isEmpty(userType)) {
+            throw new UserDeniedAuthorizationException(MRKI18N.NOT_FOUND_USER_TYPE.getMessage());
+        }
+        // 校验断言签名、有效期以及用户类型
+        String signature = parameters.get(JWTConstant.ASSERTION_SIGNATURE);
+        MRKUser user = TrustedIdentity.verify(TrustedIdentity.PURPOSE_ASSERTION, parameters.get(JWTConstant.ASSERTION), parameters.get(JWTConstant.ASSERTION_TIMESTAMP), signature, userType);
+        if (user == null) {
+            throw new InvalidGrantException(MRKI18N.INVALID_TOKEN.getMessage());
+        }
+        // 断言只能使用一次，记录保留到断言过期(签发时间前后均有容差)
+        long ttl = JWTConstant.IDENTITY_MAX_AGE_MILLIS * 2 / 1000;
+        if (!mrkRedisUtils.setIfAbsent(MRKAuthConstant.REDIS_KEY_ASSERTION_PREFIX + signature, 1, ttl)) {
+            throw new InvalidGrantException(MRKI18N.INVALID_TOKEN.getMessage());
+        }
+        ArrayList<GrantedAuthority> grantedAuthorities = new ArrayList<>();
+        MrkUserDetails mrkUserDetails = new MrkUserDetails(user.getUserId(), user.getName(), user.getRealName(), user.getDeptId(),
+                user.getPostId(), user.getRoleId(), user.getAccount(), "", true, true, true, true, grantedAuthorities);
+        // 组装认证数据，关闭密码校验
+        Authentication userAuth = new UsernamePasswordAuthenticationToken(mrkUserDetails, null, mrkUserDetails.getAuthorities());
+        ((AbstractAuthenticationToken) userAuth).setDetails(parameters);
+        OAuth2Request storedOAuth2Request = getRequestFactory().createOAuth2Request(client, tokenRequest);
+        return new OAuth2Authentication(storedOAuth2Request, userAuth);
+    }
+}
@@ -1,5 +1,7 @@
 package com.magicrepokit.auth.granter;
 
+import com.magicrepokit.auth.service.MRKUserInfoServiceImpl;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
 import com.magicrepokit.system.feign.ISystemClient;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
@@ -14,11 +16,13 @@ public class MRKTokenGranter {
     /**
      * 自定义tokenGranter
      */
-    public static TokenGranter getTokenGranter(final AuthenticationManager authenticationManager, final AuthorizationServerEndpointsConfigurer endpoints, ISystemClient ISystemClient) {
+    public static TokenGranter getTokenGranter(final AuthenticationManager authenticationManager, final AuthorizationServerEndpointsConfigurer endpoints, ISystemClient ISystemClient, MRKUserInfoServiceImpl mrkUserInfoService, MRKRedisUtils mrkRedisUtils) {
         // 默认tokenGranter集合
         List<TokenGranter> granters = new ArrayList<>(Collections.singletonList(endpoints.getTokenGranter()));
         // 增加第三方登陆模式
-        granters.add(new SocialTokenGranter(endpoints.getTokenServices(), endpoints.getClientDetailsService(), endpoints.getOAuth2RequestFactory(), ISystemClient));
+        granters.add(new SocialTokenGranter(endpoints.getTokenServices(), endpoints.getClientDetailsService(), endpoints.getOAuth2RequestFactory(), ISystemClient, mrkUserInfoService));
+        // 增加可信断言登录模式
+        granters.add(new AssertionTokenGranter(endpoints.getTokenServices(), endpoints.getClientDetailsService(), endpoints.getOAuth2RequestFactory(), mrkRedisUtils));
         // 组合tokenGranter集合
         return new CompositeTokenGranter(granters);
     }
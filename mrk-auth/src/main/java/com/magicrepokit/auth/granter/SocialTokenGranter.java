@@ -1,6 +1,7 @@
 package com.magicrepokit.auth.granter;
 
 import com.magicrepokit.auth.constant.MRKI18N;
+import com.magicrepokit.auth.service.MRKUserInfoServiceImpl;
 import com.magicrepokit.auth.service.MrkUserDetails;
 import com.magicrepokit.common.api.R;
 import com.magicrepokit.system.constant.SocialTypeEnum;
@@ -24,11 +25,12 @@ import java.util.Map;
 public class SocialTokenGranter extends AbstractTokenGranter {
     private static final String GRANT_TYPE = "social";
     private final ISystemClient ISystemClient;
+    private final MRKUserInfoServiceImpl mrkUserInfoService;
 
-
-    protected SocialTokenGranter(AuthorizationServerTokenServices tokenServices, ClientDetailsService clientDetailsService, OAuth2RequestFactory requestFactory, ISystemClient ISystemClient) {
+    protected SocialTokenGranter(AuthorizationServerTokenServices tokenServices, ClientDetailsService clientDetailsService, OAuth2RequestFactory requestFactory, ISystemClient ISystemClient, MRKUserInfoServiceImpl mrkUserInfoService) {
         super(tokenServices, clientDetailsService, requestFactory, GRANT_TYPE);
         this.ISystemClient = ISystemClient;
+        this.mrkUserInfoService = mrkUserInfoService;
     }
 
     @Override
@@ -51,10 +53,7 @@ public class SocialTokenGranter extends AbstractTokenGranter {
         if(socialUserAuthVOR.isSuccess()){
             SocialUserAuthVO socialUserAuthVO = socialUserAuthVOR.getData();
             if(socialUserAuthVO!=null){
-                R<UserInfoVO> userInfoVOR = ISystemClient.userInfo(socialUserAuthVO.getUserId());
-                if(userInfoVOR.isSuccess()){
-                    userInfoVO = userInfoVOR.getData();
-                }
+                userInfoVO = mrkUserInfoService.userInfo(socialUserAuthVO.getUserId());
             }
         }
         if(userInfoVO == null ){
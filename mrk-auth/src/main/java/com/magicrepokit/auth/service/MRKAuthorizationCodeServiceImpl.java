@@ -1,6 +1,9 @@
 package com.magicrepokit.auth.service;
 
 import com.magicrepokit.auth.constant.MRKAuthConstant;
+import com.magicrepokit.auth.support.AuthorizationCodeSerializer;
+import com.magicrepokit.redis.properties.MRKRedisProperties;
+import com.magicrepokit.redis.serializer.CompressingRedisSerializer;
 import com.magicrepokit.redis.utils.MRKRedisUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.serializer.RedisSerializer;
@@ -12,6 +15,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * MRK授权码管理服务
+ * <p>
+ * 授权码只保存精简后的认证信息，兑换时原子地取出并删除，同一授权码并发兑换只有一次成功
  */
 @Service
 public class MRKAuthorizationCodeServiceImpl extends RandomValueAuthorizationCodeServices {
@@ -19,8 +24,8 @@ public class MRKAuthorizationCodeServiceImpl extends RandomValueAuthorizationCod
     private MRKRedisUtils redisUtils;
     private final RedisSerializer<Object> valueSerializer;
 
-    public MRKAuthorizationCodeServiceImpl() {
-        this.valueSerializer = RedisSerializer.java();
+    public MRKAuthorizationCodeServiceImpl(MRKRedisProperties mrkRedisProperties) {
+        this.valueSerializer = new CompressingRedisSerializer(new AuthorizationCodeSerializer(), mrkRedisProperties.getCompressThreshold());
     }
 
     /**
@@ -40,10 +45,7 @@ public class MRKAuthorizationCodeServiceImpl extends RandomValueAuthorizationCod
      */
     @Override
     protected OAuth2Authentication remove(String code) {
-        String codeKey = getKey(code);
-        OAuth2Authentication token = (OAuth2Authentication) redisUtils.get(codeKey, valueSerializer);
-        redisUtils.del(codeKey);
-        return token;
+        return (OAuth2Authentication) redisUtils.getAndDelete(getKey(code), valueSerializer);
     }
 
     /**
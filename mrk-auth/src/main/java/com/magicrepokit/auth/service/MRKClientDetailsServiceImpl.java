@@ -1,23 +1,107 @@
 package com.magicrepokit.auth.service;
 
-import org.springframework.context.annotation.Bean;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.magicrepokit.auth.constant.MRKAuthConstant;
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import com.magicrepokit.redis.serializer.SerializerType;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MRK客户端管理服务
+ * <p>
+ * 一次/oauth/token请求会多次加载客户端信息(客户端认证、请求工厂、令牌服务)，
+ * 因此使用本地+redis两级缓存；客户端信息变更时版本号+1、删除redis缓存并通过频道通知各节点清空本地缓存，
+ * 回填redis时版本号与查询数据库之前不一致则放弃，避免与变更并发的查询把旧数据写回redis
  */
+@Slf4j
 @Service
-public class MRKClientDetailsServiceImpl extends JdbcClientDetailsService {
+public class MRKClientDetailsServiceImpl extends JdbcClientDetailsService implements MessageListener {
+    /**
+     * KEYS[1] 版本号
+     */
+    private static final RedisScript<Long> VERSION_SCRIPT = new DefaultRedisScript<>(
+            "return tonumber(redis.call('GET', KEYS[1]) or '0')",
+            Long.class);
+
+    /**
+     * KEYS[1] 版本号 KEYS[2] 客户端信息; ARGV 查询前的版本号,客户端信息,过期时间(秒)
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "if tonumber(redis.call('GET', KEYS[1]) or '0') ~= tonumber(ARGV[1]) then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * KEYS[1] 版本号 KEYS[2] 客户端信息; ARGV 版本号过期时间(秒)
+     */
+    private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('INCR', KEYS[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "redis.call('DEL', KEYS[2])\n" +
+            "return version",
+            Long.class);
+
+    private final MRKRedisUtils mrkRedisUtils;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisSerializer<Object> valueSerializer = RedisSerializer.java();
+    /**
+     * 通知消息由redisTemplate发布，按消息自身的格式标记解析
+     */
+    private final RedisSerializer<Object> messageSerializer = RedisTemplateConfig.valueSerializer(SerializerType.JSON, 0);
+    private final Cache<String, ClientDetails> localCache;
+    /**
+     * 失效次数，查询期间发生失效时不回填本地缓存，避免写入过期数据
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter sqlCalls = Metrics.counter("mrk.auth.client.sql.calls");
+    private final Counter localAvoided = Metrics.counter("mrk.auth.client.sql.avoided", "tier", "local");
+    private final Counter redisAvoided = Metrics.counter("mrk.auth.client.sql.avoided", "tier", "redis");
 
     /**
      * 注入数据源
      */
-    public MRKClientDetailsServiceImpl(DataSource dataSource) {
+    public MRKClientDetailsServiceImpl(DataSource dataSource, MRKRedisUtils mrkRedisUtils, RedisTemplate<String, Object> redisTemplate,
+                                       RedisMessageListenerContainer redisMessageListenerContainer) {
         super(dataSource);
+        //从数据库获取客户端信息
+        setSelectClientDetailsSql(MRKAuthConstant.SELECT_BY_CLIENT_ID);
+        setFindClientDetailsSql(MRKAuthConstant.BASE_SELECT);
+        this.mrkRedisUtils = mrkRedisUtils;
+        this.redisTemplate = redisTemplate;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(MRKAuthConstant.CLIENT_LOCAL_CACHE_SECONDS, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, localCache, "mrk.auth.client");
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(MRKAuthConstant.REDIS_CHANNEL_CLIENT));
     }
 
     /**
@@ -27,6 +111,129 @@ public class MRKClientDetailsServiceImpl extends JdbcClientDetailsService {
      */
     @Override
     public ClientDetails loadClientByClientId(String clientId){
-        return super.loadClientByClientId(clientId);
+        ClientDetails clientDetails = localCache.getIfPresent(clientId);
+        if (clientDetails != null) {
+            localAvoided.increment();
+            return clientDetails;
+        }
+        long version = invalidations.get();
+        clientDetails = getFromRedis(clientId);
+        if (clientDetails != null) {
+            redisAvoided.increment();
+        } else {
+            long redisVersion = getVersion(clientId);
+            sqlCalls.increment();
+            clientDetails = super.loadClientByClientId(clientId);
+            putToRedis(clientId, clientDetails, redisVersion);
+        }
+        if (invalidations.get() == version) {
+            localCache.put(clientId, clientDetails);
+        }
+        return clientDetails;
+    }
+
+    @Override
+    public void addClientDetails(ClientDetails clientDetails) {
+        super.addClientDetails(clientDetails);
+        evict(clientDetails.getClientId());
+    }
+
+    @Override
+    public void updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
+        super.updateClientDetails(clientDetails);
+        evict(clientDetails.getClientId());
+    }
+
+    @Override
+    public void updateClientSecret(String clientId, String secret) throws NoSuchClientException {
+        super.updateClientSecret(clientId, secret);
+        evict(clientId);
+    }
+
+    @Override
+    public void removeClientDetails(String clientId) throws NoSuchClientException {
+        super.removeClientDetails(clientId);
+        evict(clientId);
+    }
+
+    /**
+     * 客户端信息变更后清空缓存(直接修改数据库后也可以调用)
+     *
+     * @param clientId 客户端id
+     */
+    public void evict(String clientId) {
+        invalidations.incrementAndGet();
+        localCache.invalidate(clientId);
+        redisTemplate.execute(EVICT_SCRIPT, RedisSerializer.byteArray(), null,
+                Arrays.asList(getVersionKey(clientId), getKey(clientId)),
+                bytes(String.valueOf(MRKAuthConstant.CLIENT_VERSION_SECONDS)));
+        mrkRedisUtils.publish(MRKAuthConstant.REDIS_CHANNEL_CLIENT, clientId);
+    }
+
+    /**
+     * 其他节点的变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object clientId = messageSerializer.deserialize(message.getBody());
+        if (clientId != null) {
+            invalidations.incrementAndGet();
+            localCache.invalidate(String.valueOf(clientId));
+        }
+    }
+
+    private ClientDetails getFromRedis(String clientId) {
+        try {
+            Object cached = mrkRedisUtils.get(getKey(clientId), valueSerializer);
+            return cached instanceof ClientDetails ? (ClientDetails) cached : null;
+        } catch (Exception e) {
+            log.warn("[客户端缓存]读取失败:{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 当前版本号，查询数据库之前获取，回填时使用
+     *
+     * @return 读取失败返回-1，不回填
+     */
+    private long getVersion(String clientId) {
+        try {
+            Long version = redisTemplate.execute(VERSION_SCRIPT, Collections.singletonList(getVersionKey(clientId)));
+            return version == null ? 0 : version;
+        } catch (Exception e) {
+            log.warn("[客户端缓存]读取版本失败:{}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 回填redis，版本号已变化时放弃
+     */
+    private void putToRedis(String clientId, ClientDetails clientDetails, long version) {
+        if (version < 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(PUT_SCRIPT, RedisSerializer.byteArray(), null,
+                    Arrays.asList(getVersionKey(clientId), getKey(clientId)),
+                    bytes(String.valueOf(version)),
+                    valueSerializer.serialize(clientDetails),
+                    bytes(String.valueOf(MRKAuthConstant.CLIENT_REDIS_CACHE_SECONDS)));
+        } catch (Exception e) {
+            log.warn("[客户端缓存]写入失败:{}", e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String getKey(String clientId) {
+        return MRKAuthConstant.REDIS_KEY_CLIENT_PREFIX + clientId;
+    }
+
+    private String getVersionKey(String clientId) {
+        return MRKAuthConstant.REDIS_KEY_CLIENT_VERSION_PREFIX + clientId;
     }
 }
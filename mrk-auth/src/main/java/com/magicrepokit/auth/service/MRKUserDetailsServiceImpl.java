@@ -3,11 +3,10 @@ package com.magicrepokit.auth.service;
 import com.magicrepokit.auth.constant.MRKAuthConstant;
 import com.magicrepokit.auth.constant.MRKI18N;
 import com.magicrepokit.jwt.constant.UserType;
-import com.magicrepokit.common.api.R;
+import com.magicrepokit.common.support.PasswordHasher;
 import com.magicrepokit.common.utils.*;
 import com.magicrepokit.jwt.utils.JWTUtil;
-import com.magicrepokit.redis.utils.MRKRedisUtils;
-import com.magicrepokit.system.feign.ISystemClient;
+import com.magicrepokit.system.support.LoginFailCounter;
 import com.magicrepokit.system.vo.user.UserInfoVO;
 import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,12 +14,12 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.security.oauth2.common.exceptions.UserDeniedAuthorizationException;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 用户管理服务
@@ -28,9 +27,11 @@ import java.util.ArrayList;
 @Service
 public class MRKUserDetailsServiceImpl implements UserDetailsService {
     @Autowired
-    private ISystemClient ISystemClient;
+    private MRKUserInfoServiceImpl mrkUserInfoService;
     @Autowired
-    private MRKRedisUtils mrkRedisUtils;
+    private LoginFailCounter loginFailCounter;
+    @Autowired
+    private PasswordHasher passwordHasher;
 
     @Override
     public UserDetails loadUserByUsername(String account) throws UsernameNotFoundException {
@@ -53,34 +54,56 @@ public class MRKUserDetailsServiceImpl implements UserDetailsService {
         //判断token
         judgeRefreshToken(grantType,userType,request);
 
-        //判断账户是否已锁定
+        //判断账户是否已锁定，同时计入本次尝试
         judgeFail(account);
-
-        //查询数据库
-        R<UserInfoVO> result = ISystemClient.userInfo(account);
-        if (result.isSuccess()) {
-            UserInfoVO userInfoVO = result.getData();
-            if(ObjectUtil.isEmpty(userInfoVO)||ObjectUtil.isEmpty(userInfoVO.getUser())||(grantType.equals(MRKAuthConstant.PASSWORD)&&!BCrypt.checkpw(password, userInfoVO.getUser().getPassword()))){
-                //用户错误次数+1
-                setFailCount(account);
-                throw new UsernameNotFoundException(MRKI18N.USER_NOT_FOUND.getMessage());
-            }
-            //匹配用户type
-            if(!userInfoVO.getUser().getUserType().contains(userTypeEnum.getCode())){
-                //用户错误次数+1
-                setFailCount(account);
-                throw new UsernameNotFoundException(MRKI18N.NOT_FOUND_USER_TYPE.getMessage());
+        UserInfoVO userInfoVO;
+        String encodedPassword = "";
+        boolean matched = false;
+        try {
+            //查询用户(本地缓存->redis缓存->系统服务)
+            userInfoVO = mrkUserInfoService.userInfo(account);
+            if(ObjectUtil.isNotEmpty(userInfoVO)&&ObjectUtil.isNotEmpty(userInfoVO.getUser())){
+                //密码认证时单独获取密码哈希(用户信息不含密码)
+                if(grantType.equals(MRKAuthConstant.PASSWORD)){
+                    encodedPassword = mrkUserInfoService.password(userInfoVO.getUser().getId());
+                    matched = encodedPassword!=null&&isPasswordMatch(password, encodedPassword);
+                }else{
+                    matched = true;
+                }
             }
+        } catch (RuntimeException e) {
+            //未完成校验(系统繁忙等)，不计入错误次数
+            loginFailCounter.cancel(account);
+            throw e;
+        }
+        //用户不存在、密码错误都保留本次计数
+        if(!matched){
+            throw new UsernameNotFoundException(MRKI18N.USER_NOT_FOUND.getMessage());
+        }
+        //匹配用户type
+        if(!userInfoVO.getUser().getUserType().contains(userTypeEnum.getCode())){
+            throw new UsernameNotFoundException(MRKI18N.NOT_FOUND_USER_TYPE.getMessage());
+        }
 
 
-            ArrayList<GrantedAuthority> grantedAuthorities = new ArrayList<>();
-            //成功清除错误次数
-            delFailCount(account);
-            return new MrkUserDetails(userInfoVO, grantedAuthorities);
-        } else {
-            //用户错误次数+1
-            setFailCount(account);
-            throw new UsernameNotFoundException(MRKI18N.USER_NOT_FOUND.getMessage());
+        ArrayList<GrantedAuthority> grantedAuthorities = new ArrayList<>();
+        //成功清除错误次数
+        loginFailCounter.clear(account);
+        return new MrkUserDetails(userInfoVO, encodedPassword, grantedAuthorities);
+    }
+
+    /**
+     * 校验密码(在有界的哈希线程池中执行)
+     * @param rawPassword 未加密的密码
+     * @param encodedPassword 加密后的密码
+     * @return 是否匹配
+     */
+    private boolean isPasswordMatch(String rawPassword, String encodedPassword) {
+        try {
+            return passwordHasher.matches(rawPassword, encodedPassword);
+        } catch (RejectedExecutionException e) {
+            //系统繁忙未校验密码，不计入错误次数
+            throw new UserDeniedAuthorizationException(MRKI18N.LOGIN_BUSY.getMessage());
         }
     }
 
@@ -101,30 +124,12 @@ public class MRKUserDetailsServiceImpl implements UserDetailsService {
     }
 
     /**
-     * 删除锁定
-     * @param account 账户
-     */
-    private void delFailCount(String account) {
-        mrkRedisUtils.del(MRKAuthConstant.getFailRedisKey(account));
-    }
-
-    /**
-     * 锁定值+1
-     * @param account 账户
-     */
-    private void setFailCount(String account) {
-        mrkRedisUtils.incr(MRKAuthConstant.getFailRedisKey(account), 1);
-        mrkRedisUtils.expire(MRKAuthConstant.getFailRedisKey(account), 5 * 60);
-    }
-
-    /**
-     * 判断是否被锁定
+     * 判断是否被锁定，未锁定时计入本次尝试
      *
      * @param account 账户
      */
     private void judgeFail(String account) {
-        int count = MRKUtil.toInt(mrkRedisUtils.get(MRKAuthConstant.getFailRedisKey(account)), 0);
-        if (count >= MRKAuthConstant.FAIL_COUNT) {
+        if (loginFailCounter.acquire(account) < 0) {
             throw new UserDeniedAuthorizationException(MRKI18N.USER_IS_LOCKED.getMessage());
         }
     }
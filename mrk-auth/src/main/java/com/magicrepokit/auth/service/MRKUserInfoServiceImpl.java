@@ -0,0 +1,128 @@
+package com.magicrepokit.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.magicrepokit.auth.constant.MRKAuthConstant;
+import com.magicrepokit.common.api.R;
+import com.magicrepokit.system.constant.SystemConstant;
+import com.magicrepokit.system.feign.ISystemClient;
+import com.magicrepokit.system.support.UserInfoRedisCache;
+import com.magicrepokit.system.vo.user.UserInfoVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 用户信息服务
+ * <p>
+ * 依次读取本地缓存、redis缓存(系统服务维护)，都未命中时才通过feign调用系统服务；
+ * 用户信息不含密码，密码哈希只在密码认证时从redis或系统服务获取，不进入本地缓存；
+ * 系统服务变更用户后通过频道通知各节点清空本地缓存
+ */
+@Service
+public class MRKUserInfoServiceImpl implements MessageListener {
+    private static final String ID_PREFIX = "id:";
+    private static final String ACCOUNT_PREFIX = "account:";
+
+    private final ISystemClient ISystemClient;
+    private final UserInfoRedisCache userInfoRedisCache;
+    private final Cache<String, UserInfoVO> localCache;
+    /**
+     * 失效次数，查询期间发生失效时不回填本地缓存，避免写入过期数据
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter remoteCalls = Metrics.counter("mrk.auth.user.remote.calls");
+    private final Counter redisHits = Metrics.counter("mrk.auth.user.redis.hits");
+
+    public MRKUserInfoServiceImpl(ISystemClient ISystemClient, UserInfoRedisCache userInfoRedisCache,
+                                  RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.ISystemClient = ISystemClient;
+        this.userInfoRedisCache = userInfoRedisCache;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(MRKAuthConstant.USER_LOCAL_CACHE_SECONDS, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, localCache, "mrk.auth.user");
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SystemConstant.REDIS_CHANNEL_USER_INFO));
+    }
+
+    /**
+     * 根据账号获取用户信息
+     *
+     * @param account 账号
+     * @return 不存在返回null
+     */
+    public UserInfoVO userInfo(String account) {
+        return load(ACCOUNT_PREFIX + account, () -> userInfoRedisCache.get(account), () -> ISystemClient.userInfo(account));
+    }
+
+    /**
+     * 根据用户id获取用户信息
+     *
+     * @param id 用户id
+     * @return 不存在返回null
+     */
+    public UserInfoVO userInfo(Long id) {
+        return load(ID_PREFIX + id, () -> userInfoRedisCache.get(id), () -> ISystemClient.userInfo(id));
+    }
+
+    /**
+     * 根据用户id获取密码哈希(redis缓存->系统服务)
+     *
+     * @param id 用户id
+     * @return 不存在返回null
+     */
+    public String password(Long id) {
+        String password = userInfoRedisCache.getPassword(id);
+        if (password != null) {
+            return password;
+        }
+        remoteCalls.increment();
+        R<String> result = ISystemClient.password(id);
+        return result.isSuccess() ? result.getData() : null;
+    }
+
+    /**
+     * 系统服务的用户变更通知，消息内容为用户id
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Long id = Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8));
+        invalidations.incrementAndGet();
+        localCache.asMap().values().removeIf(userInfoVO -> id.equals(userInfoVO.getUser().getId()));
+    }
+
+    private UserInfoVO load(String cacheKey, Supplier<UserInfoVO> redisLoader, Supplier<R<UserInfoVO>> remoteLoader) {
+        UserInfoVO userInfoVO = localCache.getIfPresent(cacheKey);
+        if (userInfoVO != null) {
+            return userInfoVO;
+        }
+        long version = invalidations.get();
+        userInfoVO = redisLoader.get();
+        if (userInfoVO != null) {
+            redisHits.increment();
+        } else {
+            remoteCalls.increment();
+            R<UserInfoVO> result = remoteLoader.get();
+            if (!result.isSuccess() || result.getData() == null || result.getData().getUser() == null) {
+                return null;
+            }
+            userInfoVO = result.getData();
+        }
+        if (invalidations.get() == version) {
+            localCache.put(cacheKey, userInfoVO);
+        }
+        return userInfoVO;
+    }
+}
@@ -52,8 +52,18 @@ public class MrkUserDetails extends User {
         this.roleId = roleId;
     }
 
+    /**
+     * 不需要校验密码的认证(用户信息不含密码)
+     */
     public MrkUserDetails(UserInfoVO userInfoVO, Collection<? extends GrantedAuthority> authorities){
-        super(userInfoVO.getUser().getAccount(), userInfoVO.getUser().getPassword(),true,true,true,true,authorities);
+        this(userInfoVO, "", authorities);
+    }
+
+    /**
+     * 密码认证，password为单独获取的密码哈希
+     */
+    public MrkUserDetails(UserInfoVO userInfoVO, String password, Collection<? extends GrantedAuthority> authorities){
+        super(userInfoVO.getUser().getAccount(), password,true,true,true,true,authorities);
         this.userId = userInfoVO.getUser().getId();
         this.name = userInfoVO.getUser().getName();
         this.realName = userInfoVO.getUser().getRealName();
@@ -0,0 +1,198 @@
+package com.magicrepokit.auth.support;
+
+import com.magicrepokit.auth.service.MrkUserDetails;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * 授权码认证信息序列化
+ * <p>
+ * 只保存换取令牌需要的内容：用户信息、客户端、授权范围、回调地址和请求参数，
+ * 体积远小于java序列化整个OAuth2Authentication；
+ * 无法精简的认证信息(非MrkUserDetails用户、带扩展属性的请求)仍使用java序列化，首字节区分格式
+ */
+public class AuthorizationCodeSerializer implements RedisSerializer<Object> {
+    private static final byte FORMAT_JAVA = 0;
+    private static final byte FORMAT_COMPACT = 1;
+    /**
+     * java序列化流的首字节，升级前写入的授权码没有格式标记
+     */
+    private static final byte JAVA_STREAM_MAGIC = (byte) 0xAC;
+
+    private final RedisSerializer<Object> javaSerializer = RedisSerializer.java();
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (isCompactable(value)) {
+                out.writeByte(FORMAT_COMPACT);
+                writeCompact(out, (OAuth2Authentication) value);
+            } else {
+                out.writeByte(FORMAT_JAVA);
+                out.write(javaSerializer.serialize(value));
+            }
+        } catch (IOException e) {
+            throw new SerializationException("授权码序列化失败", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JAVA_STREAM_MAGIC) {
+            return javaSerializer.deserialize(bytes);
+        }
+        if (bytes[0] == FORMAT_JAVA) {
+            return javaSerializer.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            return readCompact(in);
+        } catch (IOException e) {
+            throw new SerializationException("授权码反序列化失败", e);
+        }
+    }
+
+    private static boolean isCompactable(Object value) {
+        if (!(value instanceof OAuth2Authentication)) {
+            return false;
+        }
+        OAuth2Authentication authentication = (OAuth2Authentication) value;
+        Authentication userAuthentication = authentication.getUserAuthentication();
+        Map<String, Serializable> extensions = authentication.getOAuth2Request().getExtensions();
+        return userAuthentication != null && userAuthentication.getPrincipal() instanceof MrkUserDetails
+                && (extensions == null || extensions.isEmpty());
+    }
+
+    private static void writeCompact(DataOutputStream out, OAuth2Authentication authentication) throws IOException {
+        MrkUserDetails user = (MrkUserDetails) authentication.getUserAuthentication().getPrincipal();
+        writeLong(out, user.getUserId());
+        writeString(out, user.getName());
+        writeString(out, user.getRealName());
+        writeString(out, user.getDeptId());
+        writeString(out, user.getPostId());
+        writeString(out, user.getRoleId());
+        writeString(out, user.getAccount());
+        writeAuthorities(out, authentication.getUserAuthentication().getAuthorities());
+
+        OAuth2Request request = authentication.getOAuth2Request();
+        writeString(out, request.getClientId());
+        writeAuthorities(out, request.getAuthorities());
+        out.writeBoolean(request.isApproved());
+        writeStrings(out, request.getScope());
+        writeStrings(out, request.getResourceIds());
+        writeString(out, request.getRedirectUri());
+        writeStrings(out, request.getResponseTypes());
+        Map<String, String> parameters = request.getRequestParameters();
+        out.writeShort(parameters.size());
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static OAuth2Authentication readCompact(DataInputStream in) throws IOException {
+        Long userId = readLong(in);
+        String name = readString(in);
+        String realName = readString(in);
+        String deptId = readString(in);
+        String postId = readString(in);
+        String roleId = readString(in);
+        String account = readString(in);
+        List<GrantedAuthority> userAuthorities = readAuthorities(in);
+        MrkUserDetails user = new MrkUserDetails(userId, name, realName, deptId, postId, roleId, account, "",
+                true, true, true, true, userAuthorities);
+        Authentication userAuthentication = new UsernamePasswordAuthenticationToken(user, null, userAuthorities);
+
+        String clientId = readString(in);
+        List<GrantedAuthority> clientAuthorities = readAuthorities(in);
+        boolean approved = in.readBoolean();
+        Set<String> scope = readStrings(in);
+        Set<String> resourceIds = readStrings(in);
+        String redirectUri = readString(in);
+        Set<String> responseTypes = readStrings(in);
+        int size = in.readUnsignedShort();
+        Map<String, String> parameters = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            parameters.put(readString(in), readString(in));
+        }
+        OAuth2Request request = new OAuth2Request(parameters, clientId, clientAuthorities, approved, scope, resourceIds,
+                redirectUri, responseTypes, null);
+        return new OAuth2Authentication(request, userAuthentication);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        if (values == null) {
+            out.writeShort(0);
+            return;
+        }
+        out.writeShort(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        Set<String> values = new LinkedHashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeAuthorities(DataOutputStream out, Collection<? extends GrantedAuthority> authorities) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (authorities != null) {
+            for (GrantedAuthority authority : authorities) {
+                values.add(authority.getAuthority());
+            }
+        }
+        writeStrings(out, values);
+    }
+
+    private static List<GrantedAuthority> readAuthorities(DataInputStream in) throws IOException {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String value : readStrings(in)) {
+            authorities.add(new SimpleGrantedAuthority(value));
+        }
+        return authorities;
+    }
+}
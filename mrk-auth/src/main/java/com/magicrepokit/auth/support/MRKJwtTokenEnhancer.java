@@ -40,17 +40,17 @@ public class MRKJwtTokenEnhancer implements TokenEnhancer {
         info.put(JWTConstant.POST_ID, principal.getPostId());
         info.put(JWTConstant.ROLE_ID, principal.getRoleId());
         info.put(JWTConstant.ACCOUNT, principal.getAccount());
+        long issuedAt = System.currentTimeMillis();
+        info.put(JWTConstant.ISSUED_AT, issuedAt);
         ((DefaultOAuth2AccessToken) oAuth2AccessToken).setAdditionalInformation(info);
         //令牌状态设置
         OAuth2AccessToken auth2AccessToken = jwtAccessTokenConverter.enhance(oAuth2AccessToken, oAuth2Authentication);
         String accessTokenValue = auth2AccessToken.getValue();
         Long userId = principal.getUserId();
-        //添加token到redis
-        JWTUtil.addAccessToken(userId,userType,accessTokenValue);
         OAuth2RefreshToken refreshToken = auth2AccessToken.getRefreshToken();
-        String refreshTokenValue = refreshToken.getValue();
-        //添加token到redis
-        JWTUtil.addRefreshToken(userId,userType,refreshTokenValue);
+        String refreshTokenValue = refreshToken == null ? null : refreshToken.getValue();
+        //添加token到redis(一次写入accessToken和refreshToken)
+        JWTUtil.addToken(userId,userType,accessTokenValue,refreshTokenValue,issuedAt);
 
 
         return oAuth2AccessToken;
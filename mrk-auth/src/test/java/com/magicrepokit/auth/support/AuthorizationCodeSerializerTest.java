@@ -0,0 +1,114 @@
+package com.magicrepokit.auth.support;
+
+import com.magicrepokit.auth.service.MrkUserDetails;
+import com.magicrepokit.redis.serializer.CompressingRedisSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 授权码认证信息序列化：精简格式、java序列化兜底和升级前的数据
+ */
+public class AuthorizationCodeSerializerTest {
+    private final AuthorizationCodeSerializer serializer = new AuthorizationCodeSerializer();
+
+    @Test
+    public void roundTripCompact() {
+        OAuth2Authentication authentication = authentication(null);
+
+        byte[] bytes = serializer.serialize(authentication);
+        OAuth2Authentication result = (OAuth2Authentication) serializer.deserialize(bytes);
+
+        assertTrue(bytes.length < RedisSerializer.java().serialize(authentication).length);
+        assertAuthentication(authentication, result);
+    }
+
+    @Test
+    public void roundTripJavaWithExtensions() {
+        Map<String, Serializable> extensions = new HashMap<>();
+        extensions.put("nonce", "abc");
+        OAuth2Authentication authentication = authentication(extensions);
+
+        OAuth2Authentication result = (OAuth2Authentication) serializer.deserialize(serializer.serialize(authentication));
+
+        assertAuthentication(authentication, result);
+        assertEquals("abc", result.getOAuth2Request().getExtensions().get("nonce"));
+    }
+
+    @Test
+    public void readLegacyJava() {
+        OAuth2Authentication authentication = authentication(null);
+
+        //升级前直接使用java序列化，没有格式标记
+        OAuth2Authentication result = (OAuth2Authentication) serializer.deserialize(RedisSerializer.java().serialize(authentication));
+
+        assertAuthentication(authentication, result);
+    }
+
+    @Test
+    public void roundTripCompressed() {
+        CompressingRedisSerializer compressing = new CompressingRedisSerializer(serializer, 64);
+        OAuth2Authentication authentication = authentication(null);
+
+        OAuth2Authentication result = (OAuth2Authentication) compressing.deserialize(compressing.serialize(authentication));
+
+        assertAuthentication(authentication, result);
+    }
+
+    @Test
+    public void nullValue() {
+        assertNull(serializer.serialize(null));
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    private static OAuth2Authentication authentication(Map<String, Serializable> extensions) {
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+        MrkUserDetails user = new MrkUserDetails(1L, "管理员", null, "10", null, "2", "admin", "",
+                true, true, true, true, authorities);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("client_id", "magicrepokit");
+        parameters.put("response_type", "code");
+        parameters.put("state", "xyz");
+        OAuth2Request request = new OAuth2Request(parameters, "magicrepokit", AuthorityUtils.createAuthorityList("ROLE_CLIENT"),
+                true, new LinkedHashSet<>(Arrays.asList("all", "read")), Collections.singleton("mrk"),
+                "http://localhost/callback", Collections.singleton("code"), extensions);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken(user, null, authorities));
+    }
+
+    private static void assertAuthentication(OAuth2Authentication expected, OAuth2Authentication actual) {
+        MrkUserDetails expectedUser = (MrkUserDetails) expected.getPrincipal();
+        MrkUserDetails actualUser = (MrkUserDetails) actual.getPrincipal();
+        assertEquals(expectedUser.getUserId(), actualUser.getUserId());
+        assertEquals(expectedUser.getName(), actualUser.getName());
+        assertEquals(expectedUser.getRealName(), actualUser.getRealName());
+        assertEquals(expectedUser.getDeptId(), actualUser.getDeptId());
+        assertEquals(expectedUser.getPostId(), actualUser.getPostId());
+        assertEquals(expectedUser.getRoleId(), actualUser.getRoleId());
+        assertEquals(expectedUser.getAccount(), actualUser.getAccount());
+        assertEquals(expected.getAuthorities(), actual.getAuthorities());
+
+        OAuth2Request expectedRequest = expected.getOAuth2Request();
+        OAuth2Request actualRequest = actual.getOAuth2Request();
+        assertEquals(expectedRequest.getClientId(), actualRequest.getClientId());
+        assertEquals(expectedRequest.getAuthorities(), actualRequest.getAuthorities());
+        assertEquals(expectedRequest.isApproved(), actualRequest.isApproved());
+        assertEquals(expectedRequest.getScope(), actualRequest.getScope());
+        assertEquals(expectedRequest.getResourceIds(), actualRequest.getResourceIds());
+        assertEquals(expectedRequest.getRedirectUri(), actualRequest.getRedirectUri());
+        assertEquals(expectedRequest.getResponseTypes(), actualRequest.getResponseTypes());
+        assertEquals(expectedRequest.getRequestParameters(), actualRequest.getRequestParameters());
+        assertTrue(actual.isAuthenticated());
+    }
+}
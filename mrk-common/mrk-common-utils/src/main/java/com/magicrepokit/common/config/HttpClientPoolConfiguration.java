@@ -0,0 +1,58 @@
+package com.magicrepokit.common.config;
+
+import com.magicrepokit.common.properties.HttpClientProperties;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享http客户端
+ * <p>
+ * RestTemplate和Feign(feign-httpclient会复用容器中的CloseableHttpClient)共用同一个连接池，
+ * 按目标地址限制连接数，复用keep-alive连接，默认支持gzip响应解压
+ */
+@EnableConfigurationProperties({HttpClientProperties.class})
+@Configuration
+public class HttpClientPoolConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(HttpClientProperties httpClientProperties) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(httpClientProperties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(httpClientProperties.getMaxPerRoute());
+        //空闲超过2秒的连接使用前先检查是否已被服务端关闭
+        connectionManager.setValidateAfterInactivity(2000);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "mrk").bindTo(Metrics.globalRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpClientConnectionManager, HttpClientProperties httpClientProperties) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(httpClientProperties.getConnectTimeoutMillis())
+                .setSocketTimeout(httpClientProperties.getReadTimeoutMillis())
+                .setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeoutMillis())
+                .build();
+        long defaultKeepAliveMillis = TimeUnit.SECONDS.toMillis(httpClientProperties.getKeepAliveSeconds());
+        return HttpClients.custom()
+                .setConnectionManager(httpClientConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                //优先使用服务端返回的Keep-Alive，未返回时使用默认保持时间
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : defaultKeepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(httpClientProperties.getIdleEvictSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+}
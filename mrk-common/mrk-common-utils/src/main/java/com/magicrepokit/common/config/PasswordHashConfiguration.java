@@ -0,0 +1,17 @@
+package com.magicrepokit.common.config;
+
+import com.magicrepokit.common.properties.PasswordHashProperties;
+import com.magicrepokit.common.support.PasswordHasher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@EnableConfigurationProperties({PasswordHashProperties.class})
+@Configuration
+public class PasswordHashConfiguration {
+
+    @Bean
+    public PasswordHasher passwordHasher(PasswordHashProperties passwordHashProperties) {
+        return new PasswordHasher(passwordHashProperties);
+    }
+}
@@ -1,8 +1,9 @@
 package com.magicrepokit.common.config;
 
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
@@ -14,12 +15,10 @@ import java.net.Proxy;
 @Component
 public class RestTemplateConfig {
     @Bean(name = "restTemplate")
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-
-        // Set the proxy details
-//        requestFactory.setProxy(createProxy("127.0.0.1", 7890));
-        RestTemplate restTemplate = new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        //使用共享连接池
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
         //配置
         restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
             @Override
@@ -0,0 +1,43 @@
+package com.magicrepokit.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("mrk.http-client")
+public class HttpClientProperties {
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个目标地址(host:port)的最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 建立连接超时时间(毫秒)
+     */
+    private int connectTimeoutMillis = 3000;
+
+    /**
+     * 读取超时时间(毫秒)，两次收到数据之间的最长间隔，流式响应同样适用
+     */
+    private int readTimeoutMillis = 60000;
+
+    /**
+     * 从连接池获取连接的超时时间(毫秒)
+     */
+    private int connectionRequestTimeoutMillis = 1000;
+
+    /**
+     * 服务端未返回Keep-Alive时连接的保持时间(秒)
+     */
+    private long keepAliveSeconds = 30;
+
+    /**
+     * 空闲连接的回收时间(秒)
+     */
+    private long idleEvictSeconds = 60;
+}
@@ -0,0 +1,28 @@
+package com.magicrepokit.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("mrk.password-hash")
+public class PasswordHashProperties {
+    /**
+     * 哈希线程数，小于等于0时使用cpu核数
+     */
+    private int threads = 0;
+
+    /**
+     * 等待队列长度，队列满时直接拒绝
+     */
+    private int queueCapacity = 32;
+
+    /**
+     * 请求线程最长等待时间(毫秒)，超时视为繁忙
+     */
+    private long timeoutMillis = 3000;
+
+    /**
+     * 目标BCrypt强度，登录成功时强度不一致的密码重新哈希
+     */
+    private int targetCost = 10;
+}
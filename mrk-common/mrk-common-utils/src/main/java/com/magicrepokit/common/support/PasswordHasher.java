@@ -0,0 +1,141 @@
+package com.magicrepokit.common.support;
+
+import com.magicrepokit.common.properties.PasswordHashProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 密码哈希
+ * <p>
+ * BCrypt计算集中在有界线程池中执行，登录高峰时最多占用固定数量的cpu，
+ * 队列已满或等待超时直接抛出{@link RejectedExecutionException}，请求线程不会被长时间占住
+ */
+@Slf4j
+public class PasswordHasher implements DisposableBean {
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[abxy]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final PasswordHashProperties passwordHashProperties;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected = Metrics.counter("mrk.password.hash.rejected");
+
+    public PasswordHasher(PasswordHashProperties passwordHashProperties) {
+        this.passwordHashProperties = passwordHashProperties;
+        int threads = passwordHashProperties.getThreads() > 0 ? passwordHashProperties.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, passwordHashProperties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mrk-password-hash-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Metrics.gauge("mrk.password.hash.active", executor, ThreadPoolExecutor::getActiveCount);
+        Metrics.gauge("mrk.password.hash.queue", executor, e -> e.getQueue().size());
+    }
+
+    /**
+     * 校验密码
+     *
+     * @param rawPassword     未加密的密码
+     * @param encodedPassword 加密后的密码
+     * @return 是否匹配
+     * @throws RejectedExecutionException 哈希线程繁忙
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return call(() -> BCrypt.checkpw(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 按目标强度加密密码
+     *
+     * @param rawPassword 未加密的密码
+     * @return 加密后的密码
+     * @throws RejectedExecutionException 哈希线程繁忙
+     */
+    public String encode(String rawPassword) {
+        return call(() -> hash(rawPassword));
+    }
+
+    /**
+     * 已加密密码的强度是否与目标强度不一致
+     *
+     * @param encodedPassword 加密后的密码
+     * @return 是否需要重新哈希
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != passwordHashProperties.getTargetCost();
+    }
+
+    /**
+     * 后台按目标强度重新哈希，不等待结果；线程繁忙时放弃，下次登录再处理
+     *
+     * @param rawPassword 未加密的密码
+     * @param onEncoded   加密完成后的回调(在哈希线程中执行)
+     */
+    public void upgradeAsync(String rawPassword, Consumer<String> onEncoded) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onEncoded.accept(hash(rawPassword));
+                } catch (Exception e) {
+                    log.warn("[密码哈希]重新哈希失败:{}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    private String hash(String rawPassword) {
+        return BCrypt.hashpw(rawPassword, BCrypt.gensalt(passwordHashProperties.getTargetCost()));
+    }
+
+    private <T> T call(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.get(passwordHashProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new RejectedExecutionException("密码哈希等待超时");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("密码哈希被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -1,7 +1,9 @@
 package com.magicrepokit.common.utils;
 
 import cn.hutool.core.util.StrUtil;
+import com.magicrepokit.jwt.constant.JWTConstant;
 import com.magicrepokit.jwt.entity.MRKUser;
+import com.magicrepokit.jwt.support.TrustedIdentity;
 import com.magicrepokit.jwt.utils.JWTUtil;
 import io.jsonwebtoken.Claims;
 
@@ -10,7 +12,14 @@ import javax.servlet.http.HttpServletRequest;
 public class AuthUtil {
     private static final String AUTHORIZATION = "Authorization";
     private static final String USER_TYPE = "User-Type";
-    private static final String USER_ID = "user_id";
+    /**
+     * 当前请求已解析的用户
+     */
+    private static final String MRK_USER_ATTRIBUTE = AuthUtil.class.getName() + ".USER";
+    /**
+     * 当前请求未登录的标记
+     */
+    private static final Object ANONYMOUS = new Object();
 
     public static MRKUser getUser(){
         HttpServletRequest request = WebUtil.getRequest();
@@ -20,18 +29,29 @@ public class AuthUtil {
         return getUser(request);
     }
     public static MRKUser getUser(HttpServletRequest request){
+        //1.同一请求只解析一次
+        Object cached = request.getAttribute(MRK_USER_ATTRIBUTE);
+        if (cached != null) {
+            return cached instanceof MRKUser ? (MRKUser) cached : null;
+        }
+        MRKUser user = resolveUser(request);
+        request.setAttribute(MRK_USER_ATTRIBUTE, user == null ? ANONYMOUS : user);
+        return user;
+    }
+
+    private static MRKUser resolveUser(HttpServletRequest request){
+        //2.网关已校验令牌，信任签名的身份请求头
+        String identity = request.getHeader(JWTConstant.IDENTITY_HEADER);
+        if (StrUtil.isNotBlank(identity)) {
+            return TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, request.getHeader(JWTConstant.IDENTITY_TIMESTAMP_HEADER),
+                    request.getHeader(JWTConstant.IDENTITY_SIGNATURE_HEADER), request.getHeader(USER_TYPE));
+        }
+        //3.未经过网关(直接访问服务)时校验令牌
         Claims claims = getClaims(request);
         if(claims==null){
             return null;
         }
-        Long userId = Long.valueOf(String.valueOf(claims.get(USER_ID)));
-        String name = String.valueOf(claims.get("name"));
-        String realName = String.valueOf(claims.get("realName"));
-        String account = String.valueOf(claims.get("account"));
-        String deptId = String.valueOf(claims.get("deptId"));
-        String postId = String.valueOf(claims.get("postId"));
-        String roleId = String.valueOf(claims.get("roleId"));
-        return new MRKUser(userId,name,realName,account,deptId,postId,roleId);
+        return JWTUtil.getUser(claims);
     }
 
     /**
@@ -57,13 +77,8 @@ public class AuthUtil {
             claims = JWTUtil.parseJWT(token);
         }
         // 判断 Token 状态
-        if (claims != null) {
-            String userIdStr = String.valueOf(claims.get(USER_ID));
-            Long userId = Long.valueOf(userIdStr);
-            String accessToken = JWTUtil.getAccessToken(userId, userType);
-            if (!token.equals(accessToken)) {
-                return null;
-            }
+        if (claims != null && !JWTUtil.isValidToken(claims, token, userType)) {
+            return null;
         }
         return claims;
     }
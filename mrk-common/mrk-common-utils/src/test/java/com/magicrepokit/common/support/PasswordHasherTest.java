@@ -0,0 +1,120 @@
+package com.magicrepokit.common.support;
+
+import com.magicrepokit.common.properties.PasswordHashProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 密码哈希：强度识别、线程繁忙和等待超时时拒绝
+ */
+public class PasswordHasherTest {
+    private static final int TARGET_COST = 4;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        if (passwordHasher != null) {
+            passwordHasher.destroy();
+        }
+    }
+
+    @Test
+    public void encodeAndMatch() {
+        passwordHasher = new PasswordHasher(properties(2, 8, 3000));
+
+        String encoded = passwordHasher.encode("123456");
+
+        assertTrue(encoded.startsWith("$2a$04$"));
+        assertTrue(passwordHasher.matches("123456", encoded));
+        assertFalse(passwordHasher.matches("654321", encoded));
+        assertFalse(passwordHasher.matches("123456", null));
+    }
+
+    @Test
+    public void needsUpgradeByCost() {
+        passwordHasher = new PasswordHasher(properties(1, 1, 3000));
+
+        assertFalse(passwordHasher.needsUpgrade(BCrypt.hashpw("123456", BCrypt.gensalt(TARGET_COST))));
+        assertTrue(passwordHasher.needsUpgrade(BCrypt.hashpw("123456", BCrypt.gensalt(5))));
+        //两位强度，10不能按1解析
+        assertTrue(passwordHasher.needsUpgrade(BCrypt.hashpw("123456", BCrypt.gensalt(10))));
+        assertTrue(passwordHasher.needsUpgrade(BCrypt.hashpw("123456", BCrypt.gensalt(10)).replace("$2a$", "$2b$")));
+        //不是BCrypt格式的不处理
+        assertFalse(passwordHasher.needsUpgrade("123456"));
+        assertFalse(passwordHasher.needsUpgrade("$2a$04$short"));
+        assertFalse(passwordHasher.needsUpgrade(null));
+    }
+
+    @Test
+    public void rejectWhenSaturated() throws InterruptedException {
+        passwordHasher = new PasswordHasher(properties(1, 1, 3000));
+        String encoded = BCrypt.hashpw("123456", BCrypt.gensalt(TARGET_COST));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        //占住唯一的线程和唯一的队列位置
+        passwordHasher.upgradeAsync("123456", upgraded -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        passwordHasher.upgradeAsync("123456", upgraded -> queued.countDown());
+
+        assertThrows(RejectedExecutionException.class, () -> passwordHasher.matches("123456", encoded));
+        assertThrows(RejectedExecutionException.class, () -> passwordHasher.encode("123456"));
+        //后台重新哈希繁忙时直接放弃，不抛出
+        passwordHasher.upgradeAsync("123456", upgraded -> fail("rejected task should not run"));
+
+        //已排队的任务仍会执行，之后恢复接收
+        release.countDown();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        assertTrue(passwordHasher.matches("123456", encoded));
+    }
+
+    @Test
+    public void rejectOnTimeout() throws InterruptedException {
+        passwordHasher = new PasswordHasher(properties(1, 8, 100));
+        String encoded = BCrypt.hashpw("123456", BCrypt.gensalt(TARGET_COST));
+        CountDownLatch started = new CountDownLatch(1);
+        passwordHasher.upgradeAsync("123456", upgraded -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long begin = System.currentTimeMillis();
+        RejectedExecutionException e = assertThrows(RejectedExecutionException.class, () -> passwordHasher.matches("123456", encoded));
+        assertEquals("密码哈希等待超时", e.getMessage());
+        assertTrue(System.currentTimeMillis() - begin < 3000);
+
+        //超时的任务已取消，不再占用线程
+        release.countDown();
+        assertTrue(passwordHasher.matches("123456", encoded));
+    }
+
+    private static PasswordHashProperties properties(int threads, int queueCapacity, long timeoutMillis) {
+        PasswordHashProperties properties = new PasswordHashProperties();
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setTimeoutMillis(timeoutMillis);
+        properties.setTargetCost(TARGET_COST);
+        return properties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
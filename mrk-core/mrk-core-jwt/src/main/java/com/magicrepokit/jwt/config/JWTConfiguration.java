@@ -2,12 +2,19 @@ package com.magicrepokit.jwt.config;
 
 
 import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.jwt.support.JWTVerifier;
+import com.magicrepokit.jwt.support.RedisTokenSessionStore;
+import com.magicrepokit.jwt.support.TokenRevocationRegistry;
+import com.magicrepokit.jwt.support.TokenSessionStore;
 import com.magicrepokit.jwt.utils.JWTUtil;
 import com.magicrepokit.redis.utils.MRKRedisUtils;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 
 @EnableConfigurationProperties({JWTProperties.class})
@@ -17,10 +24,32 @@ public class JWTConfiguration implements SmartInitializingSingleton {
     private  JWTProperties jwtProperties;
     @Autowired
     private MRKRedisUtils mrkRedisUtils;
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Bean
+    public JWTVerifier jwtVerifier() {
+        return new JWTVerifier(jwtProperties);
+    }
+
+    @Bean
+    public TokenSessionStore tokenSessionStore() {
+        return new RedisTokenSessionStore(redisTemplate, jwtProperties);
+    }
+
+    @Bean
+    public TokenRevocationRegistry tokenRevocationRegistry() {
+        return new TokenRevocationRegistry(redisTemplate, redisMessageListenerContainer, jwtProperties);
+    }
 
     @Override
     public void afterSingletonsInstantiated() {
         JWTUtil.setJwtProperties(jwtProperties);
+        JWTUtil.setJwtVerifier(jwtVerifier());
         JWTUtil.setMRKRedisUtils(mrkRedisUtils);
+        JWTUtil.setTokenSessionStore(tokenSessionStore());
+        JWTUtil.setTokenRevocationRegistry(tokenRevocationRegistry());
     }
 }
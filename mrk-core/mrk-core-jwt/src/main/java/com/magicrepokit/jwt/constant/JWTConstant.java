@@ -30,9 +30,56 @@ public interface JWTConstant {
     String ROLE_NAME = "role_name";
     String TENANT_ID = "tenant_id";
     String ACCOUNT = "account";
+    /**
+     * 签发时间(毫秒)，吊销模式下早于用户最早有效签发时间的令牌视为已吊销
+     */
+    String ISSUED_AT = "issued_at";
     //==================redis相关字段========================
-    String REDIS_KEY_ACCESS_TOKEN = "mrk:accessToken:";
-    String REDIS_KEY_REFRESH_TOKEN = "mrk:refreshToken:";
+    /**
+     * 令牌状态hash mrk:tokenSession:{用户类型}:{用户id}
+     */
+    String REDIS_KEY_TOKEN_SESSION = "mrk:tokenSession:";
+    /**
+     * 令牌状态hash中accessToken字段
+     */
+    String TOKEN_SESSION_ACCESS = "access";
+    /**
+     * 令牌状态hash中refreshToken字段
+     */
+    String TOKEN_SESSION_REFRESH = "refresh";
+    /**
+     * 令牌变更通知频道(登录、刷新、退出)，消息内容为 用户类型:用户id
+     */
+    String REDIS_CHANNEL_ACCESS_TOKEN = "mrk:channel:accessToken";
+    /**
+     * 用户令牌最早有效签发时间 hash 用户类型:用户id -> 毫秒
+     */
+    String REDIS_KEY_REVOCATION_SUPERSEDED = "mrk:revocation:superseded";
+    /**
+     * 被吊销的令牌 hash jti -> 令牌过期时间(毫秒)
+     */
+    String REDIS_KEY_REVOCATION_JTI = "mrk:revocation:jti";
+    /**
+     * 吊销通知频道，消息内容为 S|用户类型:用户id|签发时间 或 J|jti|过期时间
+     */
+    String REDIS_CHANNEL_REVOCATION = "mrk:channel:revocation";
+    //=================网关转发身份相关=============================
+    /**
+     * 网关校验令牌后转发的用户身份(base64url编码的json)
+     */
+    String IDENTITY_HEADER = "Mrk-Identity";
+    /**
+     * 身份签发时间(毫秒)
+     */
+    String IDENTITY_TIMESTAMP_HEADER = "Mrk-Identity-Timestamp";
+    /**
+     * 身份签名 HmacSHA256(用途.身份.签发时间)
+     */
+    String IDENTITY_SIGNATURE_HEADER = "Mrk-Identity-Signature";
+    /**
+     * 身份有效时间(毫秒)，超出视为重放；网关到下游只是一次转发，只需容忍时钟偏差
+     */
+    long IDENTITY_MAX_AGE_MILLIS = 30 * 1000;
     //=================oauth请求参数相关-=============================
     String PASSWORD = "password";
     String SOURCE = "source";
@@ -43,6 +90,13 @@ public interface JWTConstant {
 
     String SOCIAL = "social";
 
+    /**
+     * 可信断言授权类型：系统服务校验账号密码后签发身份断言换取令牌
+     */
+    String ASSERTION = "assertion";
+    String ASSERTION_TIMESTAMP = "assertion_timestamp";
+    String ASSERTION_SIGNATURE = "assertion_signature";
+
     String GRANT_TYPE = "grant_type";
     String REFRESH_TOKEN = "refresh_token";
     String AUTHORIZATION = "Authorization";
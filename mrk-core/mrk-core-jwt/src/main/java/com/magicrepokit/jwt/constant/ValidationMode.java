@@ -0,0 +1,16 @@
+package com.magicrepokit.jwt.constant;
+
+/**
+ * 令牌校验模式
+ */
+public enum ValidationMode {
+    /**
+     * 每次请求与redis中保存的当前令牌比较
+     */
+    SESSION,
+    /**
+     * 令牌自包含，只与本地的吊销列表(被吊销的jti、用户令牌的最早签发时间)比较，吊销列表通过redis同步
+     */
+    REVOCATION,
+    ;
+}
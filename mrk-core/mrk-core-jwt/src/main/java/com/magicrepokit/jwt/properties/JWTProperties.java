@@ -1,12 +1,16 @@
 package com.magicrepokit.jwt.properties;
 
 import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.constant.ValidationMode;
 import io.jsonwebtoken.JwtException;
 import lombok.Data;
 import lombok.Getter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @ConfigurationProperties("mrk.token")
 public class JWTProperties {
@@ -15,6 +19,21 @@ public class JWTProperties {
      */
     private String singKey;
 
+    /**
+     * 轮换前的旧签名，只用于校验尚未过期的令牌，旧令牌全部过期后移除
+     */
+    private List<String> retiredKeys = new ArrayList<>();
+
+    /**
+     * 网关转发身份的签名密钥，必须单独配置且不能与sing-key相同
+     */
+    private String identityKey;
+
+    /**
+     * 令牌校验模式，session:每次请求查询redis中的当前令牌; revocation:只检查本地同步的吊销列表
+     */
+    private ValidationMode validationMode = ValidationMode.SESSION;
+
     /**
      * accessToken过期时间
      */
@@ -33,6 +52,16 @@ public class JWTProperties {
         return this.singKey;
     }
 
+    public String getIdentityKey(){
+        if(this.identityKey==null||this.identityKey.length()< JWTConstant.SECRET_KEY_LENGTH){
+            throw new JwtException("mrk的身份签名密钥长度不小于"+JWTConstant.SECRET_KEY_LENGTH);
+        }
+        if(this.identityKey.equals(this.singKey)){
+            throw new JwtException("mrk的身份签名密钥不能与jwt密钥相同");
+        }
+        return this.identityKey;
+    }
+
     public int getAccessTokenValiditySeconds(){
         if (accessTokenValiditySeconds==0){
             return JWTConstant.ACCESS_TOKEN_VALIDITY_SECONDS;
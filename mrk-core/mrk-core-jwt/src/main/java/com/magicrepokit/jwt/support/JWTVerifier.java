@@ -0,0 +1,104 @@
+package com.magicrepokit.jwt.support;
+
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * jwt校验器
+ * <p>
+ * 密钥和JwtParser只在密钥变更时构建一次(JwtParser线程安全，构建时会创建json反序列化器，开销较大)；
+ * 支持密钥轮换:先用当前密钥校验，签名不匹配时再依次尝试已轮换的旧密钥
+ */
+public class JWTVerifier {
+    private final JWTProperties jwtProperties;
+    private volatile Parsers parsers;
+
+    public JWTVerifier(JWTProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
+    }
+
+    /**
+     * 解析并校验jsonWebToken
+     *
+     * @param jsonWebToken token串
+     * @return Claims 校验失败返回null
+     */
+    public Claims parse(String jsonWebToken) {
+        try {
+            for (JwtParser parser : getParsers().parsers) {
+                try {
+                    return parser.parseClaimsJws(jsonWebToken).getBody();
+                } catch (SignatureException e) {
+                    //签名不匹配，尝试下一个密钥
+                }
+            }
+            return null;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前密钥对应的解析器，配置刷新后密钥变化时重建
+     */
+    private Parsers getParsers() {
+        String signKey = jwtProperties.getSingKey();
+        List<String> retiredKeys = jwtProperties.getRetiredKeys();
+        Parsers current = parsers;
+        if (current != null && current.matches(signKey, retiredKeys)) {
+            return current;
+        }
+        synchronized (this) {
+            current = parsers;
+            if (current == null || !current.matches(signKey, retiredKeys)) {
+                current = new Parsers(signKey, retiredKeys);
+                parsers = current;
+            }
+            return current;
+        }
+    }
+
+    private static JwtParser buildParser(String key) {
+        if (key == null || key.length() < JWTConstant.SECRET_KEY_LENGTH) {
+            throw new JwtException("mrk的jwt密钥长度不小于" + JWTConstant.SECRET_KEY_LENGTH);
+        }
+        return Jwts.parserBuilder()
+                .setSigningKey(key.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static class Parsers {
+        private final String signKey;
+        private final List<String> retiredKeys;
+        private final List<JwtParser> parsers;
+
+        private Parsers(String signKey, List<String> retiredKeys) {
+            this.signKey = signKey;
+            this.retiredKeys = retiredKeys == null ? Collections.emptyList() : new ArrayList<>(retiredKeys);
+            List<JwtParser> list = new ArrayList<>(1 + this.retiredKeys.size());
+            list.add(buildParser(signKey));
+            for (String retiredKey : this.retiredKeys) {
+                if (!signKey.equals(retiredKey)) {
+                    list.add(buildParser(retiredKey));
+                }
+            }
+            this.parsers = Collections.unmodifiableList(list);
+        }
+
+        private boolean matches(String signKey, List<String> retiredKeys) {
+            return this.signKey.equals(signKey)
+                    && Objects.equals(this.retiredKeys, retiredKeys == null ? Collections.emptyList() : retiredKeys);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.magicrepokit.jwt.support;
+
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.jwt.utils.JWTUtil;
+import lombok.AllArgsConstructor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * 基于redis hash的令牌状态存储
+ * <p>
+ * 令牌保存在 mrk:tokenSession:{用户类型}:{用户id} 的access、refresh两个字段中；
+ * 保存和移除由lua脚本完成(含失效通知)，一次往返，校验只需一次HGET
+ */
+@AllArgsConstructor
+public class RedisTokenSessionStore implements TokenSessionStore {
+    /**
+     * KEYS[1] 令牌hash; ARGV accessToken,refreshToken(空串表示没有),过期时间(秒),通知频道,通知内容
+     */
+    private static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1])\n" +
+            "if ARGV[2] == '' then\n" +
+            "  redis.call('HSET', KEYS[1], '" + JWTConstant.TOKEN_SESSION_ACCESS + "', ARGV[1])\n" +
+            "else\n" +
+            "  redis.call('HSET', KEYS[1], '" + JWTConstant.TOKEN_SESSION_ACCESS + "', ARGV[1], '" + JWTConstant.TOKEN_SESSION_REFRESH + "', ARGV[2])\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+            "redis.call('PUBLISH', ARGV[4], ARGV[5])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * KEYS[1] 令牌hash; ARGV 通知频道,通知内容
+     */
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1])\n" +
+            "redis.call('PUBLISH', ARGV[1], ARGV[2])\n" +
+            "return 1",
+            Long.class);
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final JWTProperties jwtProperties;
+
+    @Override
+    public void save(Long userId, String userType, String accessToken, String refreshToken) {
+        int ttl = refreshToken == null ? jwtProperties.getAccessTokenValiditySeconds()
+                : Math.max(jwtProperties.getAccessTokenValiditySeconds(), jwtProperties.getRefreshTokenValiditySeconds());
+        redisTemplate.execute(SAVE_SCRIPT, RedisSerializer.byteArray(), null,
+                Collections.singletonList(JWTUtil.getTokenSessionRedisKey(userId, userType)),
+                serializeValue(accessToken),
+                refreshToken == null ? EMPTY : serializeValue(refreshToken),
+                String.valueOf(ttl).getBytes(StandardCharsets.UTF_8),
+                JWTConstant.REDIS_CHANNEL_ACCESS_TOKEN.getBytes(StandardCharsets.UTF_8),
+                serializeValue(userType + ":" + userId));
+    }
+
+    @Override
+    public String getAccessToken(Long userId, String userType) {
+        return get(userId, userType, JWTConstant.TOKEN_SESSION_ACCESS);
+    }
+
+    @Override
+    public String getRefreshToken(Long userId, String userType) {
+        return get(userId, userType, JWTConstant.TOKEN_SESSION_REFRESH);
+    }
+
+    @Override
+    public void remove(Long userId, String userType) {
+        redisTemplate.execute(REMOVE_SCRIPT, RedisSerializer.byteArray(), null,
+                Collections.singletonList(JWTUtil.getTokenSessionRedisKey(userId, userType)),
+                JWTConstant.REDIS_CHANNEL_ACCESS_TOKEN.getBytes(StandardCharsets.UTF_8),
+                serializeValue(userType + ":" + userId));
+    }
+
+    private String get(Long userId, String userType, String field) {
+        Object value = redisTemplate.opsForHash().get(JWTUtil.getTokenSessionRedisKey(userId, userType), field);
+        return value == null ? null : String.valueOf(value);
+    }
+
+    /**
+     * 与redisTemplate的value序列化方式一致，读取和订阅方可以正常反序列化
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] serializeValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+}
@@ -0,0 +1,255 @@
+package com.magicrepokit.jwt.support;
+
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.constant.ValidationMode;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+/**
+ * 令牌吊销列表
+ * <p>
+ * 吊销模式下令牌不再与redis中的当前令牌比较，只检查两类吊销记录：
+ * 被吊销的jti，以及用户令牌的最早有效签发时间(重新登录、刷新、退出时更新，早于该时间签发的令牌全部失效)；
+ * 记录保存在redis并通过频道实时同步到各节点内存，另外定时全量同步兜底，校验时不访问网络；
+ * 启动时同步加载一次全量记录，加载成功前所有令牌按已吊销处理(失败关闭)，避免新节点放行已吊销的令牌；
+ * 非吊销模式下不写入任何记录，本地记录只由吊销模式的定时同步清理
+ */
+@Slf4j
+public class TokenRevocationRegistry implements MessageListener {
+    private static final long SNAPSHOT_SECONDS = 60;
+    /**
+     * 加载失败时的重试间隔，启动后也按该间隔再同步一次，补上订阅生效前漏掉的通知
+     */
+    private static final long RETRY_SECONDS = 5;
+    private static final String TYPE_SUPERSEDED = "S";
+    private static final String TYPE_JTI = "J";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * KEYS[1] 吊销记录hash; ARGV 字段,时间(毫秒),通知频道,通知内容
+     * 签发时间只会前移，并发写入时保留较大的值
+     */
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "local current = tonumber(redis.call('HGET', KEYS[1], ARGV[1]))\n" +
+            "if current == nil or current < tonumber(ARGV[2]) then\n" +
+            "  redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "end\n" +
+            "redis.call('PUBLISH', ARGV[3], ARGV[4])\n" +
+            "return 1",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final JWTProperties jwtProperties;
+    /**
+     * 用户类型:用户id -> 最早有效签发时间
+     */
+    private final Map<String, Long> superseded = new ConcurrentHashMap<>();
+    /**
+     * jti -> 令牌过期时间
+     */
+    private final Map<String, Long> revokedJti = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    /**
+     * 是否已成功加载过全量记录
+     */
+    private volatile boolean loaded;
+
+    public TokenRevocationRegistry(RedisTemplate<String, Object> redisTemplate, RedisMessageListenerContainer redisMessageListenerContainer,
+                                   JWTProperties jwtProperties) {
+        this.redisTemplate = redisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.jwtProperties = jwtProperties;
+    }
+
+    /**
+     * 吊销模式下订阅通知，同步加载全量记录后开始定时同步
+     */
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(JWTConstant.REDIS_CHANNEL_REVOCATION));
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mrk-token-revocation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!snapshot()) {
+            log.error("[令牌吊销]启动时加载吊销列表失败,加载成功前拒绝所有令牌");
+        }
+        scheduler.schedule(this::refresh, RETRY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            redisMessageListenerContainer.removeMessageListener(this);
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return jwtProperties.getValidationMode() == ValidationMode.REVOCATION;
+    }
+
+    /**
+     * 令牌是否已被吊销
+     *
+     * @param claims   令牌内容
+     * @param userType 用户类型
+     * @return 是否已吊销
+     */
+    public boolean isRevoked(Claims claims, String userType) {
+        Object issuedAt = claims.get(JWTConstant.ISSUED_AT);
+        return isRevoked(claims.getId(), userType + ":" + claims.get(JWTConstant.USER_ID),
+                issuedAt instanceof Number ? ((Number) issuedAt).longValue() : null);
+    }
+
+    /**
+     * 令牌是否已被吊销
+     *
+     * @param jti      令牌id
+     * @param user     用户类型:用户id
+     * @param issuedAt 签发时间(毫秒)，为空时只要用户有吊销记录即视为已吊销
+     * @return 是否已吊销
+     */
+    public boolean isRevoked(String jti, String user, Long issuedAt) {
+        if (!loaded) {
+            return true;
+        }
+        if (jti != null && revokedJti.containsKey(jti)) {
+            return true;
+        }
+        Long cutoff = superseded.get(user);
+        if (cutoff == null) {
+            return false;
+        }
+        return issuedAt == null || issuedAt < cutoff;
+    }
+
+    /**
+     * 使用户在指定时间之前签发的令牌失效
+     *
+     * @param userId   用户id
+     * @param userType 用户类型
+     * @param issuedAt 最早有效签发时间(毫秒)
+     */
+    public void supersede(Long userId, String userType, long issuedAt) {
+        if (!isEnabled()) {
+            return;
+        }
+        String user = userType + ":" + userId;
+        superseded.merge(user, issuedAt, Math::max);
+        record(JWTConstant.REDIS_KEY_REVOCATION_SUPERSEDED, TYPE_SUPERSEDED, user, issuedAt);
+    }
+
+    /**
+     * 吊销单个令牌
+     *
+     * @param jti       令牌id
+     * @param expiresAt 令牌过期时间(毫秒)，之后记录可以删除
+     */
+    public void revoke(String jti, long expiresAt) {
+        if (!isEnabled()) {
+            return;
+        }
+        revokedJti.merge(jti, expiresAt, Math::max);
+        record(JWTConstant.REDIS_KEY_REVOCATION_JTI, TYPE_JTI, jti, expiresAt);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!isEnabled()) {
+            return;
+        }
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3) {
+            return;
+        }
+        try {
+            long time = Long.parseLong(parts[2]);
+            if (TYPE_SUPERSEDED.equals(parts[0])) {
+                superseded.merge(parts[1], time, Math::max);
+            } else if (TYPE_JTI.equals(parts[0])) {
+                revokedJti.merge(parts[1], time, Math::max);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("[令牌吊销]无法解析通知:{}", parts[2]);
+        }
+    }
+
+    private void record(String key, String type, String field, long time) {
+        String message = type + SEPARATOR + field + SEPARATOR + time;
+        redisTemplate.execute(RECORD_SCRIPT, RedisSerializer.byteArray(), null, Collections.singletonList(key),
+                field.getBytes(StandardCharsets.UTF_8),
+                String.valueOf(time).getBytes(StandardCharsets.UTF_8),
+                JWTConstant.REDIS_CHANNEL_REVOCATION.getBytes(StandardCharsets.UTF_8),
+                message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void refresh() {
+        snapshot();
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::refresh, loaded ? SNAPSHOT_SECONDS : RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 全量同步，补上订阅断开期间漏掉的通知，同时清理已经过期的记录
+     *
+     * @return 是否同步成功
+     */
+    private boolean snapshot() {
+        try {
+            long now = System.currentTimeMillis();
+            //最早有效签发时间超过accessToken有效期后，之前签发的令牌都已过期
+            long supersededExpiry = jwtProperties.getAccessTokenValiditySeconds() * 1000L;
+            load(JWTConstant.REDIS_KEY_REVOCATION_SUPERSEDED, superseded, time -> time + supersededExpiry < now);
+            load(JWTConstant.REDIS_KEY_REVOCATION_JTI, revokedJti, time -> time < now);
+            loaded = true;
+            return true;
+        } catch (Exception e) {
+            log.warn("[令牌吊销]同步吊销列表失败:{}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void load(String key, Map<String, Long> local, LongPredicate expired) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = String.valueOf(entry.getKey());
+            if (!(entry.getValue() instanceof Number)) {
+                continue;
+            }
+            long time = ((Number) entry.getValue()).longValue();
+            if (expired.test(time)) {
+                redisTemplate.opsForHash().delete(key, field);
+            } else {
+                local.merge(field, time, Math::max);
+            }
+        }
+        local.values().removeIf(expired::test);
+    }
+}
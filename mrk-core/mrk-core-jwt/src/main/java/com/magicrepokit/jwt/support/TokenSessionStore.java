@@ -0,0 +1,46 @@
+package com.magicrepokit.jwt.support;
+
+/**
+ * 令牌状态存储
+ * <p>
+ * 每个用户(用户类型+用户id)只保存当前有效的一组accessToken和refreshToken，
+ * 重新登录或刷新后旧令牌失效
+ */
+public interface TokenSessionStore {
+
+    /**
+     * 保存令牌(覆盖旧令牌)并通知本地缓存了令牌状态的节点失效
+     *
+     * @param userId       用户id
+     * @param userType     用户类型
+     * @param accessToken  accessToken
+     * @param refreshToken refreshToken，可以为空
+     */
+    void save(Long userId, String userType, String accessToken, String refreshToken);
+
+    /**
+     * 获取当前有效的accessToken
+     *
+     * @param userId   用户id
+     * @param userType 用户类型
+     * @return 不存在返回null
+     */
+    String getAccessToken(Long userId, String userType);
+
+    /**
+     * 获取当前有效的refreshToken
+     *
+     * @param userId   用户id
+     * @param userType 用户类型
+     * @return 不存在返回null
+     */
+    String getRefreshToken(Long userId, String userType);
+
+    /**
+     * 移除令牌(退出登录)并通知失效
+     *
+     * @param userId   用户id
+     * @param userType 用户类型
+     */
+    void remove(Long userId, String userType);
+}
@@ -0,0 +1,162 @@
+package com.magicrepokit.jwt.support;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.entity.MRKUser;
+import com.magicrepokit.jwt.utils.JWTUtil;
+import io.jsonwebtoken.Claims;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * 网关转发的可信身份
+ * <p>
+ * 网关校验令牌(签名+redis状态)后，把用户信息、令牌jti和签发时间用HmacSHA256签名放入请求头，
+ * 下游服务只需校验签名即可信任，不再重复解析令牌和查询redis；
+ * 签名内容带用途，不同用途的签名不能互相冒用
+ */
+public class TrustedIdentity {
+    /**
+     * 网关转发的身份请求头
+     */
+    public static final String PURPOSE_IDENTITY = "identity";
+    /**
+     * 系统服务换取令牌的身份断言
+     */
+    public static final String PURPOSE_ASSERTION = "assertion";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String USER_TYPE = "userType";
+    private static final String JTI = "jti";
+    private static final String ISSUED_AT = "iat";
+    private static final String NONCE = "nonce";
+
+    private static volatile SecretKeySpec cachedKey;
+
+    /**
+     * 编码令牌对应的身份，绑定令牌jti和签发时间，下游可以据此检查吊销
+     *
+     * @param claims   令牌内容
+     * @param userType 用户类型
+     * @return base64url编码的身份
+     */
+    public static String encode(Claims claims, String userType) {
+        JSONObject token = JSONUtil.createObj()
+                .set(JTI, claims.getId())
+                .set(ISSUED_AT, claims.get(JWTConstant.ISSUED_AT));
+        return encode(JWTUtil.getUser(claims), userType, token);
+    }
+
+    /**
+     * 编码身份断言，每个断言带随机nonce，签名唯一，只能换取一次令牌
+     *
+     * @param user     用户信息
+     * @param userType 用户类型
+     * @return base64url编码的身份
+     */
+    public static String encodeAssertion(MRKUser user, String userType) {
+        return encode(user, userType, JSONUtil.createObj().set(NONCE, IdUtil.fastSimpleUUID()));
+    }
+
+    private static String encode(MRKUser user, String userType, JSONObject json) {
+        json.set("userId", user.getUserId())
+                .set("name", user.getName())
+                .set("realName", user.getRealName())
+                .set("account", user.getAccount())
+                .set("deptId", user.getDeptId())
+                .set("postId", user.getPostId())
+                .set("roleId", user.getRoleId())
+                .set(USER_TYPE, userType);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 签名
+     *
+     * @param purpose   用途
+     * @param identity  编码后的身份
+     * @param timestamp 签发时间(毫秒)
+     * @return 签名
+     */
+    public static String sign(String purpose, String identity, long timestamp) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(getKey());
+            byte[] signature = mac.doFinal((purpose + "." + identity + "." + timestamp).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (Exception e) {
+            throw new IllegalStateException("身份签名失败", e);
+        }
+    }
+
+    /**
+     * 校验并解析身份
+     * <p>
+     * 身份绑定了令牌jti时，吊销模式下同时检查本地吊销列表；session模式依靠较短的有效时间
+     *
+     * @param purpose   用途
+     * @param identity  编码后的身份
+     * @param timestamp 签发时间(毫秒)
+     * @param signature 签名
+     * @param userType  请求的用户类型
+     * @return 签名不匹配、已过期、用户类型不一致或令牌已吊销返回null
+     */
+    public static MRKUser verify(String purpose, String identity, String timestamp, String signature, String userType) {
+        if (StrUtil.hasBlank(identity, timestamp, signature)) {
+            return null;
+        }
+        try {
+            long issuedAt = Long.parseLong(timestamp);
+            if (Math.abs(System.currentTimeMillis() - issuedAt) > JWTConstant.IDENTITY_MAX_AGE_MILLIS) {
+                return null;
+            }
+            byte[] expected = sign(purpose, identity, issuedAt).getBytes(StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.UTF_8))) {
+                return null;
+            }
+            JSONObject json = JSONUtil.parseObj(new String(Base64.getUrlDecoder().decode(identity), StandardCharsets.UTF_8));
+            if (userType != null && !userType.equals(json.getStr(USER_TYPE))) {
+                return null;
+            }
+            if (PURPOSE_ASSERTION.equals(purpose) && StrUtil.isBlank(json.getStr(NONCE))) {
+                return null;
+            }
+            if (isRevoked(json)) {
+                return null;
+            }
+            return new MRKUser(json.getLong("userId"), json.getStr("name"), json.getStr("realName"), json.getStr("account"),
+                    json.getStr("deptId"), json.getStr("postId"), json.getStr("roleId"));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean isRevoked(JSONObject json) {
+        String jti = json.getStr(JTI);
+        TokenRevocationRegistry registry = JWTUtil.getTokenRevocationRegistry();
+        if (jti == null || registry == null || !registry.isEnabled()) {
+            return false;
+        }
+        return registry.isRevoked(jti, json.getStr(USER_TYPE) + ":" + json.getLong("userId"), json.getLong(ISSUED_AT));
+    }
+
+    /**
+     * 签名密钥，配置刷新后密钥变化时重建
+     */
+    private static SecretKeySpec getKey() {
+        String identityKey = JWTUtil.getJwtProperties().getIdentityKey();
+        SecretKeySpec key = cachedKey;
+        if (key == null || !MessageDigest.isEqual(key.getEncoded(), identityKey.getBytes(StandardCharsets.UTF_8))) {
+            key = new SecretKeySpec(identityKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+            cachedKey = key;
+        }
+        return key;
+    }
+}
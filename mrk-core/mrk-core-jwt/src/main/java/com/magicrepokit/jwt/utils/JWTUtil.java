@@ -1,10 +1,14 @@
 package com.magicrepokit.jwt.utils;
 
+import cn.hutool.core.convert.Convert;
 import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.entity.MRKUser;
 import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.jwt.support.JWTVerifier;
+import com.magicrepokit.jwt.support.TokenRevocationRegistry;
+import com.magicrepokit.jwt.support.TokenSessionStore;
 import com.magicrepokit.redis.utils.MRKRedisUtils;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import lombok.Getter;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.util.Base64Utils;
@@ -28,24 +32,60 @@ public class JWTUtil {
     @Getter
     private static JWTProperties jwtProperties;
 
+    /**
+     * jwt校验器
+     */
+    @Getter
+    private static JWTVerifier jwtVerifier;
+
     /**
      * redis工具
      */
     @Getter
     private static MRKRedisUtils mrkRedisUtils;
 
+    /**
+     * 令牌状态存储
+     */
+    @Getter
+    private static TokenSessionStore tokenSessionStore;
+
+    /**
+     * 令牌吊销列表
+     */
+    @Getter
+    private static TokenRevocationRegistry tokenRevocationRegistry;
+
     public static void setJwtProperties(JWTProperties properties) {
         if (JWTUtil.jwtProperties == null) {
             JWTUtil.jwtProperties = properties;
         }
     }
 
+    public static void setJwtVerifier(JWTVerifier verifier) {
+        if (JWTUtil.jwtVerifier == null) {
+            JWTUtil.jwtVerifier = verifier;
+        }
+    }
+
     public static void setMRKRedisUtils(MRKRedisUtils mrkRedisUtils) {
         if (JWTUtil.mrkRedisUtils == null) {
             JWTUtil.mrkRedisUtils = mrkRedisUtils;
         }
     }
 
+    public static void setTokenSessionStore(TokenSessionStore store) {
+        if (JWTUtil.tokenSessionStore == null) {
+            JWTUtil.tokenSessionStore = store;
+        }
+    }
+
+    public static void setTokenRevocationRegistry(TokenRevocationRegistry registry) {
+        if (JWTUtil.tokenRevocationRegistry == null) {
+            JWTUtil.tokenRevocationRegistry = registry;
+        }
+    }
+
 
 
     /**
@@ -55,13 +95,25 @@ public class JWTUtil {
      * @return Claims
      */
     public static Claims parseJWT(String jsonWebToken) {
-        try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(Base64.getDecoder().decode(getBase64Security())).build()
-                    .parseClaimsJws(jsonWebToken).getBody();
-        } catch (Exception ex) {
-            return null;
-        }
+        return getJwtVerifier().parse(jsonWebToken);
+    }
+
+    /**
+     * 令牌内容转为用户信息
+     *
+     * @param claims 令牌内容
+     * @return MRKUser
+     */
+    public static MRKUser getUser(Claims claims) {
+        Long userId = Long.valueOf(String.valueOf(claims.get(JWTConstant.USER_ID)));
+        //缺失的字段为null，与网关转发的身份保持一致
+        String name = Convert.toStr(claims.get("name"));
+        String realName = Convert.toStr(claims.get("realName"));
+        String account = Convert.toStr(claims.get("account"));
+        String deptId = Convert.toStr(claims.get("deptId"));
+        String postId = Convert.toStr(claims.get("postId"));
+        String roleId = Convert.toStr(claims.get("roleId"));
+        return new MRKUser(userId,name,realName,account,deptId,postId,roleId);
     }
 
     /**
@@ -71,6 +123,23 @@ public class JWTUtil {
         return Base64.getEncoder().encodeToString(getJwtProperties().getSingKey().getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * 判断令牌是否为有效令牌
+     * 吊销模式只检查本地吊销列表，否则与redis中保存的当前令牌比较
+     *
+     * @param claims   令牌内容
+     * @param token    令牌
+     * @param userType 用户类型
+     * @return 是否有效
+     */
+    public static boolean isValidToken(Claims claims, String token, String userType) {
+        if (getTokenRevocationRegistry().isEnabled()) {
+            return !getTokenRevocationRegistry().isRevoked(claims, userType);
+        }
+        Long userId = Long.valueOf(String.valueOf(claims.get(JWTConstant.USER_ID)));
+        return token.equals(getAccessToken(userId, userType));
+    }
+
     /**
      * 获取保存在redis的accessToken
      *
@@ -78,12 +147,7 @@ public class JWTUtil {
      * @return accessToken
      */
     public static String getAccessToken(Long userId,String userType) {
-        if (getMrkRedisUtils().hasKey(getAccessTokenRedisKey(userId,userType))) {
-            return (String) getMrkRedisUtils().get(getAccessTokenRedisKey(userId,userType));
-        } else {
-            return null;
-        }
-
+        return getTokenSessionStore().getAccessToken(userId,userType);
     }
 
 
@@ -95,55 +159,56 @@ public class JWTUtil {
      * @return refreshToken
      */
     public static String getRefreshToken(Long userId,String userType){
-        if (getMrkRedisUtils().hasKey(getRefreshTokenRedisKey(userId,userType))) {
-            return (String)getMrkRedisUtils().get(getRefreshTokenRedisKey(userId,userType));
-        } else {
-            return null;
-        }
+        return getTokenSessionStore().getRefreshToken(userId,userType);
     }
 
     /**
-     * 添加token状态到redis
+     * 添加token状态到redis(同时覆盖旧的accessToken和refreshToken)
      *
      * @param userId
      * @param userType
      * @param accessTokenValue
+     * @param refreshTokenValue
+     * @param issuedAt 签发时间(毫秒)，吊销模式下之前签发的令牌失效
      */
-    public static void addAccessToken(Long userId, String userType, String accessTokenValue) {
-        getMrkRedisUtils().del(getAccessTokenRedisKey(userId,userType));
-        getMrkRedisUtils().set(getAccessTokenRedisKey(userId,userType),accessTokenValue, getJwtProperties().getAccessTokenValiditySeconds());
+    public static void addToken(Long userId, String userType, String accessTokenValue, String refreshTokenValue, long issuedAt) {
+        getTokenSessionStore().save(userId,userType,accessTokenValue,refreshTokenValue);
+        getTokenRevocationRegistry().supersede(userId,userType,issuedAt);
     }
 
     /**
-     * 添加token状态到redis
+     * 移除token状态(退出登录)
      *
      * @param userId
      * @param userType
-     * @param refreshToken
      */
-    public static void addRefreshToken(Long userId, String userType, String refreshToken) {
-        getMrkRedisUtils().del(getRefreshTokenRedisKey(userId,userType));
-        getMrkRedisUtils().set(getRefreshTokenRedisKey(userId,userType),refreshToken, getJwtProperties().getRefreshTokenValiditySeconds());
+    public static void removeAccessToken(Long userId, String userType) {
+        getTokenSessionStore().remove(userId,userType);
+        getTokenRevocationRegistry().supersede(userId,userType,System.currentTimeMillis());
     }
 
     /**
-     * 获取用户user的accessToken在redis中key
+     * 退出登录：移除令牌状态并吊销当前令牌
      *
-     * @param userId
-     * @return
+     * @param claims   当前令牌内容
+     * @param userType 用户类型
      */
-    public static String getAccessTokenRedisKey(Long userId,String userType) {
-        return JWTConstant.REDIS_KEY_ACCESS_TOKEN + userType+":"+userId;
+    public static void revokeToken(Claims claims, String userType) {
+        Long userId = Long.valueOf(String.valueOf(claims.get(JWTConstant.USER_ID)));
+        removeAccessToken(userId, userType);
+        if (claims.getId() != null && claims.getExpiration() != null) {
+            getTokenRevocationRegistry().revoke(claims.getId(), claims.getExpiration().getTime());
+        }
     }
 
     /**
-     * 获取用户user的Refresh在redis中key
+     * 获取用户user的令牌状态在redis中key
      *
      * @param userId
      * @return
      */
-    public static String getRefreshTokenRedisKey(Long userId,String userType) {
-        return JWTConstant.REDIS_KEY_REFRESH_TOKEN + userType+":"+userId;
+    public static String getTokenSessionRedisKey(Long userId,String userType) {
+        return JWTConstant.REDIS_KEY_TOKEN_SESSION + userType+":"+userId;
     }
 
     public static String getAuthorization(String clientId,String clientSecret){
@@ -0,0 +1,126 @@
+package com.magicrepokit.jwt.support;
+
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.jwt.utils.JWTUtil;
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import com.magicrepokit.redis.serializer.SerializerType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 令牌状态存储：脚本参数按value序列化方式写入，失效通知内容与网关解析一致
+ * <p>
+ * 使用真实的RedisTemplate和模拟的连接，校验发送给redis的原始参数
+ */
+public class RedisTokenSessionStoreTest {
+    private static final String USER_TYPE = "mrk_system";
+    private static final Long USER_ID = 1L;
+    private static final String KEY = JWTUtil.getTokenSessionRedisKey(USER_ID, USER_TYPE);
+
+    private RedisConnection connection;
+    private RedisSerializer<Object> valueSerializer;
+    private JWTProperties jwtProperties;
+    private RedisTokenSessionStore store;
+    private byte[][] scriptArgs;
+
+    @BeforeEach
+    public void setUp() {
+        connection = mock(RedisConnection.class);
+        when(connection.evalSha(anyString(), eq(ReturnType.INTEGER), anyInt(), ArgumentMatchers.<byte[]>any()))
+                .thenAnswer(invocation -> {
+                    Object[] arguments = invocation.getArguments();
+                    scriptArgs = Arrays.copyOfRange(arguments, 3, arguments.length, byte[][].class);
+                    return 1L;
+                });
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        valueSerializer = RedisTemplateConfig.valueSerializer(SerializerType.JSON, 0);
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setHashKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
+        redisTemplate.afterPropertiesSet();
+        jwtProperties = new JWTProperties();
+        store = new RedisTokenSessionStore(redisTemplate, jwtProperties);
+    }
+
+    @Test
+    public void saveAccessAndRefresh() {
+        store.save(USER_ID, USER_TYPE, "access-1", "refresh-1");
+
+        //KEYS[1] + 5个ARGV
+        assertEquals(6, scriptArgs.length);
+        assertEquals(KEY, string(scriptArgs[0]));
+        assertEquals("access-1", valueSerializer.deserialize(scriptArgs[1]));
+        assertEquals("refresh-1", valueSerializer.deserialize(scriptArgs[2]));
+        int ttl = Math.max(jwtProperties.getAccessTokenValiditySeconds(), jwtProperties.getRefreshTokenValiditySeconds());
+        assertEquals(String.valueOf(ttl), string(scriptArgs[3]));
+        assertNotification(scriptArgs[4], scriptArgs[5]);
+    }
+
+    @Test
+    public void saveAccessOnly() {
+        store.save(USER_ID, USER_TYPE, "access-1", null);
+
+        assertEquals("access-1", valueSerializer.deserialize(scriptArgs[1]));
+        //空参数表示没有refreshToken，脚本只写access字段
+        assertEquals(0, scriptArgs[2].length);
+        assertEquals(String.valueOf(jwtProperties.getAccessTokenValiditySeconds()), string(scriptArgs[3]));
+        assertNotification(scriptArgs[4], scriptArgs[5]);
+    }
+
+    @Test
+    public void removeAndNotify() {
+        store.remove(USER_ID, USER_TYPE);
+
+        assertEquals(3, scriptArgs.length);
+        assertEquals(KEY, string(scriptArgs[0]));
+        assertNotification(scriptArgs[1], scriptArgs[2]);
+    }
+
+    @Test
+    public void readFieldsWithHashGet() {
+        when(connection.hGet(bytes(KEY), bytes(JWTConstant.TOKEN_SESSION_ACCESS))).thenReturn(valueSerializer.serialize("access-1"));
+        when(connection.hGet(bytes(KEY), bytes(JWTConstant.TOKEN_SESSION_REFRESH))).thenReturn(valueSerializer.serialize("refresh-1"));
+
+        assertEquals("access-1", store.getAccessToken(USER_ID, USER_TYPE));
+        assertEquals("refresh-1", store.getRefreshToken(USER_ID, USER_TYPE));
+        assertNull(store.getAccessToken(2L, USER_TYPE));
+        verify(connection, times(3)).hGet(any(), any());
+        verify(connection, never()).hGetAll(any());
+    }
+
+    /**
+     * 网关订阅方按value序列化方式读取通知，再按 用户类型:用户id 失效本地缓存
+     */
+    private void assertNotification(byte[] channel, byte[] message) {
+        assertEquals(JWTConstant.REDIS_CHANNEL_ACCESS_TOKEN, string(channel));
+        assertEquals(USER_TYPE + ":" + USER_ID, String.valueOf(valueSerializer.deserialize(message)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.magicrepokit.jwt.support;
+
+import com.magicrepokit.jwt.constant.ValidationMode;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * 令牌吊销列表：非吊销模式下不保留任何本地记录
+ */
+public class TokenRevocationRegistryTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void ignoreWhenDisabled() {
+        JWTProperties properties = new JWTProperties();
+        properties.setValidationMode(ValidationMode.SESSION);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        TokenRevocationRegistry registry = new TokenRevocationRegistry(redisTemplate, container, properties);
+        registry.start();
+
+        registry.supersede(1L, "mrk_system", System.currentTimeMillis());
+        registry.revoke("jti-1", System.currentTimeMillis() + 60000);
+        registry.onMessage(new DefaultMessage("channel".getBytes(StandardCharsets.UTF_8),
+                ("J|jti-2|" + (System.currentTimeMillis() + 60000)).getBytes(StandardCharsets.UTF_8)), null);
+
+        //会话模式下没有定时同步清理，本地记录会一直增长
+        assertTrue(((Map<String, Long>) ReflectionTestUtils.getField(registry, "superseded")).isEmpty());
+        assertTrue(((Map<String, Long>) ReflectionTestUtils.getField(registry, "revokedJti")).isEmpty());
+        verifyNoInteractions(redisTemplate, container);
+    }
+}
@@ -0,0 +1,179 @@
+package com.magicrepokit.jwt.support;
+
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.constant.ValidationMode;
+import com.magicrepokit.jwt.entity.MRKUser;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.jwt.utils.JWTUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 可信身份签名与校验
+ */
+public class TrustedIdentityTest {
+    private static final String USER_TYPE = "mrk_system";
+    private static final String SING_KEY = "mrksingkeyforunittestonlymrksingkeyforunittestonly";
+    private static final String IDENTITY_KEY = "mrkidentitykeyforunittestonlymrkidentitykeyforunittest";
+
+    private static TokenRevocationRegistry registry;
+
+    @BeforeAll
+    @SuppressWarnings("unchecked")
+    public static void setUp() {
+        JWTProperties properties = new JWTProperties();
+        properties.setSingKey(SING_KEY);
+        properties.setIdentityKey(IDENTITY_KEY);
+        properties.setValidationMode(ValidationMode.REVOCATION);
+        JWTUtil.setJwtProperties(properties);
+        //redis中没有吊销记录，之后的吊销通过频道消息写入本地
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(anyString())).thenReturn(Collections.emptyMap());
+        registry = new TokenRevocationRegistry(redisTemplate, mock(RedisMessageListenerContainer.class), properties);
+        JWTUtil.setTokenRevocationRegistry(registry);
+        registry.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        registry.stop();
+    }
+
+    @Test
+    public void verifyIdentity() {
+        String identity = TrustedIdentity.encode(claims("jti-1"), USER_TYPE);
+        long now = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_IDENTITY, identity, now);
+
+        MRKUser user = TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, String.valueOf(now), signature, USER_TYPE);
+
+        assertNotNull(user);
+        assertEquals(1L, user.getUserId());
+        assertEquals("admin", user.getAccount());
+        assertEquals("2", user.getRoleId());
+        //缺失的字段与令牌解析结果一致，均为null
+        assertNull(user.getPostId());
+        assertEquals(JWTUtil.getUser(claims("jti-1")), user);
+    }
+
+    @Test
+    public void rejectCrossPurpose() {
+        String identity = TrustedIdentity.encode(claims("jti-2"), USER_TYPE);
+        long now = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_IDENTITY, identity, now);
+
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_ASSERTION, identity, String.valueOf(now), signature, USER_TYPE));
+    }
+
+    @Test
+    public void verifyAssertion() {
+        MRKUser user = new MRKUser(2L, "user", null, "user", null, null, "1");
+        String assertion = TrustedIdentity.encodeAssertion(user, USER_TYPE);
+        long now = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_ASSERTION, assertion, now);
+
+        assertEquals(user, TrustedIdentity.verify(TrustedIdentity.PURPOSE_ASSERTION, assertion, String.valueOf(now), signature, USER_TYPE));
+        //断言不能当作网关转发的身份使用
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, assertion, String.valueOf(now), signature, USER_TYPE));
+        //同一用户的断言每次不同
+        assertNotEquals(assertion, TrustedIdentity.encodeAssertion(user, USER_TYPE));
+    }
+
+    @Test
+    public void rejectAssertionWithoutNonce() {
+        //网关身份没有nonce，即使用断言用途签名也不能换取令牌
+        String identity = TrustedIdentity.encode(claims("jti-7"), USER_TYPE);
+        long now = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_ASSERTION, identity, now);
+
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_ASSERTION, identity, String.valueOf(now), signature, USER_TYPE));
+    }
+
+    @Test
+    public void rejectTampered() {
+        String identity = TrustedIdentity.encode(claims("jti-3"), USER_TYPE);
+        long now = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_IDENTITY, identity, now);
+        String other = TrustedIdentity.encodeAssertion(new MRKUser(2L, "other", null, "other", null, null, "1"), USER_TYPE);
+
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, other, String.valueOf(now), signature, USER_TYPE));
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, String.valueOf(now + 1), signature, USER_TYPE));
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, String.valueOf(now), signature, "mrk_other"));
+    }
+
+    @Test
+    public void rejectExpired() {
+        String identity = TrustedIdentity.encode(claims("jti-4"), USER_TYPE);
+        long issuedAt = System.currentTimeMillis() - JWTConstant.IDENTITY_MAX_AGE_MILLIS - 1000;
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_IDENTITY, identity, issuedAt);
+
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, String.valueOf(issuedAt), signature, USER_TYPE));
+    }
+
+    @Test
+    public void rejectRevokedToken() {
+        String identity = TrustedIdentity.encode(claims("jti-5"), USER_TYPE);
+        long now = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_IDENTITY, identity, now);
+        assertNotNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, String.valueOf(now), signature, USER_TYPE));
+
+        String message = "J|jti-5|" + (now + 60_000);
+        registry.onMessage(new DefaultMessage(new byte[0], message.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertNull(TrustedIdentity.verify(TrustedIdentity.PURPOSE_IDENTITY, identity, String.valueOf(now), signature, USER_TYPE));
+    }
+
+    @Test
+    public void failClosedUntilLoaded() {
+        JWTProperties properties = new JWTProperties();
+        properties.setValidationMode(ValidationMode.REVOCATION);
+        TokenRevocationRegistry notLoaded = new TokenRevocationRegistry(null, null, properties);
+
+        assertTrue(notLoaded.isRevoked("jti-6", USER_TYPE + ":1", System.currentTimeMillis()));
+        assertFalse(registry.isRevoked("jti-6", USER_TYPE + ":1", System.currentTimeMillis()));
+    }
+
+    @Test
+    public void requireDedicatedKey() {
+        JWTProperties properties = new JWTProperties();
+        properties.setSingKey(SING_KEY);
+        assertThrows(JwtException.class, properties::getIdentityKey);
+        properties.setIdentityKey(SING_KEY);
+        assertThrows(JwtException.class, properties::getIdentityKey);
+    }
+
+    private static Claims claims(String jti) {
+        Claims claims = Jwts.claims();
+        claims.setId(jti);
+        claims.put(JWTConstant.USER_ID, 1L);
+        claims.put(JWTConstant.ISSUED_AT, System.currentTimeMillis());
+        claims.put("name", "管理员");
+        claims.put("account", "admin");
+        claims.put("roleId", "2");
+        return claims;
+    }
+}
@@ -1,27 +1,57 @@
 package com.magicrepokit.langchain;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
 import com.magicrepokit.langchain.base.Document;
+import com.magicrepokit.langchain.store.EmbeddingStoreRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 @Component
 @Slf4j
 public class ElasticOperation {
     @Autowired(required = false)
     private ElasticsearchClient elasticsearchClient;
+    @Autowired
+    private EmbeddingStoreRegistry embeddingStoreRegistry;
+    /**
+     * 索引存在的缓存时间(毫秒)，其他节点删除索引时本节点最多在该时间内误判为存在
+     */
+    private static final long EXIST_CACHE_MILLIS = 60_000;
+
+    /**
+     * 已确认存在的索引(索引名称 -> 过期时间)，本节点删除索引时移除
+     */
+    private final Map<String, Long> existIndexes = new ConcurrentHashMap<>();
 
     /**
      * 判断索引是否存在
      */
     public boolean isIndexExist(String indexName) {
+        Long expireAt = existIndexes.get(indexName);
+        if (expireAt != null && expireAt > System.currentTimeMillis()) {
+            return true;
+        }
         try {
-            return elasticsearchClient.indices().exists(r -> r.index(indexName)).value();
+            boolean exist = elasticsearchClient.indices().exists(r -> r.index(indexName)).value();
+            if (exist) {
+                existIndexes.put(indexName, System.currentTimeMillis() + EXIST_CACHE_MILLIS);
+            } else {
+                existIndexes.remove(indexName);
+            }
+            return exist;
         } catch (IOException e) {
             log.error("判断索引是否存在失败", e);
             return false;
@@ -33,17 +63,19 @@ public class ElasticOperation {
      */
     public Document getDocumentById(String indexName, String id) {
         try {
-            //判断索引是否存在
-            if (!isIndexExist(indexName)) {
-                return null;
-            }
-            //查询document
+            //查询document(索引不存在时返回404，不再单独判断索引是否存在)
             GetResponse<Document> documentGetResponse = elasticsearchClient.get(r -> r.index(indexName).id(id), Document.class);
             boolean found = documentGetResponse.found();
             if (found) {
                 return documentGetResponse.source();
             }
             return null;
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                return null;
+            }
+            log.error("根据id查询document失败", e);
+            return null;
         } catch (IOException e) {
             log.error("根据id查询document失败", e);
             return null;
@@ -60,6 +92,8 @@ public class ElasticOperation {
         } catch (IOException e) {
             log.error("删除索引失败", e);
             return false;
+        } finally {
+            evict(Collections.singletonList(indexName));
         }
     }
 
@@ -73,6 +107,63 @@ public class ElasticOperation {
         } catch (IOException e) {
             log.error("批量删除索引失败", e);
             return false;
+        } finally {
+            evict(indexNames);
+        }
+    }
+
+    /**
+     * 移除索引存在缓存和向量存储
+     */
+    private void evict(List<String> indexNames) {
+        indexNames.forEach(existIndexes::remove);
+        embeddingStoreRegistry.evict(indexNames);
+    }
+
+    /**
+     * 统计索引文档数量
+     *
+     * @return 文档数量，失败返回-1
+     */
+    public long count(String indexName) {
+        try {
+            return elasticsearchClient.count(r -> r.index(indexName)).count();
+        } catch (IOException e) {
+            log.error("统计索引文档数量失败", e);
+            return -1;
+        }
+    }
+
+    /**
+     * 滚动遍历索引全部document
+     *
+     * @param indexName 索引名称
+     * @param batchSize 每批数量
+     * @param consumer  (文档id,document)
+     */
+    public void scroll(String indexName, int batchSize, BiConsumer<String, Document> consumer) throws IOException {
+        SearchResponse<Document> searchResponse = elasticsearchClient.search(r -> r.index(indexName)
+                .scroll(t -> t.time("1m"))
+                .size(batchSize)
+                .query(q -> q.matchAll(m -> m)), Document.class);
+        String scrollId = searchResponse.scrollId();
+        List<Hit<Document>> hits = searchResponse.hits().hits();
+        try {
+            while (!hits.isEmpty()) {
+                for (Hit<Document> hit : hits) {
+                    consumer.accept(hit.id(), hit.source());
+                }
+                String currentScrollId = scrollId;
+                ScrollResponse<Document> scrollResponse = elasticsearchClient.scroll(r -> r.scrollId(currentScrollId)
+                        .scroll(t -> t.time("1m")), Document.class);
+                scrollId = scrollResponse.scrollId();
+                hits = scrollResponse.hits().hits();
+            }
+        } finally {
+            if (scrollId != null) {
+                String currentScrollId = scrollId;
+                elasticsearchClient.clearScroll(r -> r.scrollId(currentScrollId));
+            }
         }
     }
 }
@@ -32,4 +32,49 @@ public class ConfigProperties {
      * elasticSearch的密码
      */
     private String elasticPassword;
+
+    /**
+     * elasticSearch连接池最大连接数
+     */
+    private Integer elasticMaxConnTotal = 50;
+
+    /**
+     * elasticSearch连接池每个节点最大连接数
+     */
+    private Integer elasticMaxConnPerRoute = 20;
+
+    /**
+     * elasticSearch空闲连接保持时间(秒)
+     */
+    private Integer elasticKeepAliveSeconds = 300;
+
+    /**
+     * elasticSearch连接超时(毫秒)
+     */
+    private Integer elasticConnectTimeout = 5000;
+
+    /**
+     * elasticSearch读取超时(毫秒)
+     */
+    private Integer elasticSocketTimeout = 30000;
+
+    /**
+     * 是否启用热点知识库本地向量索引
+     */
+    private Boolean localIndexEnabled = false;
+
+    /**
+     * 本地向量索引文件目录
+     */
+    private String localIndexPath = System.getProperty("java.io.tmpdir") + "/mrk-vector-index";
+
+    /**
+     * 本地向量索引检索时探测的聚类数
+     */
+    private Integer localIndexProbe = 8;
+
+    /**
+     * 本地向量索引与elasticsearch对账间隔(秒)
+     */
+    private Integer localIndexSyncSeconds = 60;
 }
@@ -6,26 +6,37 @@ import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
-import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.ManagedNHttpClientConnection;
+import org.apache.http.nio.conn.NHttpConnectionFactory;
+import org.apache.http.nio.reactor.IOReactorException;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 import static dev.langchain4j.internal.Utils.isNullOrBlank;
 
 @Configuration
 public class LangChainConfiguration {
     /**
-     * 加载elasticSearch客户端
+     * 加载elasticSearch底层连接池(全局共享，检索、入库、索引管理共用)
      */
-    @Bean
-    public ElasticsearchClient elasticDataOperation(ConfigProperties configProperties) {
+    @Bean(destroyMethod = "close")
+    public RestClient elasticRestClient(ConfigProperties configProperties) throws IOReactorException {
         if(!configProperties.getEnabled()){
             return null;
         }
@@ -35,17 +46,64 @@ public class LangChainConfiguration {
             return null;
         }
         String url = StrUtil.format("{}:{}", elasticUrl, elasticPort);
-        RestClientBuilder restClientBuilder = RestClient
-                .builder(HttpHost.create(url));
-
+        PoolingNHttpClientConnectionManager connectionManager = createConnectionManager(configProperties);
+        CredentialsProvider provider = null;
         if (!isNullOrBlank(configProperties.getElasticUsername())) {
-            CredentialsProvider provider = new BasicCredentialsProvider();
+            provider = new BasicCredentialsProvider();
             provider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(configProperties.getElasticUsername(), configProperties.getElasticPassword()));
-            restClientBuilder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(provider));
         }
+        CredentialsProvider credentialsProvider = provider;
+        long keepAliveMillis = TimeUnit.SECONDS.toMillis(configProperties.getElasticKeepAliveSeconds());
+        RestClientBuilder restClientBuilder = RestClient
+                .builder(HttpHost.create(url))
+                .setRequestConfigCallback(requestConfigBuilder -> requestConfigBuilder
+                        .setConnectTimeout(configProperties.getElasticConnectTimeout())
+                        .setSocketTimeout(configProperties.getElasticSocketTimeout()))
+                .setHttpClientConfigCallback(httpClientBuilder -> {
+                    httpClientBuilder.setConnectionManager(connectionManager)
+                            //elasticsearch不返回Keep-Alive头，限制空闲连接保持时间，避免复用被中间设备断开的连接
+                            .setKeepAliveStrategy((response, context) -> keepAliveMillis);
+                    if (credentialsProvider != null) {
+                        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+                    }
+                    return httpClientBuilder;
+                });
+        return restClientBuilder.build();
+    }
 
-        ElasticsearchTransport transport = new RestClientTransport(restClientBuilder.build(), new JacksonJsonpMapper());
+    /**
+     * 加载elasticSearch客户端
+     */
+    @Bean
+    public ElasticsearchClient elasticDataOperation(ObjectProvider<RestClient> elasticRestClient) {
+        RestClient restClient = elasticRestClient.getIfAvailable();
+        if (restClient == null) {
+            return null;
+        }
+        ElasticsearchTransport transport = new RestClientTransport(restClient, new JacksonJsonpMapper());
 
         return new ElasticsearchClient(transport);
     }
+
+    /**
+     * 连接池，新建连接数和连接池状态计入指标，用于观察连接抖动
+     */
+    private PoolingNHttpClientConnectionManager createConnectionManager(ConfigProperties configProperties) throws IOReactorException {
+        Counter created = Metrics.counter("mrk.elasticsearch.connections.created");
+        NHttpConnectionFactory<ManagedNHttpClientConnection> connectionFactory = (session, config) -> {
+            created.increment();
+            return ManagedNHttpClientConnectionFactory.INSTANCE.create(session, config);
+        };
+        DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                .setSoKeepAlive(true)
+                .setConnectTimeout(configProperties.getElasticConnectTimeout())
+                .build());
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(ioReactor, connectionFactory);
+        connectionManager.setMaxTotal(configProperties.getElasticMaxConnTotal());
+        connectionManager.setDefaultMaxPerRoute(configProperties.getElasticMaxConnPerRoute());
+        Metrics.gauge("mrk.elasticsearch.connections.leased", connectionManager, m -> m.getTotalStats().getLeased());
+        Metrics.gauge("mrk.elasticsearch.connections.available", connectionManager, m -> m.getTotalStats().getAvailable());
+        Metrics.gauge("mrk.elasticsearch.connections.pending", connectionManager, m -> m.getTotalStats().getPending());
+        return connectionManager;
+    }
 }
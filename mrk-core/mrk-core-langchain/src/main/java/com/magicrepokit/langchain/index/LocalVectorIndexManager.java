@@ -0,0 +1,325 @@
+package com.magicrepokit.langchain.index;
+
+import com.magicrepokit.langchain.ElasticOperation;
+import com.magicrepokit.langchain.config.ConfigProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 热点知识库本地向量索引管理
+ * <p>
+ * elasticsearch始终是数据源，本地索引只是热点知识库的只读副本:
+ * 1.定时从热点来源拉取热点索引，新增的从elasticsearch全量构建，取消的卸载
+ * 2.本节点入库完成后增量追加
+ * 3.定时与elasticsearch对账，数量不一致(其他节点入库)或聚类失真时后台重建
+ * 未加载或检索失败时返回null，由调用方回退到elasticsearch
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalVectorIndexManager implements DisposableBean {
+    private static final int SCROLL_BATCH_SIZE = 500;
+
+    private final ConfigProperties configProperties;
+    private final ElasticOperation elasticOperation;
+    /**
+     * 已加载的本地索引
+     */
+    private final ConcurrentMap<String, MappedVectorIndex> indexes = new ConcurrentHashMap<>();
+    /**
+     * 标记为热点的索引
+     */
+    private final Set<String> hotIndexes = ConcurrentHashMap.newKeySet();
+    /**
+     * 构建期间收到的增量数据，构建完成后补齐
+     */
+    private final ConcurrentMap<String, List<PendingRow>> pendingRows = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> indexLocks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService syncExecutor;
+    private volatile Supplier<Collection<String>> hotIndexSource;
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mrk-vector-index-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(10, configProperties.getLocalIndexSyncSeconds());
+        syncExecutor.scheduleWithFixedDelay(this::sync, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 是否启用本地索引
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(configProperties.getEnabled()) && Boolean.TRUE.equals(configProperties.getLocalIndexEnabled());
+    }
+
+    /**
+     * 注册热点索引来源(例如数据库中标记为热点的知识库)，并立即同步一次
+     *
+     * @param source 热点索引名称
+     */
+    public void registerHotIndexSource(Supplier<Collection<String>> source) {
+        this.hotIndexSource = source;
+        requestSync();
+    }
+
+    /**
+     * 立即在后台同步一次(热点标记变更后调用)
+     */
+    public void requestSync() {
+        if (syncExecutor != null) {
+            syncExecutor.execute(this::sync);
+        }
+    }
+
+    /**
+     * 本地索引是否已加载
+     */
+    public boolean isLoaded(String indexName) {
+        return indexes.containsKey(indexName);
+    }
+
+    /**
+     * 从elasticsearch全量构建本地索引，已加载时重建后替换
+     *
+     * @param indexName 索引名称
+     */
+    public void load(String indexName) {
+        if (!isEnabled()) {
+            return;
+        }
+        hotIndexes.add(indexName);
+        if (pendingRows.putIfAbsent(indexName, Collections.synchronizedList(new ArrayList<>())) != null) {
+            //正在构建
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Set<String> loadedIds = new HashSet<>();
+        MappedVectorIndex[] building = new MappedVectorIndex[1];
+        try {
+            elasticOperation.scroll(indexName, SCROLL_BATCH_SIZE, (id, document) -> {
+                if (document == null || document.getVector() == null) {
+                    return;
+                }
+                try {
+                    if (building[0] == null) {
+                        building[0] = new MappedVectorIndex(indexName, document.getVector().length, newDirectory(indexName));
+                    }
+                    building[0].add(id, document.getVector(), document.getText(), document.getMetadata());
+                    loadedIds.add(id);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (Exception e) {
+            log.error("[本地向量索引]{}构建失败,继续使用elasticsearch:{}", indexName, e.getMessage());
+            pendingRows.remove(indexName);
+            if (building[0] != null) {
+                building[0].close();
+            }
+            return;
+        }
+        if (building[0] != null) {
+            building[0].train();
+        }
+        synchronized (lockFor(indexName)) {
+            List<PendingRow> pending = pendingRows.remove(indexName);
+            if (!hotIndexes.contains(indexName)) {
+                //构建期间已取消热点
+                if (building[0] != null) {
+                    building[0].close();
+                }
+                return;
+            }
+            try {
+                for (PendingRow row : pending) {
+                    if (loadedIds.contains(row.id)) {
+                        continue;
+                    }
+                    if (building[0] == null) {
+                        building[0] = new MappedVectorIndex(indexName, row.vector.length, newDirectory(indexName));
+                    }
+                    building[0].add(row.id, row.vector, row.text, row.metadata);
+                }
+            } catch (IOException e) {
+                log.error("[本地向量索引]{}补齐增量失败,继续使用elasticsearch:{}", indexName, e.getMessage());
+                building[0].close();
+                return;
+            }
+            if (building[0] == null) {
+                log.info("[本地向量索引]{}暂无数据,等待入库后加载", indexName);
+                return;
+            }
+            MappedVectorIndex old = indexes.put(indexName, building[0]);
+            if (old != null) {
+                old.close();
+            }
+        }
+        log.info("[本地向量索引]{}加载完成,数据量:{},耗时{}ms", indexName, building[0].size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 入库完成后增量追加
+     *
+     * @param indexName  索引名称
+     * @param ids        文档id
+     * @param embeddings 向量
+     * @param segments   文本
+     */
+    public void append(String indexName, List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (!isEnabled() || !hotIndexes.contains(indexName)) {
+            return;
+        }
+        synchronized (lockFor(indexName)) {
+            try {
+                List<PendingRow> pending = pendingRows.get(indexName);
+                MappedVectorIndex index = indexes.get(indexName);
+                for (int i = 0; i < ids.size(); i++) {
+                    PendingRow row = new PendingRow(ids.get(i), embeddings.get(i).vector(), segments.get(i).text(), segments.get(i).metadata().asMap());
+                    if (pending != null) {
+                        pending.add(row);
+                        continue;
+                    }
+                    if (index == null) {
+                        index = new MappedVectorIndex(indexName, row.vector.length, newDirectory(indexName));
+                        indexes.put(indexName, index);
+                    }
+                    index.add(row.id, row.vector, row.text, row.metadata);
+                }
+            } catch (Exception e) {
+                //追加失败时卸载，等待对账重建
+                log.error("[本地向量索引]{}增量追加失败,回退elasticsearch:{}", indexName, e.getMessage());
+                MappedVectorIndex broken = indexes.remove(indexName);
+                if (broken != null) {
+                    broken.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 卸载本地索引(取消热点或删除知识库)
+     *
+     * @param indexName 索引名称
+     */
+    public void drop(String indexName) {
+        hotIndexes.remove(indexName);
+        synchronized (lockFor(indexName)) {
+            MappedVectorIndex index = indexes.remove(indexName);
+            if (index != null) {
+                index.close();
+                log.info("[本地向量索引]{}已卸载", indexName);
+            }
+        }
+    }
+
+    /**
+     * 本地向量检索
+     *
+     * @param indexName 索引名称
+     * @param embedding 问题向量
+     * @param maxResult 最大结果
+     * @param minScore  最小分数
+     * @return 未加载或检索失败返回null
+     */
+    public List<EmbeddingMatch<TextSegment>> findRelevant(String indexName, Embedding embedding, int maxResult, double minScore) {
+        MappedVectorIndex index = indexes.get(indexName);
+        if (index == null) {
+            return null;
+        }
+        try {
+            return index.search(embedding.vector(), maxResult, minScore, configProperties.getLocalIndexProbe());
+        } catch (Exception e) {
+            log.error("[本地向量索引]{}检索失败,回退elasticsearch:{}", indexName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 与elasticsearch对账
+     */
+    private void sync() {
+        Supplier<Collection<String>> source = hotIndexSource;
+        if (source != null) {
+            try {
+                Set<String> latest = new HashSet<>(source.get());
+                for (String indexName : hotIndexes) {
+                    if (!latest.contains(indexName)) {
+                        drop(indexName);
+                    }
+                }
+                for (String indexName : latest) {
+                    if (!hotIndexes.contains(indexName)) {
+                        load(indexName);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("[本地向量索引]同步热点知识库失败:{}", e.getMessage());
+            }
+        }
+        for (String indexName : hotIndexes) {
+            try {
+                MappedVectorIndex index = indexes.get(indexName);
+                if (pendingRows.containsKey(indexName)) {
+                    continue;
+                }
+                long count = elasticOperation.count(indexName);
+                if (count < 0) {
+                    continue;
+                }
+                int size = index == null ? 0 : index.size();
+                if (count != size || (index != null && index.needsRetrain())) {
+                    log.info("[本地向量索引]{}与elasticsearch不一致(本地:{},远端:{}),重建", indexName, size, count);
+                    load(indexName);
+                }
+            } catch (Exception e) {
+                log.error("[本地向量索引]{}对账失败:{}", indexName, e.getMessage());
+            }
+        }
+    }
+
+    private Object lockFor(String indexName) {
+        return indexLocks.computeIfAbsent(indexName, k -> new Object());
+    }
+
+    private Path newDirectory(String indexName) {
+        return Paths.get(configProperties.getLocalIndexPath(), indexName, String.valueOf(System.nanoTime()));
+    }
+
+    @Override
+    public void destroy() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+        indexes.values().forEach(MappedVectorIndex::close);
+        indexes.clear();
+    }
+
+    @AllArgsConstructor
+    private static class PendingRow {
+        private final String id;
+        private final float[] vector;
+        private final String text;
+        private final Map<String, String> metadata;
+    }
+}
@@ -0,0 +1,507 @@
+package com.magicrepokit.langchain.index;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于内存映射文件的IVF向量索引
+ * <p>
+ * 向量和文本按写入顺序追加到映射文件中(堆外)，堆内只保留聚类中心、倒排列表、向量模长和文本偏移量。
+ * 数据量较小时不做聚类，直接全量扫描；相似度与elasticsearch保持一致:(cosineSimilarity + 1) / 2
+ */
+@Slf4j
+public class MappedVectorIndex implements Closeable {
+    /**
+     * 向量文件初始容量(行)
+     */
+    private static final int INITIAL_ROWS = 1024;
+    /**
+     * 文本文件初始容量(字节)
+     */
+    private static final int INITIAL_SEGMENT_BYTES = 4 << 20;
+    /**
+     * 小于该数量时不做聚类，全量扫描即可
+     */
+    private static final int MIN_ROWS_FOR_IVF = 2048;
+    /**
+     * 最大聚类数
+     */
+    private static final int MAX_LISTS = 1024;
+    /**
+     * 每个聚类参与训练的样本数
+     */
+    private static final int SAMPLES_PER_LIST = 64;
+    /**
+     * k-means迭代次数
+     */
+    private static final int TRAIN_ITERATIONS = 10;
+
+    private final String indexName;
+    private final int dimension;
+    private final Path directory;
+    private final FileChannel vectorChannel;
+    private final FileChannel segmentChannel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer vectorBuffer;
+    private MappedByteBuffer segmentBuffer;
+    private int size;
+    private int segmentPosition;
+    /**
+     * 已关闭，检索抛出异常由调用方回退elasticsearch，不能返回空结果
+     */
+    private boolean closed;
+    private float[] norms = new float[INITIAL_ROWS];
+    private int[] segmentOffsets = new int[INITIAL_ROWS];
+
+    /**
+     * 聚类中心(已归一化)，为空时表示全量扫描
+     */
+    private float[][] centroids;
+    private int[][] lists;
+    private int[] listSizes;
+    private int trainedSize;
+
+    public MappedVectorIndex(String indexName, int dimension, Path directory) throws IOException {
+        this.indexName = indexName;
+        this.dimension = dimension;
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.vectorChannel = FileChannel.open(directory.resolve("vectors.dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentChannel = FileChannel.open(directory.resolve("segments.dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.vectorBuffer = mapVectors((long) INITIAL_ROWS * dimension * Float.BYTES);
+        this.segmentBuffer = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SEGMENT_BYTES);
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追加后数据量明显超过训练时的数据量，聚类已经失真，需要重建
+     */
+    public boolean needsRetrain() {
+        lock.readLock().lock();
+        try {
+            if (centroids == null) {
+                return size >= MIN_ROWS_FOR_IVF;
+            }
+            return size > trainedSize * 4;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追加向量
+     *
+     * @param id       文档id
+     * @param vector   向量
+     * @param text     文本
+     * @param metadata 元数据
+     */
+    public void add(String id, float[] vector, String text, Map<String, String> metadata) throws IOException {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配:" + indexName);
+        }
+        byte[] record = encodeSegment(id, text, metadata);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            ensureVectorCapacity(size + 1);
+            ensureSegmentCapacity(segmentPosition + record.length);
+            int base = size * dimension * Float.BYTES;
+            double norm = 0;
+            for (int i = 0; i < dimension; i++) {
+                vectorBuffer.putFloat(base + i * Float.BYTES, vector[i]);
+                norm += vector[i] * vector[i];
+            }
+            ByteBuffer segment = segmentBuffer.duplicate();
+            segment.position(segmentPosition);
+            segment.put(record);
+            norms[size] = (float) Math.sqrt(norm);
+            segmentOffsets[size] = segmentPosition;
+            segmentPosition += record.length;
+            if (centroids != null) {
+                appendToList(nearestCentroid(vector, norms[size]), size);
+            }
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 训练聚类中心并重新分配倒排列表，数据量较小时保持全量扫描
+     */
+    public void train() {
+        lock.writeLock().lock();
+        try {
+            trainedSize = size;
+            if (size < MIN_ROWS_FOR_IVF) {
+                centroids = null;
+                lists = null;
+                listSizes = null;
+                return;
+            }
+            int listCount = Math.min(MAX_LISTS, (int) Math.sqrt(size));
+            Random random = new Random(indexName.hashCode());
+            int[] sample = sampleRows(Math.min(size, listCount * SAMPLES_PER_LIST), random);
+            float[][] trained = new float[listCount][];
+            for (int i = 0; i < listCount; i++) {
+                trained[i] = normalizedRow(sample[i % sample.length]);
+            }
+            int[] assignment = new int[sample.length];
+            for (int iteration = 0; iteration < TRAIN_ITERATIONS; iteration++) {
+                for (int i = 0; i < sample.length; i++) {
+                    assignment[i] = nearest(trained, normalizedRow(sample[i]));
+                }
+                float[][] sums = new float[listCount][dimension];
+                int[] counts = new int[listCount];
+                for (int i = 0; i < sample.length; i++) {
+                    float[] row = normalizedRow(sample[i]);
+                    float[] sum = sums[assignment[i]];
+                    for (int d = 0; d < dimension; d++) {
+                        sum[d] += row[d];
+                    }
+                    counts[assignment[i]]++;
+                }
+                for (int c = 0; c < listCount; c++) {
+                    //空聚类重新随机选点
+                    trained[c] = counts[c] == 0 ? normalizedRow(sample[random.nextInt(sample.length)]) : normalize(sums[c]);
+                }
+            }
+            centroids = trained;
+            lists = new int[listCount][];
+            listSizes = new int[listCount];
+            for (int c = 0; c < listCount; c++) {
+                lists[c] = new int[Math.max(16, size / listCount)];
+            }
+            for (int row = 0; row < size; row++) {
+                appendToList(nearest(centroids, normalizedRow(row)), row);
+            }
+            log.info("[本地向量索引]{}训练完成,数据量:{},聚类数:{}", indexName, size, listCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 向量检索
+     *
+     * @param query     查询向量
+     * @param maxResult 最大结果
+     * @param minScore  最小分数
+     * @param probe     探测的聚类数
+     * @return List<EmbeddingMatch < TextSegment>>
+     */
+    public List<EmbeddingMatch<TextSegment>> search(float[] query, int maxResult, double minScore, int probe) {
+        float queryNorm = norm(query);
+        PriorityQueue<ScoredRow> top = new PriorityQueue<>(maxResult + 1, Comparator.comparingDouble(ScoredRow::getScore));
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            if (centroids == null) {
+                for (int row = 0; row < size; row++) {
+                    offer(top, row, score(query, queryNorm, row), maxResult, minScore);
+                }
+            } else {
+                for (int list : nearestCentroids(query, queryNorm, Math.max(1, probe))) {
+                    int[] rows = lists[list];
+                    for (int i = 0; i < listSizes[list]; i++) {
+                        offer(top, rows[i], score(query, queryNorm, rows[i]), maxResult, minScore);
+                    }
+                }
+            }
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                ScoredRow scoredRow = top.poll();
+                matches.add(toMatch(scoredRow.getRow(), scoredRow.getScore()));
+            }
+            Collections.reverse(matches);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关闭并删除映射文件
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            vectorChannel.close();
+            segmentChannel.close();
+            Files.deleteIfExists(directory.resolve("vectors.dat"));
+            Files.deleteIfExists(directory.resolve("segments.dat"));
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            log.warn("[本地向量索引]{}关闭失败:{}", indexName, e.getMessage());
+        } finally {
+            closed = true;
+            size = 0;
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("本地向量索引已关闭:" + indexName);
+        }
+    }
+
+    private void offer(PriorityQueue<ScoredRow> top, int row, double score, int maxResult, double minScore) {
+        if (score < minScore) {
+            return;
+        }
+        if (top.size() < maxResult) {
+            top.add(new ScoredRow(row, score));
+        } else if (top.peek().getScore() < score) {
+            top.poll();
+            top.add(new ScoredRow(row, score));
+        }
+    }
+
+    private double score(float[] query, float queryNorm, int row) {
+        float rowNorm = norms[row];
+        if (queryNorm == 0 || rowNorm == 0) {
+            return 0.5;
+        }
+        int base = row * dimension * Float.BYTES;
+        double dot = 0;
+        for (int d = 0; d < dimension; d++) {
+            dot += query[d] * vectorBuffer.getFloat(base + d * Float.BYTES);
+        }
+        return (dot / (queryNorm * rowNorm) + 1.0) / 2;
+    }
+
+    private int[] nearestCentroids(float[] query, float queryNorm, int probe) {
+        int count = Math.min(probe, centroids.length);
+        double[] scores = new double[centroids.length];
+        Integer[] order = new Integer[centroids.length];
+        for (int c = 0; c < centroids.length; c++) {
+            scores[c] = dot(query, centroids[c]) / (queryNorm == 0 ? 1 : queryNorm);
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private int nearestCentroid(float[] vector, float vectorNorm) {
+        float[] normalized = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            normalized[d] = vectorNorm == 0 ? 0 : vector[d] / vectorNorm;
+        }
+        return nearest(centroids, normalized);
+    }
+
+    private int nearest(float[][] candidates, float[] normalized) {
+        int best = 0;
+        double bestScore = -Double.MAX_VALUE;
+        for (int c = 0; c < candidates.length; c++) {
+            double score = dot(normalized, candidates[c]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private void appendToList(int list, int row) {
+        int[] rows = lists[list];
+        if (listSizes[list] == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+            lists[list] = rows;
+        }
+        rows[listSizes[list]++] = row;
+    }
+
+    private int[] sampleRows(int count, Random random) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int tmp = rows[i];
+            rows[i] = rows[j];
+            rows[j] = tmp;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private float[] normalizedRow(int row) {
+        float[] vector = readVector(row);
+        float rowNorm = norms[row];
+        if (rowNorm != 0) {
+            for (int d = 0; d < dimension; d++) {
+                vector[d] /= rowNorm;
+            }
+        }
+        return vector;
+    }
+
+    private float[] readVector(int row) {
+        float[] vector = new float[dimension];
+        int base = row * dimension * Float.BYTES;
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = vectorBuffer.getFloat(base + d * Float.BYTES);
+        }
+        return vector;
+    }
+
+    private EmbeddingMatch<TextSegment> toMatch(int row, double score) {
+        ByteBuffer segment = segmentBuffer.duplicate();
+        segment.position(segmentOffsets[row]);
+        String id = readString(segment);
+        String text = readString(segment);
+        int metadataSize = segment.getInt();
+        Map<String, String> metadata = new HashMap<>(metadataSize * 2);
+        for (int i = 0; i < metadataSize; i++) {
+            metadata.put(readString(segment), readString(segment));
+        }
+        return new EmbeddingMatch<>(score, id, Embedding.from(readVector(row)), TextSegment.from(text, new Metadata(metadata)));
+    }
+
+    private void ensureVectorCapacity(int rows) throws IOException {
+        int capacity = vectorBuffer.capacity() / (dimension * Float.BYTES);
+        if (rows > capacity) {
+            long bytes = (long) capacity * 2 * dimension * Float.BYTES;
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("本地向量索引超出单文件映射上限:" + indexName);
+            }
+            vectorBuffer = mapVectors(bytes);
+        }
+        if (rows > norms.length) {
+            norms = Arrays.copyOf(norms, norms.length * 2);
+            segmentOffsets = Arrays.copyOf(segmentOffsets, segmentOffsets.length * 2);
+        }
+    }
+
+    private void ensureSegmentCapacity(int bytes) throws IOException {
+        long capacity = segmentBuffer.capacity();
+        if (bytes <= capacity) {
+            return;
+        }
+        while (capacity < bytes) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("本地向量索引超出单文件映射上限:" + indexName);
+        }
+        segmentBuffer = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private MappedByteBuffer mapVectors(long bytes) throws IOException {
+        MappedByteBuffer buffer = vectorChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    private static byte[] encodeSegment(String id, String text, Map<String, String> metadata) {
+        List<byte[]> parts = new ArrayList<>();
+        parts.add(bytes(id));
+        parts.add(bytes(text));
+        Map<String, String> safeMetadata = metadata == null ? Collections.emptyMap() : metadata;
+        for (Map.Entry<String, String> entry : safeMetadata.entrySet()) {
+            parts.add(bytes(entry.getKey()));
+            parts.add(bytes(entry.getValue()));
+        }
+        int length = Integer.BYTES;
+        for (byte[] part : parts) {
+            length += Integer.BYTES + part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        putBytes(buffer, parts.get(0));
+        putBytes(buffer, parts.get(1));
+        buffer.putInt(safeMetadata.size());
+        for (int i = 2; i < parts.size(); i++) {
+            putBytes(buffer, parts.get(i));
+        }
+        return buffer.array();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static float norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private static float[] normalize(float[] vector) {
+        float vectorNorm = norm(vector);
+        if (vectorNorm != 0) {
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] /= vectorNorm;
+            }
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            sum += a[d] * b[d];
+        }
+        return sum;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ScoredRow {
+        private final int row;
+        private final double score;
+    }
+}
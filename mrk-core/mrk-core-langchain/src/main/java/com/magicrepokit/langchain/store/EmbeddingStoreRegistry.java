@@ -0,0 +1,54 @@
+package com.magicrepokit.langchain.store;
+
+import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 向量存储注册表
+ * <p>
+ * 每个索引只创建一次ElasticsearchEmbeddingStore，全部共用LangChainConfiguration中的连接池；
+ * 创建时会检查并创建索引，因此删除索引后必须移除，下次使用时重新建索引和mapping
+ */
+@Slf4j
+@Component
+public class EmbeddingStoreRegistry {
+    @Autowired(required = false)
+    private RestClient restClient;
+
+    private final ConcurrentMap<String, ElasticsearchEmbeddingStore> stores = new ConcurrentHashMap<>();
+
+    /**
+     * 获取索引对应的向量存储
+     *
+     * @param indexName 索引名称
+     * @param dimension 向量维度
+     * @return 未启用elasticsearch返回null
+     */
+    public ElasticsearchEmbeddingStore getStore(String indexName, int dimension) {
+        if (restClient == null) {
+            log.error("未开启elasticsearch");
+            return null;
+        }
+        return stores.computeIfAbsent(indexName, name -> {
+            Metrics.counter("mrk.elasticsearch.stores.created").increment();
+            return new ElasticsearchEmbeddingStore(restClient, name, dimension);
+        });
+    }
+
+    /**
+     * 移除索引对应的向量存储
+     *
+     * @param indexNames 索引名称
+     */
+    public void evict(Collection<String> indexNames) {
+        indexNames.forEach(stores::remove);
+    }
+}
@@ -0,0 +1,103 @@
+package com.magicrepokit.redis.cache;
+
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import com.magicrepokit.redis.constant.MRKRedisConstant;
+import com.magicrepokit.redis.properties.MRKCacheProperties;
+import com.magicrepokit.redis.serializer.SerializerType;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 两级缓存管理
+ * <p>
+ * 按名称创建{@link MRKTwoLevelCache}，redis过期时间可按缓存名称配置；
+ * 缓存变更通过频道通知其他节点，消息格式为：节点id|E|缓存名称|缓存key 或 节点id|C|缓存名称，忽略本节点发出的消息
+ */
+@Slf4j
+public class MRKCacheManager implements CacheManager, MessageListener {
+    private static final String SEPARATOR = "|";
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, MRKTwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final MRKRedisUtils mrkRedisUtils;
+    private final MRKCacheProperties mrkCacheProperties;
+    private final RedisSerializer<Object> valueSerializer;
+    private final RedisSerializer<Object> messageSerializer = RedisTemplateConfig.valueSerializer(SerializerType.JSON, 0);
+
+    /**
+     * @param valueSerializer redis缓存值的序列化方式
+     */
+    public MRKCacheManager(MRKRedisUtils mrkRedisUtils, MRKCacheProperties mrkCacheProperties, RedisSerializer<Object> valueSerializer) {
+        this.mrkRedisUtils = mrkRedisUtils;
+        this.mrkCacheProperties = mrkCacheProperties;
+        this.valueSerializer = valueSerializer;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, key -> new MRKTwoLevelCache(key,
+                mrkCacheProperties.getTtl().getOrDefault(key, mrkCacheProperties.getDefaultTtl()),
+                mrkCacheProperties.getLocalTtl(), mrkCacheProperties.getLocalMaximumSize(),
+                mrkCacheProperties.isAllowNullValues(), mrkRedisUtils, valueSerializer, this));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 通知其他节点清除本地缓存
+     *
+     * @param name 缓存名称
+     * @param cacheKey 缓存key
+     */
+    void publishEvict(String name, String cacheKey) {
+        mrkRedisUtils.publish(MRKRedisConstant.REDIS_CHANNEL_CACHE, nodeId + SEPARATOR + EVICT + SEPARATOR + name + SEPARATOR + cacheKey);
+    }
+
+    /**
+     * 通知其他节点清空本地缓存
+     *
+     * @param name 缓存名称
+     */
+    void publishClear(String name) {
+        mrkRedisUtils.publish(MRKRedisConstant.REDIS_CHANNEL_CACHE, nodeId + SEPARATOR + CLEAR + SEPARATOR + name);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = messageSerializer.deserialize(message.getBody());
+        if (body == null) {
+            return;
+        }
+        String[] parts = String.valueOf(body).split("\\|", 4);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        MRKTwoLevelCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[1])) {
+            cache.clearLocal();
+        } else if (EVICT.equals(parts[1]) && parts.length == 4) {
+            cache.evictLocal(parts[3]);
+        } else {
+            log.warn("[缓存]无法识别的变更通知:{}", body);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.magicrepokit.redis.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.magicrepokit.redis.constant.MRKRedisConstant;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 两级缓存
+ * <p>
+ * 先查本地caffeine缓存，未命中再查redis，redis也未命中时加载并写入两级缓存；
+ * 写入和删除时更新redis并通知其他节点清除本地缓存，本地缓存过期时间较短，通知丢失时最终也会与redis一致
+ */
+public class MRKTwoLevelCache extends AbstractValueAdaptingCache {
+    private final String name;
+    private final Duration ttl;
+    private final MRKRedisUtils mrkRedisUtils;
+    private final RedisSerializer<Object> valueSerializer;
+    private final MRKCacheManager cacheManager;
+    private final Cache<String, Object> localCache;
+    private final Counter redisHit;
+    private final Counter redisMiss;
+    /**
+     * 失效次数，查询redis期间发生失效时不回填本地缓存，避免写入过期数据
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public MRKTwoLevelCache(String name, Duration ttl, Duration localTtl, long localMaximumSize, boolean allowNullValues,
+                            MRKRedisUtils mrkRedisUtils, RedisSerializer<Object> valueSerializer, MRKCacheManager cacheManager) {
+        super(allowNullValues);
+        this.name = name;
+        this.ttl = ttl;
+        this.mrkRedisUtils = mrkRedisUtils;
+        this.valueSerializer = valueSerializer;
+        this.cacheManager = cacheManager;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl.compareTo(ttl) < 0 ? localTtl : ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, localCache, name, "tier", "local");
+        this.redisHit = Counter.builder("cache.gets").tag("cache", name).tag("tier", "redis").tag("result", "hit")
+                .register(Metrics.globalRegistry);
+        this.redisMiss = Counter.builder("cache.gets").tag("cache", name).tag("tier", "redis").tag("result", "miss")
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String cacheKey = cacheKey(key);
+        Object value = localCache.getIfPresent(cacheKey);
+        if (value != null) {
+            return value;
+        }
+        long version = invalidations.get();
+        value = getFromRedis(cacheKey);
+        if (value != null && version == invalidations.get()) {
+            localCache.put(cacheKey, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String cacheKey = cacheKey(key);
+        long version = invalidations.get();
+        //本地缓存按key加锁加载，同一节点并发未命中时只有一个线程查询redis和加载
+        Object value = localCache.get(cacheKey, k -> {
+            Object cached = getFromRedis(k);
+            if (cached != null) {
+                return cached;
+            }
+            Object storeValue = toStoreValue(load(key, valueLoader));
+            mrkRedisUtils.setExpire(k, storeValue, ttl.toMillis(), TimeUnit.MILLISECONDS, valueSerializer);
+            return storeValue;
+        });
+        if (version != invalidations.get()) {
+            localCache.invalidate(cacheKey);
+        }
+        return (T) fromStoreValue(value);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String cacheKey = cacheKey(key);
+        Object storeValue = toStoreValue(value);
+        mrkRedisUtils.setExpire(cacheKey, storeValue, ttl.toMillis(), TimeUnit.MILLISECONDS, valueSerializer);
+        localCache.put(cacheKey, storeValue);
+        cacheManager.publishEvict(name, cacheKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        String cacheKey = cacheKey(key);
+        Object storeValue = toStoreValue(value);
+        if (mrkRedisUtils.setIfAbsent(cacheKey, storeValue, ttl.toMillis(), TimeUnit.MILLISECONDS, valueSerializer)) {
+            localCache.put(cacheKey, storeValue);
+            cacheManager.publishEvict(name, cacheKey);
+            return null;
+        }
+        return toValueWrapper(getFromRedis(cacheKey));
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = cacheKey(key);
+        mrkRedisUtils.del(cacheKey);
+        evictLocal(cacheKey);
+        cacheManager.publishEvict(name, cacheKey);
+    }
+
+    @Override
+    public void clear() {
+        Set<String> keys = mrkRedisUtils.scan(name + MRKRedisConstant.CACHE_KEY_SEPARATOR + "*");
+        mrkRedisUtils.multiDelete(keys);
+        clearLocal();
+        cacheManager.publishClear(name);
+    }
+
+    /**
+     * 清除本地缓存(其他节点变更通知)
+     *
+     * @param cacheKey 缓存key
+     */
+    void evictLocal(String cacheKey) {
+        invalidations.incrementAndGet();
+        localCache.invalidate(cacheKey);
+    }
+
+    /**
+     * 清空本地缓存(其他节点变更通知)
+     */
+    void clearLocal() {
+        invalidations.incrementAndGet();
+        localCache.invalidateAll();
+    }
+
+    private Object getFromRedis(String cacheKey) {
+        Object value = mrkRedisUtils.get(cacheKey, valueSerializer);
+        if (value != null) {
+            redisHit.increment();
+        } else {
+            redisMiss.increment();
+        }
+        return value;
+    }
+
+    private String cacheKey(Object key) {
+        return name + MRKRedisConstant.CACHE_KEY_SEPARATOR + key;
+    }
+
+    private static <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+}
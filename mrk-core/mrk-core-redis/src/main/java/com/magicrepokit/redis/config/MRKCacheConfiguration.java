@@ -0,0 +1,34 @@
+package com.magicrepokit.redis.config;
+
+import com.magicrepokit.redis.cache.MRKCacheManager;
+import com.magicrepokit.redis.constant.MRKRedisConstant;
+import com.magicrepokit.redis.properties.MRKCacheProperties;
+import com.magicrepokit.redis.properties.MRKRedisProperties;
+import com.magicrepokit.redis.serializer.CompressingRedisSerializer;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * spring缓存配置
+ * <p>
+ * 替换spring默认的redis缓存，在redis前增加本地缓存；
+ * redis中的key和值格式(缓存名称::键，java序列化)与spring默认的redis缓存一致，切换后已有缓存仍可读取
+ */
+@Configuration
+@EnableConfigurationProperties({MRKCacheProperties.class})
+public class MRKCacheConfiguration {
+
+    @Bean
+    public MRKCacheManager cacheManager(MRKRedisUtils mrkRedisUtils, MRKCacheProperties mrkCacheProperties,
+                                        MRKRedisProperties mrkRedisProperties, RedisMessageListenerContainer redisMessageListenerContainer) {
+        RedisSerializer<Object> valueSerializer = new CompressingRedisSerializer(RedisSerializer.java(), mrkRedisProperties.getCompressThreshold());
+        MRKCacheManager cacheManager = new MRKCacheManager(mrkRedisUtils, mrkCacheProperties, valueSerializer);
+        redisMessageListenerContainer.addMessageListener(cacheManager, new ChannelTopic(MRKRedisConstant.REDIS_CHANNEL_CACHE));
+        return cacheManager;
+    }
+}
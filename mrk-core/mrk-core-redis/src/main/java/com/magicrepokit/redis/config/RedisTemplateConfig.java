@@ -3,13 +3,20 @@ package com.magicrepokit.redis.config;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magicrepokit.redis.properties.MRKRedisProperties;
+import com.magicrepokit.redis.serializer.CompressingRedisSerializer;
+import com.magicrepokit.redis.serializer.MRKRedisSerializer;
+import com.magicrepokit.redis.serializer.SerializerType;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -17,41 +24,68 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
  */
 @Configuration
 @EnableCaching //开启注解
+@EnableConfigurationProperties({MRKRedisProperties.class})
 public class RedisTemplateConfig extends CachingConfigurerSupport {
     /**
      * retemplate相关配置
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory, MRKRedisProperties mrkRedisProperties) {
 
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         // 配置连接工厂
         template.setConnectionFactory(factory);
 
-        //使用Jackson2JsonRedisSerializer来序列化和反序列化redis的value值（默认使用JDK的序列化方式）
-        Jackson2JsonRedisSerializer jacksonSeial = new Jackson2JsonRedisSerializer(Object.class);
+        //value按配置的方式序列化(默认json)，较大的值压缩，读取时自动识别格式
+        RedisSerializer<Object> valueSerializer = valueSerializer(mrkRedisProperties);
 
-        ObjectMapper om = new ObjectMapper();
-        // 指定要序列化的域，field,get和set,以及修饰符范围，ANY是都有包括private和public
-
-        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        // 指定序列化输入的类型，类必须是非final修饰的，final修饰的类，比如String,Integer等会跑出异常
-        om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
-        jacksonSeial.setObjectMapper(om);
-
-        // 值采用json序列化
-        template.setValueSerializer(jacksonSeial);
+        template.setValueSerializer(valueSerializer);
         //使用StringRedisSerializer来序列化和反序列化redis的key值
         template.setKeySerializer(new StringRedisSerializer());
 
         // 设置hash key 和value序列化模式
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(jacksonSeial);
+        template.setHashValueSerializer(valueSerializer);
         template.afterPropertiesSet();
 
         return template;
     }
 
+    /**
+     * value序列化方式，响应式客户端(网关)需使用同一序列化才能读取同一份数据
+     *
+     * @param mrkRedisProperties redis配置
+     */
+    public static RedisSerializer<Object> valueSerializer(MRKRedisProperties mrkRedisProperties) {
+        return valueSerializer(mrkRedisProperties.getSerializer(), mrkRedisProperties.getCompressThreshold());
+    }
+
+    /**
+     * value序列化方式
+     *
+     * @param type 写入使用的序列化方式
+     * @param compressThreshold 压缩阈值(字节)，小于等于0时不压缩
+     */
+    public static RedisSerializer<Object> valueSerializer(SerializerType type, int compressThreshold) {
+        return new CompressingRedisSerializer(new MRKRedisSerializer(type, jacksonSerializer()), compressThreshold);
+    }
+
+    /**
+     * json序列化方式
+     */
+    public static Jackson2JsonRedisSerializer<Object> jacksonSerializer() {
+        Jackson2JsonRedisSerializer<Object> jacksonSeial = new Jackson2JsonRedisSerializer<>(Object.class);
+
+        ObjectMapper om = new ObjectMapper();
+        // 指定要序列化的域，field,get和set,以及修饰符范围，ANY是都有包括private和public
+
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        // 指定序列化输入的类型，类必须是非final修饰的，final修饰的类，比如String,Integer等会跑出异常
+        om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
+        jacksonSeial.setObjectMapper(om);
+        return jacksonSeial;
+    }
+
     /**
      * 对hash类型的数据操作
      */
@@ -91,4 +125,14 @@ public class RedisTemplateConfig extends CachingConfigurerSupport {
     public ZSetOperations<String, Object> zSetOperations(RedisTemplate<String, Object> redisTemplate) {
         return redisTemplate.opsForZSet();
     }
+
+    /**
+     * redis消息订阅容器，各模块共用一个连接订阅失效通知等频道
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
 }
@@ -0,0 +1,17 @@
+package com.magicrepokit.redis.constant;
+
+/**
+ * redis常量
+ */
+public interface MRKRedisConstant {
+
+    /**
+     * 缓存变更通知频道，各节点收到后清除本地缓存
+     */
+    String REDIS_CHANNEL_CACHE = "mrk:channel:cache";
+
+    /**
+     * 缓存key中缓存名称与键的分隔符(与spring默认的redis缓存一致)
+     */
+    String CACHE_KEY_SEPARATOR = "::";
+}
@@ -0,0 +1,37 @@
+package com.magicrepokit.redis.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("mrk.cache")
+public class MRKCacheProperties {
+    /**
+     * redis缓存默认过期时间
+     */
+    private Duration defaultTtl = Duration.ofHours(1);
+
+    /**
+     * 按缓存名称指定redis缓存过期时间
+     */
+    private Map<String, Duration> ttl = new HashMap<>();
+
+    /**
+     * 每个缓存名称本地缓存的最大条数
+     */
+    private long localMaximumSize = 10000;
+
+    /**
+     * 本地缓存过期时间，超过redis缓存过期时间时使用redis缓存过期时间
+     */
+    private Duration localTtl = Duration.ofSeconds(60);
+
+    /**
+     * 是否缓存null值，避免不存在的数据每次都穿透到数据库
+     */
+    private boolean allowNullValues = true;
+}
@@ -0,0 +1,19 @@
+package com.magicrepokit.redis.properties;
+
+import com.magicrepokit.redis.serializer.SerializerType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("mrk.redis")
+public class MRKRedisProperties {
+    /**
+     * redisTemplate写入值使用的序列化方式，读取时按数据自身的格式标记解析，切换后旧数据仍可读取
+     */
+    private SerializerType serializer = SerializerType.JSON;
+
+    /**
+     * 序列化后超过该大小(字节)的值使用lz4压缩，小于等于0时不压缩
+     */
+    private int compressThreshold = 4096;
+}
@@ -0,0 +1,97 @@
+package com.magicrepokit.redis.serializer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压缩序列化
+ * <p>
+ * 被包装的序列化结果超过阈值时使用lz4压缩，格式为：标记字节{@link #LZ4_MARKER} + 原始长度(4字节) + lz4数据；
+ * 未超过阈值或压缩后没有变小的值原样保存，读取时根据首字节判断是否需要解压，
+ * 因此被包装的序列化结果不能以{@link #LZ4_MARKER}开头(json、java序列化、protostuff标记均满足)
+ */
+public class CompressingRedisSerializer implements RedisSerializer<Object> {
+    private static final byte LZ4_MARKER = 0x02;
+    private static final int HEADER_LENGTH = 5;
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private static final DistributionSummary RATIO = DistributionSummary.builder("mrk.redis.compression.ratio")
+            .description("压缩前大小/压缩后大小")
+            .register(Metrics.globalRegistry);
+    private static final Timer COMPRESS_TIMER = Timer.builder("mrk.redis.compression.time")
+            .tag("operation", "compress")
+            .register(Metrics.globalRegistry);
+    private static final Timer DECOMPRESS_TIMER = Timer.builder("mrk.redis.compression.time")
+            .tag("operation", "decompress")
+            .register(Metrics.globalRegistry);
+
+    private final RedisSerializer<Object> delegate;
+    private final int threshold;
+
+    /**
+     * @param delegate  被包装的序列化
+     * @param threshold 压缩阈值(字节)，小于等于0时不压缩(仍可读取已压缩的数据)
+     */
+    public CompressingRedisSerializer(RedisSerializer<Object> delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes == null || threshold <= 0 || bytes.length < threshold) {
+            return bytes;
+        }
+        long start = System.nanoTime();
+        byte[] compressed = new byte[HEADER_LENGTH + COMPRESSOR.maxCompressedLength(bytes.length)];
+        int length = COMPRESSOR.compress(bytes, 0, bytes.length, compressed, HEADER_LENGTH);
+        COMPRESS_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (HEADER_LENGTH + length >= bytes.length) {
+            return bytes;
+        }
+        RATIO.record((double) bytes.length / (HEADER_LENGTH + length));
+        compressed[0] = LZ4_MARKER;
+        writeInt(compressed, bytes.length);
+        byte[] result = new byte[HEADER_LENGTH + length];
+        System.arraycopy(compressed, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != LZ4_MARKER) {
+            return delegate.deserialize(bytes);
+        }
+        long start = System.nanoTime();
+        byte[] restored;
+        try {
+            restored = DECOMPRESSOR.decompress(bytes, HEADER_LENGTH, readInt(bytes));
+        } catch (RuntimeException e) {
+            throw new SerializationException("lz4解压失败", e);
+        }
+        DECOMPRESS_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return delegate.deserialize(restored);
+    }
+
+    private static void writeInt(byte[] bytes, int value) {
+        bytes[1] = (byte) (value >>> 24);
+        bytes[2] = (byte) (value >>> 16);
+        bytes[3] = (byte) (value >>> 8);
+        bytes[4] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes) {
+        return ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+    }
+}
@@ -0,0 +1,67 @@
+package com.magicrepokit.redis.serializer;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+
+/**
+ * redis值序列化
+ * <p>
+ * 按配置的方式写入，读取时根据首字节识别格式：
+ * protostuff数据以{@link #PROTOSTUFF_MARKER}开头，java序列化数据以流魔数0xAC开头，
+ * 其余按json解析(json不加标记，与切换前写入的数据及未升级的节点兼容)
+ */
+public class MRKRedisSerializer implements RedisSerializer<Object> {
+    /**
+     * protostuff格式标记，不会是合法json的首字节
+     */
+    private static final byte PROTOSTUFF_MARKER = 0x01;
+    /**
+     * java序列化流的首字节
+     */
+    private static final byte JAVA_STREAM_MAGIC = (byte) 0xAC;
+
+    private final SerializerType type;
+    private final RedisSerializer<Object> jsonSerializer;
+    private final RedisSerializer<Object> protoStuffSerializer = new ProtoStuffSerializer();
+    private final RedisSerializer<Object> javaSerializer = RedisSerializer.java();
+
+    public MRKRedisSerializer(SerializerType type, RedisSerializer<Object> jsonSerializer) {
+        this.type = type;
+        this.jsonSerializer = jsonSerializer;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case PROTOSTUFF:
+                byte[] bytes = protoStuffSerializer.serialize(value);
+                byte[] marked = new byte[bytes.length + 1];
+                marked[0] = PROTOSTUFF_MARKER;
+                System.arraycopy(bytes, 0, marked, 1, bytes.length);
+                return marked;
+            case JDK:
+                return javaSerializer.serialize(value);
+            default:
+                return jsonSerializer.serialize(value);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == PROTOSTUFF_MARKER) {
+            return protoStuffSerializer.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        if (bytes[0] == JAVA_STREAM_MAGIC) {
+            return javaSerializer.deserialize(bytes);
+        }
+        return jsonSerializer.deserialize(bytes);
+    }
+}
@@ -9,21 +9,25 @@ import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.util.ObjectUtils;
 
+/**
+ * protostuff序列化
+ * <p>
+ * 值包装在BytesWrapper中，运行时按实际类型写入类名，schema由RuntimeSchema缓存；
+ * 每个线程复用一个缓冲区，避免每次序列化都分配
+ */
 public class ProtoStuffSerializer implements RedisSerializer<Object> {
-    private final Schema<BytesWrapper> schema;
-
-    public ProtoStuffSerializer() {
-        this.schema = RuntimeSchema.getSchema(BytesWrapper.class);
-    }
+    @SuppressWarnings("rawtypes")
+    private static final Schema<BytesWrapper> SCHEMA = RuntimeSchema.getSchema(BytesWrapper.class);
+    private static final ThreadLocal<LinkedBuffer> BUFFER = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
 
     @Override
     public byte[] serialize(Object object) throws SerializationException {
         if (object == null) {
             return null;
         }
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        LinkedBuffer buffer = BUFFER.get();
         try {
-            return ProtostuffIOUtil.toByteArray(new BytesWrapper<>(object), schema, buffer);
+            return ProtostuffIOUtil.toByteArray(new BytesWrapper<>(object), SCHEMA, buffer);
         } finally {
             buffer.clear();
         }
@@ -35,7 +39,7 @@ public class ProtoStuffSerializer implements RedisSerializer<Object> {
             return null;
         }
         BytesWrapper<Object> wrapper = new BytesWrapper<>();
-        ProtostuffIOUtil.mergeFrom(bytes, wrapper, schema);
+        ProtostuffIOUtil.mergeFrom(bytes, wrapper, SCHEMA);
         return wrapper.getValue();
     }
 }
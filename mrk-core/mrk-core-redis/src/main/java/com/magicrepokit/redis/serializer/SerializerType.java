@@ -0,0 +1,19 @@
+package com.magicrepokit.redis.serializer;
+
+/**
+ * redis值序列化方式
+ */
+public enum SerializerType {
+    /**
+     * jackson(带类型信息)，可读性好，体积较大
+     */
+    JSON,
+    /**
+     * protostuff，体积小速度快，类增删字段需保持字段顺序
+     */
+    PROTOSTUFF,
+    /**
+     * java序列化，对象需实现Serializable
+     */
+    JDK
+}
@@ -1,29 +1,85 @@
 package com.magicrepokit.redis.utils;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.TimeoutUtils;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 
+@Slf4j
 @Component
 public class MRKRedisUtils {
+    /**
+     * GETDEL(redis6.2)不可用时使用的lua脚本
+     */
+    private static final byte[] GET_DEL_SCRIPT = ("local value = redis.call('GET', KEYS[1])\n" +
+            "if value then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return value").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 未达到阈值时递增并设置过期时间，已达到阈值时不递增返回-1
+     * KEYS[1]计数key ARGV[1]阈值 ARGV[2]过期时间(秒)
+     */
+    private static final RedisScript<Long> CHECK_AND_INCR_SCRIPT = new DefaultRedisScript<>(
+            "local count = tonumber(redis.call('GET', KEYS[1]) or '0')\n" +
+            "if count >= tonumber(ARGV[1]) then\n" +
+            "  return -1\n" +
+            "end\n" +
+            "count = redis.call('INCR', KEYS[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "return count", Long.class);
+
+    /**
+     * 递减1但不改变过期时间，减到0时删除，key不存在时不处理
+     * KEYS[1]计数key
+     */
+    private static final RedisScript<Long> DECR_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "local count = tonumber(redis.call('GET', KEYS[1]))\n" +
+            "if count == nil then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "if count <= 1 then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "  return 0\n" +
+            "end\n" +
+            "return redis.call('DECR', KEYS[1])", Long.class);
+
+    /**
+     * 批量操作单个命令(或单个管道)包含的key数量，避免大批量时长时间阻塞redis
+     */
+    private static final int BATCH_SIZE = 500;
+
     @Autowired
     private RedisTemplate<String,Object> redisTemplate;
-
+    private volatile boolean getDelSupported = true;
 
     /**
      * 指定缓存失效时间
@@ -64,6 +120,36 @@ public class MRKRedisUtils {
         return redisTemplate.execute(connection -> deserializeValue(connection.get(rawKey), valueSerializer), true);
     }
 
+    /**
+     * 获取并删除(原子操作，并发时只有一个调用方能拿到值)
+     *
+     * @param key             the key
+     * @param valueSerializer 序列化
+     * @return 不存在返回null
+     */
+    public Object getAndDelete(final String key, RedisSerializer<Object> valueSerializer) {
+        byte[] rawKey = rawKey(key);
+        return redisTemplate.execute(connection -> deserializeValue(getAndDelete(connection, rawKey), valueSerializer), true);
+    }
+
+    /**
+     * 优先使用GETDEL，redis版本不支持时改用lua脚本
+     */
+    private byte[] getAndDelete(RedisConnection connection, byte[] rawKey) {
+        if (getDelSupported) {
+            try {
+                return connection.getDel(rawKey);
+            } catch (DataAccessException e) {
+                String message = e.getMostSpecificCause().getMessage();
+                if (message == null || !message.toLowerCase().contains("unknown command")) {
+                    throw e;
+                }
+                getDelSupported = false;
+            }
+        }
+        return connection.eval(GET_DEL_SCRIPT, ReturnType.VALUE, 1, rawKey);
+    }
+
     /**
      * 判断key是否存在
      * @param key 键
@@ -123,9 +209,145 @@ public class MRKRedisUtils {
      * @param time   过期时间(单位秒)
      */
     public void setExpire(final String[] keys, final Object[] values, final long time) {
+        Map<String, Object> map = new LinkedHashMap<>(keys.length * 2);
         for (int i = 0; i < keys.length; i++) {
-            redisTemplate.opsForValue().set(keys[i], values[i], time, TimeUnit.SECONDS);
+            map.put(keys[i], values[i]);
         }
+        multiSetWithTtl(map, time, TimeUnit.SECONDS);
+    }
+
+    //============================批量操作=============================
+    /**
+     * 批量获取(MGET，超过批次大小时拆分为多个MGET，每批单独发送)
+     * @param keys 键
+     * @return 值，顺序与键一致，不存在的键为null
+     */
+    public List<Object> multiGet(Collection<String> keys) {
+        return multiGet(keys, valueSerializer());
+    }
+
+    /**
+     * 批量获取(MGET，超过批次大小时拆分为多个MGET，每批单独发送)
+     * @param keys 键
+     * @param valueSerializer 序列化
+     * @return 值，顺序与键一致，不存在的键为null
+     */
+    public List<Object> multiGet(Collection<String> keys, RedisSerializer<Object> valueSerializer) {
+        List<Object> result = new ArrayList<>(keys.size());
+        if (keys.isEmpty()) {
+            return result;
+        }
+        for (List<byte[]> batch : partition(rawKeys(keys))) {
+            List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.mGet(batch.toArray(new byte[0][])), true);
+            result.addAll(values == null ? Collections.nCopies(batch.size(), null) : deserializeValues(values, valueSerializer));
+        }
+        return result;
+    }
+
+    /**
+     * 批量放入并设置过期时间(MSET不支持过期时间，使用管道按批次发送SET PX)
+     * @param values 键值
+     * @param time 时间
+     * @param timeUnit 时间单位
+     */
+    public void multiSetWithTtl(Map<String, ?> values, long time, TimeUnit timeUnit) {
+        multiSetWithTtl(values, time, timeUnit, valueSerializer());
+    }
+
+    /**
+     * 批量放入并设置过期时间(MSET不支持过期时间，使用管道按批次发送SET PX)
+     * @param values 键值
+     * @param time 时间
+     * @param timeUnit 时间单位
+     * @param valueSerializer 序列化
+     */
+    public void multiSetWithTtl(Map<String, ?> values, long time, TimeUnit timeUnit, RedisSerializer<Object> valueSerializer) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+        Expiration expiration = Expiration.from(time, timeUnit);
+        List<byte[]> rawKeys = new ArrayList<>(values.size());
+        List<byte[]> rawValues = new ArrayList<>(values.size());
+        values.forEach((key, value) -> {
+            rawKeys.add(rawKey(key));
+            rawValues.add(rawValue(value, valueSerializer));
+        });
+        for (int from = 0; from < rawKeys.size(); from += BATCH_SIZE) {
+            int start = from;
+            int end = Math.min(from + BATCH_SIZE, rawKeys.size());
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = start; i < end; i++) {
+                    connection.set(rawKeys.get(i), rawValues.get(i), expiration, RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            }, null);
+        }
+    }
+
+    /**
+     * 批量获取多个hash的全部字段(管道按批次发送HGETALL，每批一个管道)；
+     * 管道返回的hash已由redisTemplate的hashKey/hashValue序列化反序列化
+     * @param keys 键
+     * @return 键 -> 字段和值，不存在的键对应空map
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<Object, Object>> multiHashGet(Collection<String> keys) {
+        Map<String, Map<Object, Object>> result = new LinkedHashMap<>(keys.size() * 2);
+        if (keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        List<List<byte[]>> batches = partition(rawKeys(keyList));
+        int index = 0;
+        for (List<byte[]> batch : batches) {
+            List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (byte[] rawKey : batch) {
+                    connection.hGetAll(rawKey);
+                }
+                return null;
+            }, null);
+            for (Object hash : hashes) {
+                result.put(keyList.get(index++), hash == null ? new LinkedHashMap<>() : (Map<Object, Object>) hash);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查找匹配的键(SCAN分批遍历，不会像KEYS一样阻塞redis)
+     * @param pattern 匹配规则
+     * @return 键
+     */
+    public Set<String> scan(String pattern) {
+        Set<String> keys = new HashSet<>();
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(BATCH_SIZE).build())) {
+                while (cursor.hasNext()) {
+                    keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+                }
+            }
+            return null;
+        }, true);
+        return keys;
+    }
+
+    /**
+     * 批量删除(UNLINK，由redis后台线程释放内存，超过批次大小时拆分为多个UNLINK，每批单独发送)
+     * @param keys 键
+     * @return 删除的数量
+     */
+    public long multiDelete(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return 0;
+        }
+        long count = 0;
+        for (List<byte[]> batch : partition(rawKeys(keys))) {
+            Long deleted = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.unlink(batch.toArray(new byte[0][])), true);
+            count += deleted == null ? 0 : deleted;
+        }
+        return count;
     }
 
     /**
@@ -190,6 +412,33 @@ public class MRKRedisUtils {
         }
     }
 
+    /**
+     * 不存在时放入并设置时间
+     * @param key 键
+     * @param value 值
+     * @param time 时间(秒)
+     * @return true放入成功 false已存在
+     */
+    public boolean setIfAbsent(String key,Object value,long time){
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value, time, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 不存在时放入并设置时间
+     * @param key 键
+     * @param value 值
+     * @param time 时间
+     * @param timeUnit 时间单位
+     * @param valueSerializer 序列化
+     * @return true放入成功 false已存在
+     */
+    public boolean setIfAbsent(String key, Object value, long time, TimeUnit timeUnit, RedisSerializer<Object> valueSerializer){
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = rawValue(value, valueSerializer);
+        return Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.set(rawKey, rawValue, Expiration.from(time, timeUnit), RedisStringCommands.SetOption.ifAbsent()), true));
+    }
+
     /**
      * 递增
      * @param key 键
@@ -216,6 +465,26 @@ public class MRKRedisUtils {
         return redisTemplate.opsForValue().increment(key, -delta);
     }
 
+    /**
+     * 未达到阈值时递增1并设置过期时间(原子操作)
+     * @param key 键
+     * @param threshold 阈值
+     * @param time 过期时间(秒)，每次递增都会重新计时
+     * @return 递增后的值，已达到阈值时不递增并返回-1
+     */
+    public long checkAndIncr(String key, long threshold, long time){
+        return executeScript(CHECK_AND_INCR_SCRIPT, key, threshold, time);
+    }
+
+    /**
+     * 撤销一次checkAndIncr的计数(原子操作)
+     * @param key 键
+     * @return 递减后的值，减到0时删除key
+     */
+    public long decrIfExists(String key){
+        return executeScript(DECR_IF_EXISTS_SCRIPT, key);
+    }
+
     //================================Map=================================
     /**
      * HashGet
@@ -598,6 +867,52 @@ public class MRKRedisUtils {
         }
     }
 
+    /**
+     * 发布消息
+     * @param channel 频道
+     * @param message 消息
+     * @return
+     */
+    public boolean publish(String channel, Object message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+            return true;
+        } catch (Exception e) {
+            log.warn("[redis]发布消息失败,channel:{}", channel, e);
+            return false;
+        }
+    }
+
+    private long executeScript(RedisScript<Long> script, String key, Object... args) {
+        String[] rawArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            rawArgs[i] = String.valueOf(args[i]);
+        }
+        Long result = redisTemplate.execute(script, RedisSerializer.string(), null, Collections.singletonList(key), (Object[]) rawArgs);
+        return result == null ? 0 : result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    }
+
+    private List<byte[]> rawKeys(Collection<String> keys) {
+        List<byte[]> rawKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            rawKeys.add(rawKey(key));
+        }
+        return rawKeys;
+    }
+
+    private static List<List<byte[]>> partition(List<byte[]> rawKeys) {
+        List<List<byte[]>> batches = new ArrayList<>(rawKeys.size() / BATCH_SIZE + 1);
+        for (int from = 0; from < rawKeys.size(); from += BATCH_SIZE) {
+            batches.add(rawKeys.subList(from, Math.min(from + BATCH_SIZE, rawKeys.size())));
+        }
+        return batches;
+    }
+
     private byte[] rawKey(Object key) {
         Assert.notNull(key, "non null key required");
 
@@ -0,0 +1,254 @@
+package com.magicrepokit.redis.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import com.magicrepokit.redis.constant.MRKRedisConstant;
+import com.magicrepokit.redis.properties.MRKCacheProperties;
+import com.magicrepokit.redis.serializer.CompressingRedisSerializer;
+import com.magicrepokit.redis.serializer.SerializerType;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 两级缓存：节点间失效通知、并发加载、本地过期时间和与spring默认redis缓存的兼容
+ * <p>
+ * 使用真实的RedisTemplate和模拟的连接
+ */
+public class MRKTwoLevelCacheTest {
+    private static final String NAME = "users";
+    private static final String CACHE_KEY = NAME + MRKRedisConstant.CACHE_KEY_SEPARATOR + "1";
+    private static final RedisSerializer<Object> MESSAGE_SERIALIZER = RedisTemplateConfig.valueSerializer(SerializerType.JSON, 0);
+
+    private RedisConnection connection;
+    private RedisSerializer<Object> valueSerializer;
+    private MRKCacheProperties properties;
+    private MRKCacheManager cacheManager;
+    private MRKTwoLevelCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        connection = mock(RedisConnection.class);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(MESSAGE_SERIALIZER);
+        redisTemplate.afterPropertiesSet();
+        MRKRedisUtils mrkRedisUtils = new MRKRedisUtils();
+        ReflectionTestUtils.setField(mrkRedisUtils, "redisTemplate", redisTemplate);
+        valueSerializer = new CompressingRedisSerializer(RedisSerializer.java(), 256);
+        properties = new MRKCacheProperties();
+        cacheManager = new MRKCacheManager(mrkRedisUtils, properties, valueSerializer);
+        cache = (MRKTwoLevelCache) cacheManager.getCache(NAME);
+    }
+
+    @Test
+    public void readLocalAfterFirstLookup() {
+        redisHolds(CACHE_KEY, "admin");
+
+        assertEquals("admin", cache.get("1").get());
+        assertEquals("admin", cache.get("1").get());
+
+        verify(connection, times(1)).get(any());
+    }
+
+    @Test
+    public void ignoreOwnMessages() {
+        cache.put("1", "admin");
+
+        //本节点发出的通知回到本节点时不清除本地缓存
+        cacheManager.onMessage(publishedMessage(), null);
+        assertEquals("admin", cache.get("1").get());
+        verify(connection, never()).get(any());
+        verify(connection).pSetEx(eq(bytes(CACHE_KEY)), eq(properties.getDefaultTtl().toMillis()), any());
+    }
+
+    @Test
+    public void evictOnOtherNodeMessages() {
+        cache.put("1", "admin");
+        redisHolds(CACHE_KEY, "root");
+
+        cacheManager.onMessage(message("other|E|" + NAME + "|" + CACHE_KEY), null);
+        assertEquals("root", cache.get("1").get());
+
+        cache.put("2", "guest");
+        cacheManager.onMessage(message("other|C|" + NAME), null);
+        cache.get("2");
+        verify(connection, times(2)).get(any());
+    }
+
+    @Test
+    public void skipStaleLocalWrite() {
+        //读取redis期间其他节点修改了该key，读到的旧值不写入本地缓存
+        when(connection.get(bytes(CACHE_KEY))).thenAnswer(invocation -> {
+            cacheManager.onMessage(message("other|E|" + NAME + "|" + CACHE_KEY), null);
+            return valueSerializer.serialize("stale");
+        });
+
+        assertEquals("stale", cache.get("1").get());
+        cache.get("1");
+
+        verify(connection, times(2)).get(any());
+    }
+
+    @Test
+    public void skipStaleLocalWriteWithLoader() throws InterruptedException {
+        //加载期间本地缓存对该key加锁，通知在监听线程中处理
+        AtomicLong invalidations = (AtomicLong) ReflectionTestUtils.getField(cache, "invalidations");
+        Thread listener = new Thread(() -> cacheManager.onMessage(message("other|E|" + NAME + "|" + CACHE_KEY), null));
+        when(connection.get(bytes(CACHE_KEY))).thenAnswer(invocation -> {
+            listener.start();
+            while (invalidations.get() == 0) {
+                Thread.yield();
+            }
+            return null;
+        });
+
+        assertEquals("loaded", cache.get("1", () -> "loaded"));
+        listener.join(5000);
+
+        assertNull(localCache().getIfPresent(CACHE_KEY));
+        verify(connection).pSetEx(eq(bytes(CACHE_KEY)), anyLong(), any());
+    }
+
+    @Test
+    public void loadOncePerKey() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("1", () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(100);
+                        return "admin";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("admin", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        verify(connection, times(1)).get(any());
+        verify(connection, times(1)).pSetEx(any(), anyLong(), any());
+    }
+
+    @Test
+    public void localTtlCappedByRedisTtl() {
+        properties.setLocalTtl(Duration.ofSeconds(60));
+        properties.getTtl().put("short", Duration.ofSeconds(10));
+
+        assertEquals(Duration.ofSeconds(60).toNanos(), expireAfterWrite(cacheManager.getCache(NAME)));
+        assertEquals(Duration.ofSeconds(10).toNanos(), expireAfterWrite(cacheManager.getCache("short")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void clearWithScanAndUnlink() {
+        cache.put("1", "admin");
+        Cursor<byte[]> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenReturn(true, true, false);
+        when(cursor.next()).thenReturn(bytes(CACHE_KEY), bytes(NAME + "::2"));
+        when(connection.scan(ArgumentMatchers.<ScanOptions>any())).thenReturn(cursor);
+        when(connection.unlink(ArgumentMatchers.<byte[]>any())).thenAnswer(invocation -> (long) invocation.getArguments().length);
+
+        cache.clear();
+
+        ArgumentCaptor<ScanOptions> options = ArgumentCaptor.forClass(ScanOptions.class);
+        verify(connection).scan(options.capture());
+        assertEquals(NAME + "::*", options.getValue().getPattern());
+        verify(connection).unlink(ArgumentMatchers.<byte[]>any());
+        verify(connection, never()).keys(any());
+        assertNull(localCache().getIfPresent(CACHE_KEY));
+        assertEquals("other|C|" + NAME, String.valueOf(MESSAGE_SERIALIZER.deserialize(lastPublished())).replaceFirst("^[^|]+", "other"));
+    }
+
+    @Test
+    public void compatibleWithSpringRedisCache() {
+        //spring默认redis缓存写入的数据可以直接读取
+        RedisCacheConfiguration springConfig = RedisCacheConfiguration.defaultCacheConfig();
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", 1L);
+        user.put("account", "admin");
+        String springKey = springConfig.getKeyPrefixFor(NAME) + "1";
+        assertEquals(CACHE_KEY, springKey);
+        when(connection.get(bytes(springKey))).thenReturn(ByteUtils.getBytes(springConfig.getValueSerializationPair().write(user)));
+
+        assertEquals(user, cache.get("1").get());
+
+        //写入的数据spring默认redis缓存也可以读取
+        cache.put("2", user);
+        ArgumentCaptor<byte[]> value = ArgumentCaptor.forClass(byte[].class);
+        verify(connection).pSetEx(eq(bytes(NAME + "::2")), anyLong(), value.capture());
+        assertEquals(user, springConfig.getValueSerializationPair().read(ByteBuffer.wrap(value.getValue())));
+    }
+
+    private void redisHolds(String key, Object value) {
+        when(connection.get(bytes(key))).thenReturn(valueSerializer.serialize(value));
+    }
+
+    private byte[] lastPublished() {
+        ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+        verify(connection, atLeastOnce()).publish(eq(bytes(MRKRedisConstant.REDIS_CHANNEL_CACHE)), body.capture());
+        return body.getValue();
+    }
+
+    private DefaultMessage publishedMessage() {
+        return new DefaultMessage(bytes(MRKRedisConstant.REDIS_CHANNEL_CACHE), lastPublished());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(bytes(MRKRedisConstant.REDIS_CHANNEL_CACHE), MESSAGE_SERIALIZER.serialize(body));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<String, Object> localCache() {
+        return (Cache<String, Object>) cache.getNativeCache();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long expireAfterWrite(org.springframework.cache.Cache cache) {
+        return ((Cache<String, Object>) cache.getNativeCache()).policy().expireAfterWrite()
+                .map(expiration -> expiration.getExpiresAfter(TimeUnit.NANOSECONDS)).orElse(-1L);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
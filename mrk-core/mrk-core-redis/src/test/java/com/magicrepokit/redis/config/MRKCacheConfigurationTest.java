@@ -0,0 +1,46 @@
+package com.magicrepokit.redis.config;
+
+import com.magicrepokit.redis.cache.MRKCacheManager;
+import com.magicrepokit.redis.constant.MRKRedisConstant;
+import com.magicrepokit.redis.properties.MRKCacheProperties;
+import com.magicrepokit.redis.properties.MRKRedisProperties;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * spring缓存配置：订阅变更通知频道，值的序列化与spring默认redis缓存一致
+ */
+public class MRKCacheConfigurationTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cacheManager() {
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        MRKRedisProperties mrkRedisProperties = new MRKRedisProperties();
+        mrkRedisProperties.setCompressThreshold(1024);
+
+        MRKCacheManager cacheManager = new MRKCacheConfiguration().cacheManager(mock(MRKRedisUtils.class), new MRKCacheProperties(),
+                mrkRedisProperties, container);
+
+        verify(container).addMessageListener(same(cacheManager),
+                argThat((ChannelTopic topic) -> MRKRedisConstant.REDIS_CHANNEL_CACHE.equals(topic.getTopic())));
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) ReflectionTestUtils.getField(cacheManager, "valueSerializer");
+        assertEquals(1024, ReflectionTestUtils.getField(valueSerializer, "threshold"));
+        //未超过压缩阈值的值spring默认redis缓存可以直接读取
+        byte[] value = valueSerializer.serialize("admin");
+        assertEquals("admin", RedisCacheConfiguration.defaultCacheConfig().getValueSerializationPair().read(ByteBuffer.wrap(value)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.magicrepokit.redis.serializer;
+
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 压缩序列化：超过阈值压缩、压缩标记和未压缩数据的兼容读取
+ */
+public class CompressingRedisSerializerTest {
+    private static final byte LZ4_MARKER = 0x02;
+    private static final int THRESHOLD = 256;
+
+    private static final String LARGE = repeat("magicrepokit", 100);
+    private static final String SMALL = "magicrepokit";
+
+    @Test
+    public void compressAboveThreshold() {
+        for (SerializerType type : SerializerType.values()) {
+            RedisSerializer<Object> delegate = delegate(type);
+            CompressingRedisSerializer serializer = new CompressingRedisSerializer(delegate, THRESHOLD);
+
+            byte[] bytes = serializer.serialize(LARGE);
+
+            assertEquals(LZ4_MARKER, bytes[0], type.name());
+            assertTrue(bytes.length < delegate.serialize(LARGE).length, type.name());
+            assertEquals(LARGE, serializer.deserialize(bytes), type.name());
+        }
+    }
+
+    @Test
+    public void keepBelowThreshold() {
+        for (SerializerType type : SerializerType.values()) {
+            RedisSerializer<Object> delegate = delegate(type);
+            CompressingRedisSerializer serializer = new CompressingRedisSerializer(delegate, THRESHOLD);
+
+            byte[] bytes = serializer.serialize(SMALL);
+
+            assertArrayEquals(delegate.serialize(SMALL), bytes, type.name());
+            assertEquals(SMALL, serializer.deserialize(bytes), type.name());
+        }
+    }
+
+    @Test
+    public void keepIncompressible() {
+        byte[] random = new byte[THRESHOLD * 4];
+        new Random(1).nextBytes(random);
+        RedisSerializer<Object> delegate = delegate(SerializerType.JDK);
+        CompressingRedisSerializer serializer = new CompressingRedisSerializer(delegate, THRESHOLD);
+
+        byte[] bytes = serializer.serialize(random);
+
+        //压缩后没有变小时原样保存
+        assertArrayEquals(delegate.serialize(random), bytes);
+        assertArrayEquals(random, (byte[]) serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void readWhenDisabled() {
+        RedisSerializer<Object> delegate = delegate(SerializerType.JSON);
+        byte[] compressed = new CompressingRedisSerializer(delegate, THRESHOLD).serialize(LARGE);
+        CompressingRedisSerializer disabled = new CompressingRedisSerializer(delegate, 0);
+
+        //关闭压缩后不再压缩，但仍能读取已压缩的数据和未压缩的旧数据
+        assertArrayEquals(delegate.serialize(LARGE), disabled.serialize(LARGE));
+        assertEquals(LARGE, disabled.deserialize(compressed));
+        assertEquals(LARGE, disabled.deserialize(delegate.serialize(LARGE)));
+    }
+
+    @Test
+    public void nullValue() {
+        CompressingRedisSerializer serializer = new CompressingRedisSerializer(delegate(SerializerType.JSON), THRESHOLD);
+
+        assertNull(serializer.serialize(null));
+        assertNull(serializer.deserialize(null));
+    }
+
+    private static RedisSerializer<Object> delegate(SerializerType type) {
+        return new MRKRedisSerializer(type, RedisTemplateConfig.jacksonSerializer());
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder(value.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.magicrepokit.redis.serializer;
+
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * redis值序列化：各格式往返、格式标记和切换序列化方式后读取旧数据
+ */
+public class MRKRedisSerializerTest {
+    private static final Sample SAMPLE = new Sample(1L, "管理员", Arrays.asList("a", "b"));
+
+    @Test
+    public void roundTrip() {
+        for (SerializerType type : SerializerType.values()) {
+            MRKRedisSerializer serializer = serializer(type);
+            assertEquals(SAMPLE, serializer.deserialize(serializer.serialize(SAMPLE)), type.name());
+        }
+    }
+
+    @Test
+    public void formatMarker() {
+        assertEquals(0x01, serializer(SerializerType.PROTOSTUFF).serialize(SAMPLE)[0]);
+        assertEquals((byte) 0xAC, serializer(SerializerType.JDK).serialize(SAMPLE)[0]);
+        //json不加标记，与切换前写入的数据一致
+        assertEquals('[', serializer(SerializerType.JSON).serialize(SAMPLE)[0]);
+    }
+
+    @Test
+    public void readOtherFormats() {
+        for (SerializerType written : SerializerType.values()) {
+            byte[] bytes = serializer(written).serialize(SAMPLE);
+            for (SerializerType configured : SerializerType.values()) {
+                assertEquals(SAMPLE, serializer(configured).deserialize(bytes), written + "->" + configured);
+            }
+        }
+    }
+
+    @Test
+    public void nullValue() {
+        for (SerializerType type : SerializerType.values()) {
+            MRKRedisSerializer serializer = serializer(type);
+            assertNull(serializer.serialize(null));
+            assertNull(serializer.deserialize(null));
+            assertNull(serializer.deserialize(new byte[0]));
+        }
+    }
+
+    private static MRKRedisSerializer serializer(SerializerType type) {
+        return new MRKRedisSerializer(type, RedisTemplateConfig.jacksonSerializer());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Sample implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long id;
+        private String name;
+        private List<String> tags;
+    }
+}
@@ -0,0 +1,133 @@
+package com.magicrepokit.redis.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量操作：按批次发送，结果顺序与键一致
+ * <p>
+ * 使用真实的RedisTemplate和模拟的连接，管道返回值经过RedisTemplate自身的反序列化
+ */
+public class MRKRedisUtilsTest {
+    private static final int BATCH_SIZE = 500;
+
+    private RedisConnection connection;
+    private MRKRedisUtils mrkRedisUtils;
+
+    @BeforeEach
+    public void setUp() {
+        connection = mock(RedisConnection.class);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setDefaultSerializer(RedisSerializer.string());
+        redisTemplate.afterPropertiesSet();
+        mrkRedisUtils = new MRKRedisUtils();
+        ReflectionTestUtils.setField(mrkRedisUtils, "redisTemplate", redisTemplate);
+    }
+
+    @Test
+    public void multiHashGet() {
+        Map<byte[], byte[]> hash = new LinkedHashMap<>();
+        hash.put(bytes("name"), bytes("admin"));
+        hash.put(bytes("status"), bytes("2"));
+        when(connection.closePipeline()).thenReturn(Arrays.asList(hash, Collections.emptyMap()));
+
+        Map<String, Map<Object, Object>> result = mrkRedisUtils.multiHashGet(Arrays.asList("user:1", "user:2"));
+
+        Map<Object, Object> expected = new LinkedHashMap<>();
+        expected.put("name", "admin");
+        expected.put("status", "2");
+        assertEquals(Arrays.asList("user:1", "user:2"), new ArrayList<>(result.keySet()));
+        assertEquals(expected, result.get("user:1"));
+        assertTrue(result.get("user:2").isEmpty());
+        verify(connection).openPipeline();
+        verify(connection, times(2)).hGetAll(any());
+    }
+
+    @Test
+    public void multiHashGetPipelinePerBatch() {
+        List<String> keys = keys(BATCH_SIZE + 1);
+        when(connection.closePipeline()).thenReturn(
+                Collections.nCopies(BATCH_SIZE, Collections.singletonMap(bytes("f"), bytes("a"))),
+                Collections.singletonList(Collections.singletonMap(bytes("f"), bytes("b"))));
+
+        Map<String, Map<Object, Object>> result = mrkRedisUtils.multiHashGet(keys);
+
+        assertEquals(keys, new ArrayList<>(result.keySet()));
+        assertEquals("a", result.get(keys.get(0)).get("f"));
+        assertEquals("b", result.get(keys.get(BATCH_SIZE)).get("f"));
+        verify(connection, times(2)).openPipeline();
+        verify(connection, times(2)).closePipeline();
+    }
+
+    @Test
+    public void multiGetOneRequestPerBatch() {
+        //1001个键 -> 3次MGET(3次往返)，逐个GET需要1001次
+        List<String> keys = keys(BATCH_SIZE * 2 + 1);
+        when(connection.mGet(ArgumentMatchers.<byte[]>any())).thenAnswer(invocation -> Arrays.stream(invocation.getArguments())
+                .map(key -> bytes("v:" + new String((byte[]) key, StandardCharsets.UTF_8)))
+                .collect(Collectors.toList()));
+
+        List<Object> values = mrkRedisUtils.multiGet(keys);
+
+        assertEquals(keys.stream().map(key -> "v:" + key).collect(Collectors.toList()), values);
+        verify(connection, times(3)).mGet(ArgumentMatchers.<byte[]>any());
+        verify(connection, never()).openPipeline();
+    }
+
+    @Test
+    public void multiDeleteOneRequestPerBatch() {
+        List<String> keys = keys(BATCH_SIZE * 2 + 1);
+        when(connection.unlink(ArgumentMatchers.<byte[]>any())).thenAnswer(invocation -> (long) invocation.getArguments().length);
+
+        assertEquals(keys.size(), mrkRedisUtils.multiDelete(keys));
+        verify(connection, times(3)).unlink(ArgumentMatchers.<byte[]>any());
+        verify(connection, never()).openPipeline();
+    }
+
+    @Test
+    public void checkAndIncrInOneScript() {
+        List<byte[]> args = new ArrayList<>();
+        when(connection.evalSha(anyString(), eq(ReturnType.INTEGER), eq(1), ArgumentMatchers.<byte[]>any())).thenAnswer(invocation -> {
+            Arrays.stream(invocation.getArguments()).skip(3).forEach(arg -> args.add((byte[]) arg));
+            return -1L;
+        });
+
+        //检查上限和递增在同一次调用中完成
+        assertEquals(-1L, mrkRedisUtils.checkAndIncr("login:fail:admin", 5, 300));
+        assertEquals(Arrays.asList("login:fail:admin", "5", "300"),
+                args.stream().map(arg -> new String(arg, StandardCharsets.UTF_8)).collect(Collectors.toList()));
+        verify(connection, times(1)).evalSha(anyString(), any(), anyInt(), ArgumentMatchers.<byte[]>any());
+        verify(connection, never()).get(any());
+    }
+
+    private static List<String> keys(int size) {
+        return IntStream.range(0, size).mapToObj(i -> "key:" + i).collect(Collectors.toList());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,15 @@
+package com.magicrepokit.gateway.config;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 网关负载均衡配置
+ * <p>
+ * 聊天服务的SSE连接持续时间长且开销差异大，轮询会导致节点连接数不均，改为按节点连接数和会话亲和选择
+ */
+@Configuration
+@LoadBalancerClient(name = GateWayConstant.CHAT_SERVICE_ID, configuration = StreamLoadBalancerConfiguration.class)
+public class GatewayLoadBalancerConfiguration {
+}
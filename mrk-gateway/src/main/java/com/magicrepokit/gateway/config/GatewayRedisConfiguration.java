@@ -0,0 +1,33 @@
+package com.magicrepokit.gateway.config;
+
+import com.magicrepokit.redis.config.RedisTemplateConfig;
+import com.magicrepokit.redis.properties.MRKRedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * 网关响应式redis配置
+ * <p>
+ * 网关过滤器运行在netty事件循环线程上，不能使用阻塞的redisTemplate，
+ * 序列化方式与redisTemplate保持一致，读取认证服务写入的令牌状态
+ */
+@Configuration
+public class GatewayRedisConfiguration {
+
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory factory, MRKRedisProperties mrkRedisProperties) {
+        StringRedisSerializer keySerializer = new StringRedisSerializer();
+        RedisSerializer<Object> valueSerializer = RedisTemplateConfig.valueSerializer(mrkRedisProperties);
+        RedisSerializationContext<String, Object> context = RedisSerializationContext.<String, Object>newSerializationContext(keySerializer)
+                .value(valueSerializer)
+                .hashKey(keySerializer)
+                .hashValue(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
+}
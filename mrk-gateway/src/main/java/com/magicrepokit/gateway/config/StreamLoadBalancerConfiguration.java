@@ -0,0 +1,28 @@
+package com.magicrepokit.gateway.config;
+
+import com.magicrepokit.gateway.props.StreamBalancerProperties;
+import com.magicrepokit.gateway.provider.StreamLoadProvider;
+import com.magicrepokit.gateway.support.StreamAwareLoadBalancer;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * 长连接服务的负载均衡配置
+ * <p>
+ * 只在对应服务的负载均衡子容器中生效，不能加@Configuration，否则会被扫描成全局配置
+ */
+public class StreamLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> streamAwareLoadBalancer(Environment environment, LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                        StreamLoadProvider streamLoadProvider,
+                                                                        StreamBalancerProperties streamBalancerProperties) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new StreamAwareLoadBalancer(loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class), name,
+                streamLoadProvider, streamBalancerProperties);
+    }
+}
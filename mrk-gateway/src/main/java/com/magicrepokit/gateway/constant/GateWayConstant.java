@@ -10,4 +10,29 @@ public interface GateWayConstant {
     String AUTH_KEY = "Authorization";
     String USER_TYPE = "User-Type";
     String TOKEN_PREFIX = "Bearer ";
+    /**
+     * 认证通过后保存在exchange中的用户标识 用户类型:用户id
+     */
+    String USER_KEY_ATTRIBUTE = "mrk.gateway.userKey";
+    /**
+     * 限流令牌桶 mrk:rateLimit:{规则名}:{用户}
+     */
+    String REDIS_KEY_RATE_LIMIT = "mrk:rateLimit:";
+    /**
+     * 聊天服务，长连接(SSE)按节点连接数负载均衡
+     */
+    String CHAT_SERVICE_ID = "mrk-chat";
+    /**
+     * 聊天节点上报的SSE连接数 mrk:chat:streams:{host}:{port}，与聊天服务StreamConstant保持一致
+     */
+    String REDIS_KEY_CHAT_STREAMS = "mrk:chat:streams:";
+    /**
+     * 响应缓存失效通知频道，消息内容为规则名，各网关节点收到后清空本地该规则的缓存
+     */
+    String REDIS_CHANNEL_RESPONSE_CACHE = "mrk:channel:responseCache";
+    /**
+     * 下游服务统一返回R，业务状态码字段及成功状态码，与ResultCode.SUCCESS保持一致
+     */
+    String RESULT_CODE = "code";
+    int RESULT_SUCCESS_CODE = 200;
 }
@@ -9,7 +9,8 @@ public enum GateWayResult {
 
     UNAUTHORIZED("UNAUTHORIZED"),
     NOT_FOUND_USER_TYPE("NOT_FOUND_USER_TYPE"),
-    INVALID_TOKEN("INVALID_TOKEN")
+    INVALID_TOKEN("INVALID_TOKEN"),
+    TOO_MANY_REQUESTS("TOO_MANY_REQUESTS")
     ;
 
 
@@ -4,11 +4,12 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.magicrepokit.gateway.constant.GateWayConstant;
 import com.magicrepokit.gateway.constant.GateWayResult;
-import com.magicrepokit.gateway.props.AuthProperties;
-import com.magicrepokit.gateway.provider.AuthProvider;
 import com.magicrepokit.gateway.provider.ResponseProvider;
+import com.magicrepokit.gateway.provider.SkipPathProvider;
+import com.magicrepokit.gateway.provider.TokenProvider;
 import com.magicrepokit.jwt.constant.JWTConstant;
 import com.magicrepokit.jwt.constant.UserType;
+import com.magicrepokit.jwt.support.TrustedIdentity;
 import com.magicrepokit.jwt.utils.JWTUtil;
 import io.jsonwebtoken.Claims;
 import lombok.AllArgsConstructor;
@@ -17,10 +18,10 @@ import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -34,11 +35,13 @@ import java.nio.charset.StandardCharsets;
 @Log4j2
 @AllArgsConstructor
 public class MRKRequestGlobalFilter implements GlobalFilter, Ordered {
-    private final AuthProperties authProperties;
-    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private final SkipPathProvider skipPathProvider;
+    private final TokenProvider tokenProvider;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        //移除外部伪造的身份请求头
+        exchange = stripIdentity(exchange);
         //获得当前路径
         String path = exchange.getRequest().getURI().getPath();
         //资源放行判断
@@ -63,14 +66,18 @@ public class MRKRequestGlobalFilter implements GlobalFilter, Ordered {
         if (claims == null) {
             return unAuth(response, GateWayResult.UNAUTHORIZED.getMessage());
         }
-        //判断token状态
+        //判断token状态(吊销模式只查本地吊销列表；否则本地缓存优先，未命中非阻塞查询redis)
         String userId = String.valueOf(claims.get(JWTConstant.USER_ID));
-        String accessToken = JWTUtil.getAccessToken(Long.valueOf(userId),userType);
-        if (!token.equalsIgnoreCase(accessToken)) {
-            return unAuth(response, GateWayResult.INVALID_TOKEN.getMessage());
-        }
-
-        return chain.filter(exchange);
+        ServerWebExchange verified = exchange;
+        return tokenProvider.validate(claims, userType, token)
+                .flatMap(valid -> {
+                    if (!valid) {
+                        return unAuth(response, GateWayResult.INVALID_TOKEN.getMessage());
+                    }
+                    verified.getAttributes().put(GateWayConstant.USER_KEY_ATTRIBUTE, userType + ":" + userId);
+                    //转发已校验的身份，下游服务不再重复校验
+                    return chain.filter(withIdentity(verified, claims, userType));
+                });
     }
 
     /**
@@ -82,6 +89,45 @@ public class MRKRequestGlobalFilter implements GlobalFilter, Ordered {
         return -1000;
     }
 
+    /**
+     * 移除身份请求头，只有网关校验通过后才能携带
+     *
+     * @param exchange
+     * @return
+     */
+    private ServerWebExchange stripIdentity(ServerWebExchange exchange) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        if (!headers.containsKey(JWTConstant.IDENTITY_HEADER)
+                && !headers.containsKey(JWTConstant.IDENTITY_TIMESTAMP_HEADER)
+                && !headers.containsKey(JWTConstant.IDENTITY_SIGNATURE_HEADER)) {
+            return exchange;
+        }
+        return exchange.mutate().request(request -> request.headers(httpHeaders -> {
+            httpHeaders.remove(JWTConstant.IDENTITY_HEADER);
+            httpHeaders.remove(JWTConstant.IDENTITY_TIMESTAMP_HEADER);
+            httpHeaders.remove(JWTConstant.IDENTITY_SIGNATURE_HEADER);
+        })).build();
+    }
+
+    /**
+     * 添加签名的身份请求头
+     *
+     * @param exchange
+     * @param claims
+     * @param userType
+     * @return
+     */
+    private ServerWebExchange withIdentity(ServerWebExchange exchange, Claims claims, String userType) {
+        String identity = TrustedIdentity.encode(claims, userType);
+        long timestamp = System.currentTimeMillis();
+        String signature = TrustedIdentity.sign(TrustedIdentity.PURPOSE_IDENTITY, identity, timestamp);
+        return exchange.mutate().request(request -> request.headers(httpHeaders -> {
+            httpHeaders.set(JWTConstant.IDENTITY_HEADER, identity);
+            httpHeaders.set(JWTConstant.IDENTITY_TIMESTAMP_HEADER, String.valueOf(timestamp));
+            httpHeaders.set(JWTConstant.IDENTITY_SIGNATURE_HEADER, signature);
+        })).build();
+    }
+
     /**
      * 资源路径放行判断
      *
@@ -89,8 +135,7 @@ public class MRKRequestGlobalFilter implements GlobalFilter, Ordered {
      * @return
      */
     private boolean isSkip(String path){
-        return AuthProvider.getDefaultSkipUrl().stream().anyMatch(pattern -> antPathMatcher.match(pattern, path))
-                || authProperties.getSkipUrl().stream().anyMatch(pattern -> antPathMatcher.match(pattern, path));
+        return skipPathProvider.isSkip(path);
     }
 
     /**
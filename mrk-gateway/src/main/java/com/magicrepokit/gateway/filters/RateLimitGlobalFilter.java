@@ -0,0 +1,99 @@
+package com.magicrepokit.gateway.filters;
+
+import cn.hutool.json.JSONUtil;
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.constant.GateWayResult;
+import com.magicrepokit.gateway.props.RateLimitProperties;
+import com.magicrepokit.gateway.provider.RateLimitProvider;
+import com.magicrepokit.gateway.provider.ResponseProvider;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 限流过滤器，按用户+规则令牌桶限流，在令牌校验之后执行
+ */
+@Component
+@Log4j2
+@AllArgsConstructor
+public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
+    private static final String METRIC_NAME = "mrk.gateway.rate.limit";
+
+    private final RateLimitProvider rateLimitProvider;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String path = exchange.getRequest().getURI().getPath();
+        RateLimitProperties.Rule rule = rateLimitProvider.match(path);
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+        String routeId = getRouteId(exchange);
+        return rateLimitProvider.acquire(rule, getUser(exchange))
+                .flatMap(waitMillis -> {
+                    if (waitMillis > 0) {
+                        Metrics.counter(METRIC_NAME, "rule", rule.getName(), "route", routeId, "result", "throttled").increment();
+                        return tooManyRequests(exchange.getResponse(), waitMillis);
+                    }
+                    Metrics.counter(METRIC_NAME, "rule", rule.getName(), "route", routeId, "result", "allowed").increment();
+                    return chain.filter(exchange);
+                });
+    }
+
+    /**
+     * 在令牌校验(-1000)之后执行，才能拿到用户
+     * @return
+     */
+    @Override
+    public int getOrder() {
+        return -900;
+    }
+
+    /**
+     * 用户标识，未登录(放行路径)按客户端地址限流
+     */
+    private String getUser(ServerWebExchange exchange) {
+        String userKey = exchange.getAttribute(GateWayConstant.USER_KEY_ATTRIBUTE);
+        if (userKey != null) {
+            return userKey;
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remoteAddress == null ? "unknown" : remoteAddress.getAddress().getHostAddress());
+    }
+
+    private String getRouteId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route == null ? "unknown" : route.getId();
+    }
+
+    /**
+     * 限流返回
+     * @param resp
+     * @param waitMillis
+     * @return
+     */
+    private Mono<Void> tooManyRequests(ServerHttpResponse resp, long waitMillis) {
+        resp.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        resp.getHeaders().add("Content-Type", "application/json;charset=UTF-8");
+        resp.getHeaders().add(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMillis + 999) / 1000)));
+        String result = JSONUtil.toJsonStr(ResponseProvider.tooManyRequests(GateWayResult.TOO_MANY_REQUESTS.getMessage()));
+        DataBuffer buffer = resp.bufferFactory().wrap(result.getBytes(StandardCharsets.UTF_8));
+        return resp.writeWith(Flux.just(buffer));
+    }
+}
@@ -0,0 +1,239 @@
+package com.magicrepokit.gateway.filters;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.props.ResponseCacheProperties;
+import com.magicrepokit.gateway.provider.ResponseCacheProvider;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * GET响应缓存过滤器
+ * <p>
+ * 在令牌校验和限流之后执行；命中时直接返回缓存(支持If-None-Match返回304)，
+ * 未命中时缓存200且业务结果成功的非流式响应，SSE请求和响应不缓存
+ */
+@Component
+@AllArgsConstructor
+public class ResponseCacheGlobalFilter implements GlobalFilter, Ordered {
+    private static final String METRIC_NAME = "mrk.gateway.response.cache.requests";
+    private static final String CACHE_HEADER = "X-Mrk-Cache";
+
+    private final ResponseCacheProvider responseCacheProvider;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!responseCacheProvider.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getURI().getPath();
+        if (request.getMethod() != HttpMethod.GET) {
+            //写请求清空相关缓存
+            if (request.getMethod() != HttpMethod.HEAD && request.getMethod() != HttpMethod.OPTIONS) {
+                responseCacheProvider.evict(path);
+            }
+            return chain.filter(exchange);
+        }
+        if (isEventStream(request.getHeaders().getAccept())) {
+            return chain.filter(exchange);
+        }
+        ResponseCacheProperties.Rule rule = responseCacheProvider.match(path);
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+        String user = exchange.getAttribute(GateWayConstant.USER_KEY_ATTRIBUTE);
+        String pathAndQuery = request.getURI().getRawQuery() == null ? path : path + "?" + request.getURI().getRawQuery();
+        String language = request.getHeaders().getFirst(HttpHeaders.ACCEPT_LANGUAGE);
+        String key = responseCacheProvider.getKey(rule, pathAndQuery, language, user == null ? "-" : user);
+        ResponseCacheProvider.CachedResponse cached = responseCacheProvider.get(key);
+        if (cached != null) {
+            return writeCached(exchange, rule, cached);
+        }
+        Metrics.counter(METRIC_NAME, "rule", rule.getName(), "result", "miss").increment();
+        return chain.filter(exchange.mutate().response(new CachingResponse(exchange, rule, key)).build());
+    }
+
+    /**
+     * 需要在NettyWriteResponseFilter(-1)之前执行才能包装响应
+     * @return
+     */
+    @Override
+    public int getOrder() {
+        return -800;
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseCacheProperties.Rule rule, ResponseCacheProvider.CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setETag(cached.getEtag());
+        response.getHeaders().set(CACHE_HEADER, "HIT");
+        if (etagMatches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.getEtag())) {
+            Metrics.counter(METRIC_NAME, "rule", rule.getName(), "result", "not_modified").increment();
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        Metrics.counter(METRIC_NAME, "rule", rule.getName(), "result", "hit").increment();
+        response.setStatusCode(HttpStatus.OK);
+        if (cached.getContentType() != null) {
+            response.getHeaders().setContentType(cached.getContentType());
+        }
+        response.getHeaders().setContentLength(cached.getBody().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private static boolean isEventStream(List<MediaType> mediaTypes) {
+        for (MediaType mediaType : mediaTypes) {
+            if (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(mediaType) && !mediaType.isWildcardType()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long byteCount(List<DataBuffer> buffers) {
+        long count = 0;
+        for (DataBuffer buffer : buffers) {
+            count += buffer.readableByteCount();
+        }
+        return count;
+    }
+
+    private static boolean etagMatches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || etag.equals(candidate) || etag.equals(candidate.replaceFirst("^W/", ""))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缓存响应内容
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+        private final ServerWebExchange exchange;
+        private final ResponseCacheProperties.Rule rule;
+        private final String key;
+
+        private CachingResponse(ServerWebExchange exchange, ResponseCacheProperties.Rule rule, String key) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.rule = rule;
+            this.key = key;
+        }
+
+        /**
+         * 响应内容在大小限制内时暂存，完整接收后缓存；超出限制后把已暂存的和剩余内容直接写出，不再继续缓冲
+         */
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isCacheable()) {
+                return super.writeWith(body);
+            }
+            int maxEntryBytes = responseCacheProvider.getMaxEntryBytes();
+            //未超出限制前攒成一批(只有响应结束时才会发出)，超出后每个分片单独发出
+            Flux<List<DataBuffer>> chunks = Flux.from(body).map(DataBuffer.class::cast).bufferUntil(new Predicate<DataBuffer>() {
+                private long size;
+
+                @Override
+                public boolean test(DataBuffer buffer) {
+                    size += buffer.readableByteCount();
+                    return size > maxEntryBytes;
+                }
+            });
+            return chunks.switchOnFirst((first, rest) -> {
+                if (first.hasValue() && byteCount(first.get()) <= maxEntryBytes) {
+                    return rest.next().flatMap(this::writeComplete);
+                }
+                return getDelegate().writeWith(rest.concatMapIterable(Function.identity()));
+            }).then();
+        }
+
+        private Mono<Void> writeComplete(List<DataBuffer> buffers) {
+            DataBuffer buffer = bufferFactory().join(buffers);
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            if (isSuccessResult(bytes)) {
+                String etag = "\"" + DigestUtil.md5Hex(bytes) + "\"";
+                responseCacheProvider.put(key, rule, bytes, getHeaders().getContentType(), etag);
+                getHeaders().setETag(etag);
+                getHeaders().set(CACHE_HEADER, "MISS");
+                if (etagMatches(exchange.getRequest().getHeaders().getIfNoneMatch(), etag)) {
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                    return getDelegate().setComplete();
+                }
+            }
+            return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+        }
+
+        /**
+         * json响应为R时只缓存成功的结果，HTTP 200但业务失败的响应不缓存
+         */
+        private boolean isSuccessResult(byte[] bytes) {
+            MediaType contentType = getHeaders().getContentType();
+            if (contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                return true;
+            }
+            try {
+                Object json = JSONUtil.parse(new String(bytes, StandardCharsets.UTF_8));
+                if (!(json instanceof JSONObject) || !((JSONObject) json).containsKey(GateWayConstant.RESULT_CODE)) {
+                    return true;
+                }
+                Integer code = ((JSONObject) json).getInt(GateWayConstant.RESULT_CODE);
+                return code != null && code == GateWayConstant.RESULT_SUCCESS_CODE;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        /**
+         * 只缓存200、非流式、未压缩、不设置cookie、不禁止缓存且大小在限制内的响应
+         */
+        private boolean isCacheable() {
+            HttpStatus status = getStatusCode();
+            if (status != null && status != HttpStatus.OK) {
+                return false;
+            }
+            HttpHeaders headers = getHeaders();
+            MediaType contentType = headers.getContentType();
+            if (contentType != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+                return false;
+            }
+            if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return false;
+            }
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null && cacheControl.contains("no-store")) {
+                return false;
+            }
+            long contentLength = headers.getContentLength();
+            return contentLength < 0 || contentLength <= responseCacheProvider.getMaxEntryBytes();
+        }
+    }
+}
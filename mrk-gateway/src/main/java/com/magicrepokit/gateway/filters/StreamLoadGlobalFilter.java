@@ -0,0 +1,46 @@
+package com.magicrepokit.gateway.filters;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.provider.StreamLoadProvider;
+import lombok.AllArgsConstructor;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 长连接结束后释放负载均衡记录的转发中连接
+ * <p>
+ * 负载均衡的完成回调在收到响应头时触发，SSE此时才刚开始，
+ * 因此在写响应过滤器(NettyWriteResponseFilter)外层等待响应体写完或客户端断开后释放
+ */
+@Component
+@AllArgsConstructor
+public class StreamLoadGlobalFilter implements GlobalFilter, Ordered {
+    private final StreamLoadProvider streamLoadProvider;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return chain.filter(exchange).doFinally(signal -> {
+            Response<ServiceInstance> response = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (response != null && response.hasServer()
+                    && GateWayConstant.CHAT_SERVICE_ID.equalsIgnoreCase(response.getServer().getServiceId())) {
+                streamLoadProvider.release(response.getServer());
+            }
+        });
+    }
+
+    /**
+     * 需要在NettyWriteResponseFilter(-1)之前执行才能等到响应写完
+     * @return
+     */
+    @Override
+    public int getOrder() {
+        return -700;
+    }
+}
@@ -17,4 +17,14 @@ public class AuthProperties {
      * 放行API集合
      */
     private final List<String> skipUrl = new ArrayList<>();
+
+    /**
+     * 令牌校验本地缓存时间(秒)，需小于令牌有效期；令牌变更通过redis频道即时失效，该时间只是兜底
+     */
+    private long sessionCacheSeconds = 60;
+
+    /**
+     * 令牌校验本地缓存最大数量
+     */
+    private long sessionCacheMaxSize = 100000;
 }
@@ -0,0 +1,53 @@
+package com.magicrepokit.gateway.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@RefreshScope
+@Component
+@ConfigurationProperties("mrk.rate-limit")
+public class RateLimitProperties {
+    /**
+     * 是否开启限流
+     */
+    private boolean enabled = false;
+
+    /**
+     * 限流规则，按顺序匹配第一个
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        /**
+         * 规则名称(指标标签)
+         */
+        private String name;
+
+        /**
+         * 匹配路径(ant风格，网关外部路径)
+         */
+        private String path;
+
+        /**
+         * 令牌桶容量(允许的突发请求数)
+         */
+        private int capacity = 10;
+
+        /**
+         * 每秒补充令牌数
+         */
+        private double refillPerSecond = 1;
+
+        /**
+         * 每次从redis预取的令牌数，剩余的在本地消耗，减少redis访问
+         */
+        private int batch = 1;
+    }
+}
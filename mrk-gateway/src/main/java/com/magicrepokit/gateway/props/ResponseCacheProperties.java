@@ -0,0 +1,63 @@
+package com.magicrepokit.gateway.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@RefreshScope
+@Component
+@ConfigurationProperties("mrk.response-cache")
+public class ResponseCacheProperties {
+    /**
+     * 是否开启GET响应缓存
+     */
+    private boolean enabled = false;
+
+    /**
+     * 缓存总大小(字节)
+     */
+    private long maxBytes = 64 * 1024 * 1024;
+
+    /**
+     * 单个响应最大大小(字节)，超出不缓存
+     */
+    private int maxEntryBytes = 1024 * 1024;
+
+    /**
+     * 缓存规则，按顺序匹配第一个
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        /**
+         * 规则名称
+         */
+        private String name;
+
+        /**
+         * 匹配路径(ant风格，网关外部路径)
+         */
+        private String path;
+
+        /**
+         * 缓存时间(秒)
+         */
+        private long ttlSeconds = 30;
+
+        /**
+         * 是否按用户区分缓存(返回内容与当前用户有关时开启)
+         */
+        private boolean perUser = true;
+
+        /**
+         * 匹配该路径的非GET请求清空本规则的缓存(ant风格，可为空)
+         */
+        private String evictPath;
+    }
+}
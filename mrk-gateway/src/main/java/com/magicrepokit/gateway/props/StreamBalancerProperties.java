@@ -0,0 +1,42 @@
+package com.magicrepokit.gateway.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.stereotype.Component;
+
+@Data
+@RefreshScope
+@Component
+@ConfigurationProperties("mrk.stream-balancer")
+public class StreamBalancerProperties {
+    /**
+     * 是否按连接数负载均衡，关闭时轮询
+     */
+    private boolean enabled = true;
+
+    /**
+     * 是否按会话id固定节点(一致性哈希)
+     */
+    private boolean affinity = true;
+
+    /**
+     * 会话id请求头
+     */
+    private String affinityHeader = "Conversation-Id";
+
+    /**
+     * 会话id请求参数(请求头不存在时使用)
+     */
+    private String affinityParam = "conversationId";
+
+    /**
+     * 固定节点比最空闲节点多出的连接数超过该值时视为过载，改为选择最空闲节点
+     */
+    private int overloadThreshold = 4;
+
+    /**
+     * 一致性哈希每个节点的虚拟节点数
+     */
+    private int virtualNodes = 160;
+}
@@ -0,0 +1,176 @@
+package com.magicrepokit.gateway.provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.props.RateLimitProperties;
+import com.magicrepokit.gateway.support.PathRuleMatcher;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分布式令牌桶限流
+ * <p>
+ * 令牌桶保存在redis中，由lua脚本原子地补充和扣减；
+ * 规则配置了batch时一次预取多个令牌在本地消耗，本地令牌只在短时间内有效，过期未用完的直接丢弃
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class RateLimitProvider {
+    /**
+     * 本地预取令牌有效时间(毫秒)
+     */
+    private static final long LOCAL_PERMIT_MILLIS = 1000;
+
+    /**
+     * KEYS[1] 令牌桶; ARGV 容量,每秒补充数,请求令牌数
+     * 当前时间取redis服务器时间，各网关节点时钟不一致也不会多补或少补令牌；
+     * TIME是非确定命令，redis5以下需先开启按效果复制才能继续写入
+     * 返回获得的令牌数(可能少于请求数)，没有令牌时返回 -需要等待的毫秒数
+     */
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "redis.replicate_commands()\n" +
+            "local capacity = tonumber(ARGV[1])\n" +
+            "local rate = tonumber(ARGV[2])\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local requested = tonumber(ARGV[3])\n" +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+            "local tokens = tonumber(bucket[1])\n" +
+            "local ts = tonumber(bucket[2])\n" +
+            "if tokens == nil or ts == nil then\n" +
+            "  tokens = capacity\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "if now > ts then\n" +
+            "  tokens = math.min(capacity, tokens + (now - ts) * rate / 1000)\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "local granted = math.min(requested, math.floor(tokens))\n" +
+            "tokens = tokens - granted\n" +
+            "redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))\n" +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * 1000 / rate) + 1000)\n" +
+            "if granted > 0 then\n" +
+            "  return granted\n" +
+            "end\n" +
+            "return -math.max(1, math.ceil((1 - tokens) * 1000 / rate))",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final RateLimitProperties rateLimitProperties;
+    /**
+     * 本地预取的令牌 规则名:用户 -> 令牌
+     */
+    private final Cache<String, LocalPermits> localPermits = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(LOCAL_PERMIT_MILLIS, TimeUnit.MILLISECONDS)
+            .build();
+    private volatile Rules rules;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * 配置刷新后重新编译规则
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        rebuild();
+        localPermits.invalidateAll();
+    }
+
+    /**
+     * 匹配限流规则
+     *
+     * @param path 请求路径
+     * @return 未开启或没有匹配的规则返回null
+     */
+    public RateLimitProperties.Rule match(String path) {
+        Rules current = rules;
+        if (!current.enabled) {
+            return null;
+        }
+        return current.matcher.match(path);
+    }
+
+    /**
+     * 获取一个令牌
+     *
+     * @param rule 限流规则
+     * @param user 用户标识
+     * @return 等待毫秒数，0表示获取成功
+     */
+    public Mono<Long> acquire(RateLimitProperties.Rule rule, String user) {
+        String key = rule.getName() + ":" + user;
+        LocalPermits permits = localPermits.getIfPresent(key);
+        if (permits != null && permits.tryAcquire()) {
+            return Mono.just(0L);
+        }
+        int batch = Math.max(1, rule.getBatch());
+        List<String> args = Arrays.asList(String.valueOf(rule.getCapacity()), String.valueOf(rule.getRefillPerSecond()),
+                String.valueOf(batch));
+        return reactiveStringRedisTemplate.execute(TOKEN_BUCKET_SCRIPT, Collections.singletonList(GateWayConstant.REDIS_KEY_RATE_LIMIT + key), args)
+                .next()
+                .map(result -> {
+                    if (result <= 0) {
+                        return -result;
+                    }
+                    if (result > 1) {
+                        localPermits.put(key, new LocalPermits(new AtomicInteger((int) (result - 1))));
+                    }
+                    return 0L;
+                })
+                .onErrorResume(e -> {
+                    //redis不可用时放行，不影响正常访问
+                    log.warn("[限流]令牌桶访问失败,放行:{}", e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    private void rebuild() {
+        List<RateLimitProperties.Rule> ruleList = new ArrayList<>();
+        for (RateLimitProperties.Rule rule : rateLimitProperties.getRules()) {
+            if (rule.getName() == null || rule.getPath() == null || rule.getCapacity() <= 0 || rule.getRefillPerSecond() <= 0) {
+                log.warn("[限流]规则配置无效,忽略:{}", rule);
+                continue;
+            }
+            ruleList.add(rule);
+        }
+        rules = new Rules(rateLimitProperties.isEnabled(), new PathRuleMatcher<>(ruleList, RateLimitProperties.Rule::getPath));
+        log.info("[限流]规则编译完成,开启:{},规则数量:{}", rateLimitProperties.isEnabled(), ruleList.size());
+    }
+
+    @AllArgsConstructor
+    private static class LocalPermits {
+        private final AtomicInteger remaining;
+
+        private boolean tryAcquire() {
+            return remaining.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Rules {
+        private final boolean enabled;
+        private final PathRuleMatcher<RateLimitProperties.Rule> matcher;
+    }
+}
@@ -0,0 +1,209 @@
+package com.magicrepokit.gateway.provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.props.ResponseCacheProperties;
+import com.magicrepokit.gateway.support.PathPatternTrie;
+import com.magicrepokit.gateway.support.PathRuleMatcher;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET响应缓存
+ * <p>
+ * 按规则(路径)缓存GET响应，每条规则有自己的缓存时间；缓存按响应大小计算权重，超出总大小时淘汰；
+ * 匹配规则evictPath的写请求清空该规则的缓存，并通过redis频道通知其他网关节点，
+ * 频道断开期间清空全部缓存并依靠缓存时间过期兜底
+ */
+@Log4j2
+@Component
+public class ResponseCacheProvider {
+    private static final String KEY_SEPARATOR = "|";
+
+    private final ResponseCacheProperties responseCacheProperties;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final Cache<String, CachedResponse> cache;
+    private volatile Rules rules;
+    private Disposable subscription;
+
+    public ResponseCacheProvider(ResponseCacheProperties responseCacheProperties, ReactiveStringRedisTemplate reactiveStringRedisTemplate) {
+        this.responseCacheProperties = responseCacheProperties;
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(responseCacheProperties.getMaxBytes())
+                .weigher((String key, CachedResponse value) -> key.length() * 2 + value.body.length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return value.ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return value.ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "mrk.gateway.response");
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        subscription = reactiveStringRedisTemplate.listenToChannel(GateWayConstant.REDIS_CHANNEL_RESPONSE_CACHE)
+                .doOnSubscribe(s -> cache.invalidateAll())
+                .doOnError(e -> {
+                    log.warn("[响应缓存]失效通知订阅中断,清空本地缓存后重连:{}", e.getMessage());
+                    cache.invalidateAll();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> evictRule(message.getMessage()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * 配置刷新后重新编译规则并清空缓存
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        rebuild();
+        cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(responseCacheProperties.getMaxBytes()));
+        cache.invalidateAll();
+    }
+
+    public boolean isEnabled() {
+        return rules.enabled;
+    }
+
+    public int getMaxEntryBytes() {
+        return rules.maxEntryBytes;
+    }
+
+    /**
+     * 匹配缓存规则
+     *
+     * @param path 请求路径
+     * @return 没有匹配的规则返回null
+     */
+    public ResponseCacheProperties.Rule match(String path) {
+        return rules.matcher.match(path);
+    }
+
+    /**
+     * 缓存key 规则名|路径?参数|语言|用户
+     *
+     * @param rule     规则
+     * @param pathAndQuery 路径和参数
+     * @param language 请求头Accept-Language，返回内容按语言国际化
+     * @param user     用户标识
+     * @return key
+     */
+    public String getKey(ResponseCacheProperties.Rule rule, String pathAndQuery, String language, String user) {
+        return rule.getName() + KEY_SEPARATOR + pathAndQuery + KEY_SEPARATOR + (language == null ? "" : language)
+                + KEY_SEPARATOR + (rule.isPerUser() ? user : "");
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, ResponseCacheProperties.Rule rule, byte[] body, MediaType contentType, String etag) {
+        cache.put(key, new CachedResponse(body, contentType, etag, TimeUnit.SECONDS.toNanos(rule.getTtlSeconds())));
+    }
+
+    /**
+     * 写请求清空相关规则的缓存，本节点立即清空，其他节点通过频道通知清空
+     *
+     * @param path 请求路径
+     */
+    public void evict(String path) {
+        for (EvictRule evictRule : rules.evictRules) {
+            if (evictRule.trie.matches(path)) {
+                evictRule(evictRule.name);
+                reactiveStringRedisTemplate.convertAndSend(GateWayConstant.REDIS_CHANNEL_RESPONSE_CACHE, evictRule.name)
+                        .subscribe(null, e -> log.warn("[响应缓存]失效通知发送失败,规则:{},{}", evictRule.name, e.getMessage()));
+            }
+        }
+    }
+
+    private void evictRule(String name) {
+        String prefix = name + KEY_SEPARATOR;
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private void rebuild() {
+        List<ResponseCacheProperties.Rule> ruleList = new ArrayList<>();
+        List<EvictRule> evictRules = new ArrayList<>();
+        for (ResponseCacheProperties.Rule rule : responseCacheProperties.getRules()) {
+            if (rule.getName() == null || rule.getPath() == null || rule.getTtlSeconds() <= 0) {
+                log.warn("[响应缓存]规则配置无效,忽略:{}", rule);
+                continue;
+            }
+            ruleList.add(rule);
+            if (rule.getEvictPath() != null) {
+                evictRules.add(new EvictRule(rule.getName(), new PathPatternTrie(Collections.singletonList(rule.getEvictPath()))));
+            }
+        }
+        rules = new Rules(responseCacheProperties.isEnabled(), responseCacheProperties.getMaxEntryBytes(),
+                new PathRuleMatcher<>(ruleList, ResponseCacheProperties.Rule::getPath), evictRules);
+        log.info("[响应缓存]规则编译完成,开启:{},规则数量:{}", responseCacheProperties.isEnabled(), ruleList.size());
+    }
+
+    /**
+     * 缓存的响应
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class CachedResponse {
+        private final byte[] body;
+        private final MediaType contentType;
+        private final String etag;
+        private final long ttlNanos;
+    }
+
+    @AllArgsConstructor
+    private static class EvictRule {
+        private final String name;
+        private final PathPatternTrie trie;
+    }
+
+    @AllArgsConstructor
+    private static class Rules {
+        private final boolean enabled;
+        private final int maxEntryBytes;
+        private final PathRuleMatcher<ResponseCacheProperties.Rule> matcher;
+        private final List<EvictRule> evictRules;
+    }
+}
@@ -57,6 +57,16 @@ public class ResponseProvider {
 		return response(401, message);
 	}
 
+	/**
+	 * 请求过多
+	 *
+	 * @param message 信息
+	 * @return
+	 */
+	public static Map<String, Object> tooManyRequests(String message) {
+		return response(429, message);
+	}
+
 	/**
 	 * 服务器异常
 	 *
@@ -0,0 +1,74 @@
+package com.magicrepokit.gateway.provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.magicrepokit.gateway.props.AuthProperties;
+import com.magicrepokit.gateway.support.PathPatternTrie;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 放行路径判断
+ * <p>
+ * 默认放行路径和配置的放行路径在启动及nacos配置刷新后编译为路径匹配树，
+ * 最近的判断结果缓存在有界的本地缓存中
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class SkipPathProvider {
+    private static final long DECISION_CACHE_SIZE = 10000;
+
+    private final AuthProperties authProperties;
+    private volatile Policy policy;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * 配置刷新后重新编译
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        rebuild();
+    }
+
+    /**
+     * 是否放行
+     *
+     * @param path 请求路径
+     * @return 是否放行
+     */
+    public boolean isSkip(String path) {
+        Policy current = policy;
+        Boolean skip = current.decisions.getIfPresent(path);
+        if (skip == null) {
+            skip = current.trie.matches(path);
+            current.decisions.put(path, skip);
+        }
+        return skip;
+    }
+
+    private void rebuild() {
+        List<String> patterns = new ArrayList<>(AuthProvider.getDefaultSkipUrl());
+        patterns.addAll(authProperties.getSkipUrl());
+        policy = new Policy(new PathPatternTrie(patterns));
+        log.info("[放行路径]编译完成,模式数量:{}", patterns.size());
+    }
+
+    @AllArgsConstructor
+    private static class Policy {
+        private final PathPatternTrie trie;
+        private final Cache<String, Boolean> decisions = Caffeine.newBuilder().maximumSize(DECISION_CACHE_SIZE).build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.magicrepokit.gateway.provider;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 聊天节点负载
+ * <p>
+ * 定时从redis批量读取各节点上报的SSE连接数；上报有延迟，同时记录本网关转发中的连接数，
+ * 节点负载取两者较大值，避免上报间隔内的突发请求全部落到同一节点
+ */
+@Log4j2
+@Component
+public class StreamLoadProvider {
+    private static final long REFRESH_MILLIS = 1000;
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    /**
+     * 本网关转发中的连接数 节点 -> 连接数
+     */
+    private final Map<String, AtomicInteger> inflight = new ConcurrentHashMap<>();
+    private volatile List<String> nodes = Collections.emptyList();
+    private volatile Map<String, Integer> reported = Collections.emptyMap();
+    private volatile int skew;
+    private volatile double skewRatio = 1;
+    private Disposable refresher;
+
+    public StreamLoadProvider(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        Gauge.builder("mrk.gateway.stream.skew", this, provider -> provider.skew)
+                .description("连接数最多与最少节点的差值")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("mrk.gateway.stream.skew.ratio", this, provider -> provider.skewRatio)
+                .description("连接数最多节点与平均值的比值")
+                .register(Metrics.globalRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        refresher = Flux.interval(Duration.ofMillis(REFRESH_MILLIS))
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * 节点标识 host:port，与聊天节点上报的key一致
+     */
+    public static String getNodeId(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * 更新需要读取负载的节点
+     *
+     * @param nodeIds 当前可用节点
+     */
+    public void setNodes(List<String> nodeIds) {
+        nodes = nodeIds;
+        inflight.keySet().retainAll(nodeIds);
+    }
+
+    /**
+     * 节点当前负载
+     */
+    public int getLoad(String nodeId) {
+        AtomicInteger local = inflight.get(nodeId);
+        return Math.max(reported.getOrDefault(nodeId, 0), local == null ? 0 : local.get());
+    }
+
+    /**
+     * 选中节点后记录转发中的连接
+     */
+    public void acquire(ServiceInstance instance) {
+        inflight.computeIfAbsent(getNodeId(instance), key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * 连接结束后释放
+     */
+    public void release(ServiceInstance instance) {
+        AtomicInteger local = inflight.get(getNodeId(instance));
+        if (local != null) {
+            local.getAndUpdate(n -> n > 0 ? n - 1 : 0);
+        }
+    }
+
+    private Mono<Void> refresh() {
+        List<String> current = nodes;
+        if (current.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> keys = current.stream().map(node -> GateWayConstant.REDIS_KEY_CHAT_STREAMS + node).collect(Collectors.toList());
+        return reactiveRedisTemplate.opsForValue().multiGet(keys)
+                .doOnNext(values -> {
+                    Map<String, Integer> loads = new HashMap<>(current.size());
+                    for (int i = 0; i < current.size(); i++) {
+                        Object value = values.get(i);
+                        if (value instanceof Number) {
+                            loads.put(current.get(i), ((Number) value).intValue());
+                        }
+                    }
+                    reported = loads;
+                    updateSkew(current);
+                })
+                .onErrorResume(e -> {
+                    log.warn("[负载均衡]读取节点连接数失败:{}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void updateSkew(List<String> current) {
+        List<Integer> loads = new ArrayList<>(current.size());
+        for (String node : current) {
+            loads.add(getLoad(node));
+        }
+        int max = Collections.max(loads);
+        int min = Collections.min(loads);
+        double avg = loads.stream().mapToInt(Integer::intValue).average().orElse(0);
+        skew = max - min;
+        skewRatio = avg > 0 ? max / avg : 1;
+    }
+}
@@ -0,0 +1,149 @@
+package com.magicrepokit.gateway.provider;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.magicrepokit.gateway.props.AuthProperties;
+import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.properties.JWTProperties;
+import com.magicrepokit.jwt.support.TokenRevocationRegistry;
+import com.magicrepokit.jwt.utils.JWTUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌状态(响应式)
+ * <p>
+ * 本地缓存 用户类型:用户id -> 当前令牌摘要，命中时不再访问redis；
+ * 登录、刷新、退出时认证服务通过redis频道通知失效，频道断开期间依靠缓存过期兜底
+ */
+@Log4j2
+@Component
+public class TokenProvider {
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final Cache<String, String> sessions;
+    /**
+     * 每个key的失效次数，查询redis期间该key发生失效(或计数被回收)时不回填缓存，避免写入过期数据
+     */
+    private final Cache<String, AtomicLong> invalidations;
+    private final Counter redisAvoided = Metrics.counter("mrk.gateway.session.redis.avoided");
+    private Disposable subscription;
+
+    public TokenProvider(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate, AuthProperties authProperties,
+                         JWTProperties jwtProperties) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        long ttl = Math.min(authProperties.getSessionCacheSeconds(), jwtProperties.getAccessTokenValiditySeconds());
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(authProperties.getSessionCacheMaxSize())
+                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.invalidations = Caffeine.newBuilder()
+                .maximumSize(authProperties.getSessionCacheMaxSize())
+                .expireAfterAccess(ttl, TimeUnit.SECONDS)
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, sessions, "mrk.gateway.session");
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = reactiveRedisTemplate.listenToChannel(JWTConstant.REDIS_CHANNEL_ACCESS_TOKEN)
+                .doOnSubscribe(s -> invalidateAll())
+                .doOnError(e -> {
+                    log.warn("[令牌缓存]失效通知订阅中断,清空本地缓存后重连:{}", e.getMessage());
+                    invalidateAll();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> invalidate(String.valueOf(message.getMessage())));
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * 校验请求令牌
+     * 吊销模式只检查本地吊销列表，不访问redis；否则与当前有效令牌比较
+     *
+     * @param claims   令牌内容
+     * @param userType 用户类型
+     * @param token    请求令牌
+     * @return 是否有效
+     */
+    public Mono<Boolean> validate(Claims claims, String userType, String token) {
+        TokenRevocationRegistry registry = JWTUtil.getTokenRevocationRegistry();
+        if (registry.isEnabled()) {
+            return Mono.just(!registry.isRevoked(claims, userType));
+        }
+        return validate(Long.valueOf(String.valueOf(claims.get(JWTConstant.USER_ID))), userType, token);
+    }
+
+    /**
+     * 校验请求令牌是否为当前有效令牌
+     *
+     * @param userId   用户id
+     * @param userType 用户类型
+     * @param token    请求令牌
+     * @return 是否有效
+     */
+    public Mono<Boolean> validate(Long userId, String userType, String token) {
+        String key = userType + ":" + userId;
+        String tokenHash = DigestUtil.sha256Hex(token);
+        String cached = sessions.getIfPresent(key);
+        if (cached != null) {
+            redisAvoided.increment();
+            return Mono.just(cached.equals(tokenHash));
+        }
+        AtomicLong counter = invalidations.get(key, k -> new AtomicLong());
+        long version = counter.get();
+        return getAccessToken(userId, userType)
+                .map(accessToken -> {
+                    String accessTokenHash = DigestUtil.sha256Hex(accessToken);
+                    if (invalidations.getIfPresent(key) == counter && counter.get() == version) {
+                        sessions.put(key, accessTokenHash);
+                    }
+                    return accessTokenHash.equals(tokenHash);
+                })
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 获取保存在redis的accessToken，单次HGET，不存在时为空
+     *
+     * @param userId   用户id
+     * @param userType 用户类型
+     * @return accessToken
+     */
+    public Mono<String> getAccessToken(Long userId, String userType) {
+        return reactiveRedisTemplate.<String, Object>opsForHash()
+                .get(JWTUtil.getTokenSessionRedisKey(userId, userType), JWTConstant.TOKEN_SESSION_ACCESS)
+                .map(String::valueOf);
+    }
+
+    private void invalidate(String key) {
+        invalidations.get(key, k -> new AtomicLong()).incrementAndGet();
+        sessions.invalidate(key);
+    }
+
+    private void invalidateAll() {
+        invalidations.invalidateAll();
+        sessions.invalidateAll();
+    }
+}
@@ -0,0 +1,53 @@
+package com.magicrepokit.gateway.support;
+
+import cn.hutool.core.util.HashUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 一致性哈希环
+ * <p>
+ * 每个节点放置多个虚拟节点使分布均匀，节点增减时只有相邻区间的key改变归属
+ *
+ * @param <T> 节点类型
+ */
+public class ConsistentHashRing<T> {
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * @param nodes        节点
+     * @param idFunction   节点标识
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRing(List<T> nodes, Function<T, String> idFunction, int virtualNodes) {
+        int replicas = Math.max(1, virtualNodes);
+        for (T node : nodes) {
+            String id = idFunction.apply(node);
+            for (int i = 0; i < replicas; i++) {
+                ring.put(hash(id + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * 获取key所属节点
+     *
+     * @param key key
+     * @return 没有节点时返回null
+     */
+    public T get(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    private static long hash(String key) {
+        return HashUtil.murmur64(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,201 @@
+package com.magicrepokit.gateway.support;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 按路径段预编译的ant风格路径匹配树
+ * <p>
+ * 启动(或配置刷新)时把所有模式拆成路径段建树:普通段走哈希查找，含 * ? {var} 的段预编译为正则，
+ * ** 匹配零个或多个路径段。匹配时只沿树走一遍，不再逐个模式重新解析，结果与AntPathMatcher一致(大小写敏感，忽略空段)。
+ * 开头和结尾的/也按AntPathMatcher处理：开头是否有/必须一致；不含**的模式结尾是否有/必须一致，
+ * 但以/*结尾的模式也匹配以/结尾的上一级路径；含**的模式忽略结尾的/。
+ * 构建后只读，线程安全
+ */
+public class PathPatternTrie {
+    private static final String SEPARATOR = "/";
+    private static final String WILDCARD = "*";
+    private static final String DOUBLE_WILDCARD = "**";
+
+    /**
+     * 以/开头的模式
+     */
+    private final Node root = new Node(null);
+    /**
+     * 不以/开头的模式
+     */
+    private final Node relativeRoot = new Node(null);
+
+    public PathPatternTrie(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            add(pattern);
+        }
+    }
+
+    /**
+     * 路径是否匹配任一模式
+     *
+     * @param path 请求路径
+     * @return 是否匹配
+     */
+    public boolean matches(String path) {
+        if (path == null) {
+            return false;
+        }
+        return match(path.startsWith(SEPARATOR) ? root : relativeRoot, tokenize(path), 0, path.endsWith(SEPARATOR));
+    }
+
+    private void add(String pattern) {
+        if (pattern == null || pattern.isEmpty()) {
+            return;
+        }
+        String[] segments = tokenize(pattern);
+        Node node = pattern.startsWith(SEPARATOR) ? root : relativeRoot;
+        Node parent = null;
+        boolean doubleWildcard = false;
+        for (String segment : segments) {
+            parent = node;
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                doubleWildcard = true;
+                if (node.doubleWildcard == null) {
+                    node.doubleWildcard = new Node(null);
+                }
+                node = node.doubleWildcard;
+            } else if (isLiteral(segment)) {
+                node = node.literals.computeIfAbsent(segment, k -> new Node(null));
+            } else {
+                node = node.patterns.computeIfAbsent(segment, k -> new Node(compile(k)));
+            }
+        }
+        if (segments.length > 0 && DOUBLE_WILDCARD.equals(segments[segments.length - 1])) {
+            node.acceptAny = true;
+            return;
+        }
+        if (doubleWildcard) {
+            node.accept = true;
+            node.acceptWithSeparator = true;
+            return;
+        }
+        if (pattern.endsWith(SEPARATOR)) {
+            node.acceptWithSeparator = true;
+        } else {
+            node.accept = true;
+        }
+        //AntPathMatcher: /a/* 匹配 /a/
+        if (segments.length > 0 && WILDCARD.equals(segments[segments.length - 1])) {
+            parent.acceptWithSeparator = true;
+        }
+    }
+
+    private static boolean match(Node node, String[] segments, int index, boolean trailingSeparator) {
+        //** 匹配零个或多个路径段
+        if (node.doubleWildcard != null) {
+            for (int i = index; i <= segments.length; i++) {
+                if (match(node.doubleWildcard, segments, i, trailingSeparator)) {
+                    return true;
+                }
+            }
+        }
+        if (index == segments.length) {
+            return node.acceptAny || (trailingSeparator ? node.acceptWithSeparator : node.accept);
+        }
+        String segment = segments[index];
+        Node literal = node.literals.get(segment);
+        if (literal != null && match(literal, segments, index + 1, trailingSeparator)) {
+            return true;
+        }
+        for (Node child : node.patterns.values()) {
+            if (child.segmentPattern.matcher(segment).matches() && match(child, segments, index + 1, trailingSeparator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String path) {
+        StringTokenizer tokenizer = new StringTokenizer(path, SEPARATOR);
+        String[] tokens = new String[tokenizer.countTokens()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = tokenizer.nextToken();
+        }
+        return tokens;
+    }
+
+    private static boolean isLiteral(String segment) {
+        return segment.indexOf('*') < 0 && segment.indexOf('?') < 0 && segment.indexOf('{') < 0;
+    }
+
+    /**
+     * 单个路径段编译为正则: * 任意字符，? 单个字符，{name} 任意字符，{name:regex} 指定正则
+     */
+    private static Pattern compile(String segment) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < segment.length()) {
+            char c = segment.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+            }
+            if (c == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '?') {
+                regex.append('.');
+                i++;
+            } else if (c == '{') {
+                int end = closingBrace(segment, i);
+                String variable = segment.substring(i + 1, end);
+                int colon = variable.indexOf(':');
+                regex.append(colon < 0 ? "(.*)" : "(" + variable.substring(colon + 1) + ")");
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static int closingBrace(String segment, int open) {
+        int depth = 0;
+        for (int i = open; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("路径模式缺少'}':" + segment);
+    }
+
+    private static class Node {
+        private final Pattern segmentPattern;
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<String, Node> patterns = new LinkedHashMap<>();
+        private Node doubleWildcard;
+        /**
+         * 路径在此结束且不以/结尾时匹配
+         */
+        private boolean accept;
+        /**
+         * 路径在此结束且以/结尾时匹配
+         */
+        private boolean acceptWithSeparator;
+        /**
+         * 模式以**结尾，剩余路径任意
+         */
+        private boolean acceptAny;
+
+        private Node(Pattern segmentPattern) {
+            this.segmentPattern = segmentPattern;
+        }
+    }
+}
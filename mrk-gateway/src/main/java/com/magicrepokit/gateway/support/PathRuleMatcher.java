@@ -0,0 +1,57 @@
+package com.magicrepokit.gateway.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 按路径匹配规则(按顺序取第一个匹配的规则)，每条规则的路径预编译为匹配树，最近的匹配结果缓存在有界的本地缓存中
+ *
+ * @param <T> 规则类型
+ */
+public class PathRuleMatcher<T> {
+    private static final long DECISION_CACHE_SIZE = 10000;
+
+    private final List<T> rules = new ArrayList<>();
+    private final List<PathPatternTrie> tries = new ArrayList<>();
+    private final Cache<String, Integer> decisions = Caffeine.newBuilder().maximumSize(DECISION_CACHE_SIZE).build();
+
+    public PathRuleMatcher(List<T> rules, Function<T, String> pathOf) {
+        for (T rule : rules) {
+            this.rules.add(rule);
+            this.tries.add(new PathPatternTrie(Collections.singletonList(pathOf.apply(rule))));
+        }
+    }
+
+    /**
+     * 匹配规则
+     *
+     * @param path 请求路径
+     * @return 没有匹配的规则返回null
+     */
+    public T match(String path) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        Integer index = decisions.getIfPresent(path);
+        if (index == null) {
+            index = -1;
+            for (int i = 0; i < tries.size(); i++) {
+                if (tries.get(i).matches(path)) {
+                    index = i;
+                    break;
+                }
+            }
+            decisions.put(path, index);
+        }
+        return index < 0 ? null : rules.get(index);
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+}
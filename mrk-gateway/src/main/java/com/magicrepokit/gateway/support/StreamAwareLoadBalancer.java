@@ -0,0 +1,155 @@
+package com.magicrepokit.gateway.support;
+
+import com.magicrepokit.gateway.props.StreamBalancerProperties;
+import com.magicrepokit.gateway.provider.StreamLoadProvider;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * 长连接负载均衡
+ * <p>
+ * 没有会话id时选择连接数最少的节点；有会话id时按一致性哈希固定到同一节点，
+ * 以便复用节点上的会话缓存，该节点过载(比最空闲节点多出的连接数超过阈值)时改为选择最空闲节点
+ */
+public class StreamAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+    private static final String METRIC_NAME = "mrk.gateway.stream.balance";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final StreamLoadProvider streamLoadProvider;
+    private final StreamBalancerProperties streamBalancerProperties;
+    private final RoundRobinLoadBalancer roundRobinLoadBalancer;
+    private volatile Ring ring;
+
+    public StreamAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider, String serviceId,
+                                   StreamLoadProvider streamLoadProvider, StreamBalancerProperties streamBalancerProperties) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.streamLoadProvider = streamLoadProvider;
+        this.streamBalancerProperties = streamBalancerProperties;
+        this.roundRobinLoadBalancer = new RoundRobinLoadBalancer(serviceInstanceListSupplierProvider, serviceId);
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        if (!streamBalancerProperties.isEnabled()) {
+            //关闭时轮询，仍然记录转发中的连接，保证与释放成对
+            return roundRobinLoadBalancer.choose(request).doOnNext(response -> {
+                if (response.hasServer()) {
+                    streamLoadProvider.acquire(response.getServer());
+                }
+            });
+        }
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances, getAffinityKey(request));
+            if (supplier instanceof SelectedInstanceCallback && response.hasServer()) {
+                ((SelectedInstanceCallback) supplier).selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances, String affinityKey) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        Ring current = getRing(instances);
+        ServiceInstance least = leastLoaded(instances);
+        ServiceInstance chosen = least;
+        String strategy = "least";
+        if (affinityKey != null) {
+            ServiceInstance preferred = current.hashRing.get(affinityKey);
+            int overload = streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(preferred))
+                    - streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(least));
+            if (overload <= streamBalancerProperties.getOverloadThreshold()) {
+                chosen = preferred;
+                strategy = "affinity";
+            } else {
+                strategy = "overflow";
+            }
+        }
+        streamLoadProvider.acquire(chosen);
+        Metrics.counter(METRIC_NAME, "service", serviceId, "strategy", strategy).increment();
+        return new DefaultResponse(chosen);
+    }
+
+    /**
+     * 连接数最少的节点，相同时随机选择
+     */
+    private ServiceInstance leastLoaded(List<ServiceInstance> instances) {
+        ServiceInstance least = null;
+        int leastLoad = Integer.MAX_VALUE;
+        int ties = 0;
+        for (ServiceInstance instance : instances) {
+            int load = streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(instance));
+            if (load < leastLoad) {
+                least = instance;
+                leastLoad = load;
+                ties = 1;
+            } else if (load == leastLoad && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                least = instance;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * 会话id，优先取请求头，其次取请求参数
+     */
+    private String getAffinityKey(Request request) {
+        if (!streamBalancerProperties.isAffinity() || !(request.getContext() instanceof RequestDataContext)) {
+            return null;
+        }
+        RequestData requestData = ((RequestDataContext) request.getContext()).getClientRequest();
+        if (requestData == null) {
+            return null;
+        }
+        String key = requestData.getHeaders().getFirst(streamBalancerProperties.getAffinityHeader());
+        if (key == null && requestData.getUrl() != null && requestData.getUrl().getRawQuery() != null) {
+            key = UriComponentsBuilder.fromUri(requestData.getUrl()).build().getQueryParams().getFirst(streamBalancerProperties.getAffinityParam());
+        }
+        return key == null || key.isEmpty() ? null : key;
+    }
+
+    /**
+     * 节点列表或虚拟节点数变化时重建哈希环
+     */
+    private Ring getRing(List<ServiceInstance> instances) {
+        List<String> nodeIds = instances.stream().map(StreamLoadProvider::getNodeId).sorted().collect(Collectors.toList());
+        int virtualNodes = streamBalancerProperties.getVirtualNodes();
+        Ring current = ring;
+        if (current == null || current.virtualNodes != virtualNodes || !current.nodeIds.equals(nodeIds)) {
+            current = new Ring(nodeIds, virtualNodes, new ConsistentHashRing<>(instances, StreamLoadProvider::getNodeId, virtualNodes));
+            ring = current;
+            streamLoadProvider.setNodes(nodeIds);
+        }
+        return current;
+    }
+
+    @AllArgsConstructor
+    private static class Ring {
+        private final List<String> nodeIds;
+        private final int virtualNodes;
+        private final ConsistentHashRing<ServiceInstance> hashRing;
+    }
+}
@@ -0,0 +1,127 @@
+package com.magicrepokit.gateway.filters;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.props.RateLimitProperties;
+import com.magicrepokit.gateway.provider.RateLimitProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 限流过滤器：429和Retry-After、用户标识和redis不可用时放行
+ */
+public class RateLimitGlobalFilterTest {
+    private ReactiveStringRedisTemplate redisTemplate;
+    private RateLimitGlobalFilter filter;
+    private AtomicInteger forwarded;
+    private GatewayFilterChain chain;
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEnabled(true);
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setName("api");
+        rule.setPath("/api/**");
+        properties.getRules().add(rule);
+        RateLimitProvider rateLimitProvider = new RateLimitProvider(redisTemplate, properties);
+        rateLimitProvider.init();
+        filter = new RateLimitGlobalFilter(rateLimitProvider);
+        forwarded = new AtomicInteger();
+        chain = exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        };
+    }
+
+    @Test
+    public void tooManyRequests() {
+        redisReturns(-1500L);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user"));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        //等待时间向上取整到秒
+        assertEquals("2", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(0, forwarded.get());
+    }
+
+    @Test
+    public void limitByUser() {
+        redisReturns(1L);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 8080)));
+        exchange.getAttributes().put(GateWayConstant.USER_KEY_ATTRIBUTE, "mrk_system:1");
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(1, forwarded.get());
+        verifyKey("api:mrk_system:1");
+    }
+
+    @Test
+    public void limitByClientAddressWithoutUser() {
+        redisReturns(1L);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 8080)));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(1, forwarded.get());
+        verifyKey("api:ip:10.0.0.1");
+    }
+
+    @Test
+    public void allowWhenRedisFails() {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList()))
+                .thenReturn(Flux.error(new RedisConnectionFailureException("down")));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user"));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(1, forwarded.get());
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    public void skipUnmatchedPath() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/auth/token"));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(1, forwarded.get());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private void redisReturns(Long result) {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList()))
+                .thenAnswer(invocation -> Flux.just(result));
+    }
+
+    private void verifyKey(String key) {
+        verify(redisTemplate).execute(ArgumentMatchers.<RedisScript<Long>>any(),
+                eq(Collections.singletonList(GateWayConstant.REDIS_KEY_RATE_LIMIT + key)), anyList());
+    }
+}
@@ -0,0 +1,104 @@
+package com.magicrepokit.gateway.filters;
+
+import com.magicrepokit.gateway.props.ResponseCacheProperties;
+import com.magicrepokit.gateway.provider.ResponseCacheProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 响应缓存过滤器：大小限制、业务结果和语言
+ */
+public class ResponseCacheGlobalFilterTest {
+    private static final int MAX_ENTRY_BYTES = 64;
+
+    private ResponseCacheProvider responseCacheProvider;
+    private ResponseCacheGlobalFilter filter;
+    private ResponseCacheProperties.Rule rule;
+
+    @BeforeEach
+    public void setUp() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setEnabled(true);
+        properties.setMaxEntryBytes(MAX_ENTRY_BYTES);
+        rule = new ResponseCacheProperties.Rule();
+        rule.setName("dict");
+        rule.setPath("/api/**");
+        rule.setPerUser(false);
+        properties.getRules().add(rule);
+        responseCacheProvider = new ResponseCacheProvider(properties, mock(ReactiveStringRedisTemplate.class));
+        //不订阅失效通知，只编译规则
+        responseCacheProvider.onRefresh();
+        filter = new ResponseCacheGlobalFilter(responseCacheProvider);
+    }
+
+    @Test
+    public void cacheSuccessResult() {
+        String body = "{\"code\":200,\"data\":1}";
+        MockServerWebExchange exchange = get("/api/dict", "zh-CN");
+
+        filter.filter(exchange, respond(body)).block();
+
+        assertEquals(body, ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block());
+        assertNotNull(responseCacheProvider.get(responseCacheProvider.getKey(rule, "/api/dict", "zh-CN", "-")));
+        assertNull(responseCacheProvider.get(responseCacheProvider.getKey(rule, "/api/dict", "en-US", "-")));
+    }
+
+    @Test
+    public void skipFailedResult() {
+        String body = "{\"code\":400,\"msg\":\"error\"}";
+        MockServerWebExchange exchange = get("/api/dict", null);
+
+        filter.filter(exchange, respond(body)).block();
+
+        assertEquals(body, ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block());
+        assertNull(responseCacheProvider.get(responseCacheProvider.getKey(rule, "/api/dict", null, "-")));
+    }
+
+    @Test
+    public void passThroughOversizedBody() {
+        String part = "{\"code\":200,\"data\":\"0123456789012345678901234567890123456789\"";
+        MockServerWebExchange exchange = get("/api/large", null);
+
+        filter.filter(exchange, respond(part, ",\"a\":1", ",\"b\":2}")).block();
+
+        assertEquals(part + ",\"a\":1,\"b\":2}", ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block());
+        assertNull(responseCacheProvider.get(responseCacheProvider.getKey(rule, "/api/large", null, "-")));
+    }
+
+    private static MockServerWebExchange get(String path, String language) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (language != null) {
+            request.header(HttpHeaders.ACCEPT_LANGUAGE, language);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static GatewayFilterChain respond(String... parts) {
+        return exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            Flux<DataBuffer> body = Flux.fromIterable(Arrays.asList(parts))
+                    .map(part -> DefaultDataBufferFactory.sharedInstance.wrap(part.getBytes(StandardCharsets.UTF_8)));
+            return exchange.getResponse().writeWith(body);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.magicrepokit.gateway.filters;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.provider.StreamLoadProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 长连接释放：响应完成、出错和客户端断开时都释放转发中的连接
+ */
+public class StreamLoadGlobalFilterTest {
+    private static final ServiceInstance CHAT = new DefaultServiceInstance("chat", GateWayConstant.CHAT_SERVICE_ID, "10.0.0.1", 8080, false);
+    private static final ServiceInstance SYSTEM = new DefaultServiceInstance("system", "mrk-system", "10.0.0.2", 8080, false);
+
+    private StreamLoadProvider streamLoadProvider;
+    private StreamLoadGlobalFilter filter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        streamLoadProvider = new StreamLoadProvider(mock(ReactiveRedisTemplate.class));
+        filter = new StreamLoadGlobalFilter(streamLoadProvider);
+    }
+
+    @Test
+    public void releaseOnComplete() {
+        MockServerWebExchange exchange = chosen(CHAT);
+
+        filter.filter(exchange, e -> Mono.empty()).block();
+
+        assertEquals(0, load(CHAT));
+    }
+
+    @Test
+    public void releaseOnError() {
+        MockServerWebExchange exchange = chosen(CHAT);
+
+        assertThrows(IllegalStateException.class,
+                () -> filter.filter(exchange, e -> Mono.error(new IllegalStateException("reset"))).block());
+
+        assertEquals(0, load(CHAT));
+    }
+
+    @Test
+    public void releaseOnCancel() {
+        MockServerWebExchange exchange = chosen(CHAT);
+
+        //SSE未结束时客户端断开
+        Disposable subscription = filter.filter(exchange, e -> Mono.never()).subscribe();
+        assertEquals(1, load(CHAT));
+        subscription.dispose();
+
+        assertEquals(0, load(CHAT));
+    }
+
+    @Test
+    public void ignoreOtherServices() {
+        MockServerWebExchange exchange = chosen(SYSTEM);
+
+        filter.filter(exchange, e -> Mono.empty()).block();
+
+        //其他服务不经过长连接负载均衡，不释放
+        assertEquals(1, load(SYSTEM));
+    }
+
+    private MockServerWebExchange chosen(ServiceInstance instance) {
+        streamLoadProvider.acquire(instance);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/chat/stream"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+        return exchange;
+    }
+
+    private int load(ServiceInstance instance) {
+        return streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(instance));
+    }
+}
@@ -0,0 +1,116 @@
+package com.magicrepokit.gateway.provider;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.props.RateLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 令牌桶限流：本地预取令牌、等待时间和redis不可用时放行
+ */
+public class RateLimitProviderTest {
+    private ReactiveStringRedisTemplate redisTemplate;
+    private RateLimitProperties properties;
+    private RateLimitProvider rateLimitProvider;
+    private RateLimitProperties.Rule rule;
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        properties = new RateLimitProperties();
+        properties.setEnabled(true);
+        rule = new RateLimitProperties.Rule();
+        rule.setName("api");
+        rule.setPath("/api/**");
+        rule.setCapacity(20);
+        rule.setRefillPerSecond(5);
+        rule.setBatch(3);
+        properties.getRules().add(rule);
+        rateLimitProvider = new RateLimitProvider(redisTemplate, properties);
+        rateLimitProvider.init();
+    }
+
+    @Test
+    public void spendPrefetchedPermitsLocally() {
+        redisReturns(3L);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, rateLimitProvider.acquire(rule, "u1").block());
+        }
+        verify(redisTemplate, times(1)).execute(ArgumentMatchers.<RedisScript<Long>>any(),
+                eq(Collections.singletonList(GateWayConstant.REDIS_KEY_RATE_LIMIT + "api:u1")), eq(Arrays.asList("20", "5.0", "3")));
+
+        //本地令牌用完后重新访问redis
+        assertEquals(0L, rateLimitProvider.acquire(rule, "u1").block());
+        verify(redisTemplate, times(2)).execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList());
+    }
+
+    @Test
+    public void prefetchedPermitsArePerUser() {
+        redisReturns(3L);
+
+        rateLimitProvider.acquire(rule, "u1").block();
+        rateLimitProvider.acquire(rule, "u2").block();
+
+        verify(redisTemplate, times(2)).execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList());
+    }
+
+    @Test
+    public void dropUnusedPermitsAfterOneSecond() throws InterruptedException {
+        redisReturns(3L);
+
+        rateLimitProvider.acquire(rule, "u1").block();
+        Thread.sleep(1100);
+        rateLimitProvider.acquire(rule, "u1").block();
+
+        verify(redisTemplate, times(2)).execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList());
+    }
+
+    @Test
+    public void returnWaitMillisWhenEmpty() {
+        redisReturns(-1500L);
+
+        assertEquals(1500L, rateLimitProvider.acquire(rule, "u1").block());
+        //没有令牌时不保存本地令牌
+        rateLimitProvider.acquire(rule, "u1").block();
+        verify(redisTemplate, times(2)).execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList());
+    }
+
+    @Test
+    public void allowWhenRedisFails() {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList()))
+                .thenReturn(Flux.error(new RedisConnectionFailureException("down")));
+
+        assertEquals(0L, rateLimitProvider.acquire(rule, "u1").block());
+    }
+
+    @Test
+    public void matchOnlyWhenEnabled() {
+        assertEquals(rule, rateLimitProvider.match("/api/user"));
+        assertNull(rateLimitProvider.match("/auth/token"));
+
+        properties.setEnabled(false);
+        rateLimitProvider.onRefresh();
+
+        assertNull(rateLimitProvider.match("/api/user"));
+    }
+
+    private void redisReturns(Long result) {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), anyList()))
+                .thenAnswer(invocation -> Flux.just(result));
+    }
+}
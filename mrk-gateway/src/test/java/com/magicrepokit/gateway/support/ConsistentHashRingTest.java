@@ -0,0 +1,78 @@
+package com.magicrepokit.gateway.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 一致性哈希环：节点增减时只有相邻区间的key改变归属
+ */
+public class ConsistentHashRingTest {
+    private static final int VIRTUAL_NODES = 160;
+    private static final int KEYS = 10000;
+
+    @Test
+    public void sameKeySameNode() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c");
+        ConsistentHashRing<String> rebuilt = ring("c", "a", "b");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ring.get("conversation-" + i), rebuilt.get("conversation-" + i));
+        }
+    }
+
+    @Test
+    public void emptyRing() {
+        assertNull(new ConsistentHashRing<String>(Collections.emptyList(), Function.identity(), VIRTUAL_NODES).get("key"));
+    }
+
+    @Test
+    public void evenDistribution() {
+        Map<String, Integer> counts = new HashMap<>();
+        ConsistentHashRing<String> ring = ring("a", "b", "c");
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("conversation-" + i), 1, Integer::sum);
+        }
+        for (String node : Arrays.asList("a", "b", "c")) {
+            int count = counts.getOrDefault(node, 0);
+            assertTrue(count > KEYS / 3 * 0.7 && count < KEYS / 3 * 1.3, node + ":" + count);
+        }
+    }
+
+    @Test
+    public void addNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> before = ring("a", "b", "c");
+        ConsistentHashRing<String> after = ring("a", "b", "c", "d");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "conversation-" + i;
+            if (!before.get(key).equals(after.get(key))) {
+                assertEquals("d", after.get(key), key);
+                moved++;
+            }
+        }
+        //约1/4的key移动到新节点
+        assertTrue(moved > KEYS / 4 * 0.7 && moved < KEYS / 4 * 1.3, "moved:" + moved);
+    }
+
+    @Test
+    public void removeNodeOnlyMovesItsKeys() {
+        ConsistentHashRing<String> before = ring("a", "b", "c", "d");
+        ConsistentHashRing<String> after = ring("a", "b", "c");
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = "conversation-" + i;
+            if (!"d".equals(before.get(key))) {
+                assertEquals(before.get(key), after.get(key), key);
+            }
+        }
+    }
+
+    private static ConsistentHashRing<String> ring(String... nodes) {
+        return new ConsistentHashRing<>(Arrays.asList(nodes), node -> "10.0.0." + node + ":8080", VIRTUAL_NODES);
+    }
+}
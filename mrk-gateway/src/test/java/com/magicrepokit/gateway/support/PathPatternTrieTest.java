@@ -0,0 +1,75 @@
+package com.magicrepokit.gateway.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 路径匹配树与AntPathMatcher结果一致
+ */
+public class PathPatternTrieTest {
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/", "/*", "/**", "**", "api/**",
+            "/api", "/api/", "/api/*", "/api/*/", "/api/**", "/api/**/", "/api/**/*", "/api/*/**",
+            "/api/**/list", "/api/**/list/", "/**/list", "/**/*.js", "/api/**/b/**/c",
+            "/a/b", "/a/b/", "/a/*", "/a/*/c", "/a/*/*", "/a/?", "/a/b?c", "/a/*.html",
+            "/user/{id}", "/user/{id:\\d+}", "/user/{id}/detail", "/user/info-{type}",
+            "/auth/token/**", "/doc.html", "/webjars/**", "/v3/api-docs/**");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "", "/", "//", "api", "api/x",
+            "/api", "/api/", "/api//", "/api/x", "/api/x/", "/api/x/y", "/api/x/y/",
+            "/api/list", "/api/list/", "/api/x/list", "/api/x/list/", "/list", "/list/",
+            "/api/b/c", "/api/x/b/y/c", "/api/b/c/",
+            "/a", "/a/", "/a/b", "/a/b/", "/a//b", "/a/b/c", "/a/b/c/", "/a/x/c", "/a/bxc", "/a/bc", "/a/x",
+            "/a/index.html", "/a/index.htm", "/static/app.js", "/app.js",
+            "/user/1", "/user/abc", "/user/1/", "/user/1/detail", "/user/info-vip", "/user/info-",
+            "/auth/token", "/auth/token/", "/auth/token/refresh", "/doc.html", "/doc.html/",
+            "/webjars", "/webjars/swagger-ui/index.html", "/v3/api-docs", "/v3/api-docs/default", "/API/x");
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    public void matchesLikeAntPathMatcher() {
+        for (String pattern : PATTERNS) {
+            PathPatternTrie trie = new PathPatternTrie(Collections.singletonList(pattern));
+            for (String path : PATHS) {
+                assertEquals(antPathMatcher.match(pattern, path), trie.matches(path),
+                        "pattern:" + pattern + " path:" + path);
+            }
+        }
+    }
+
+    @Test
+    public void matchesAnyPatternLikeAntPathMatcher() {
+        PathPatternTrie trie = new PathPatternTrie(PATTERNS.subList(5, PATTERNS.size()));
+        for (String path : PATHS) {
+            boolean expected = PATTERNS.subList(5, PATTERNS.size()).stream().anyMatch(p -> antPathMatcher.match(p, path));
+            assertEquals(expected, trie.matches(path), "path:" + path);
+        }
+    }
+
+    @Test
+    public void trailingDoubleWildcardMatchesPrefix() {
+        PathPatternTrie trie = new PathPatternTrie(Collections.singletonList("/api/**"));
+        assertTrue(trie.matches("/api"));
+        assertTrue(trie.matches("/api/"));
+        assertFalse(trie.matches("/apix"));
+    }
+
+    @Test
+    public void trailingSeparator() {
+        PathPatternTrie trie = new PathPatternTrie(Collections.singletonList("/a/*"));
+        assertTrue(trie.matches("/a/b"));
+        assertTrue(trie.matches("/a/"));
+        assertFalse(trie.matches("/a/b/"));
+        assertFalse(trie.matches("/a"));
+    }
+}
@@ -0,0 +1,202 @@
+package com.magicrepokit.gateway.support;
+
+import com.magicrepokit.gateway.constant.GateWayConstant;
+import com.magicrepokit.gateway.props.StreamBalancerProperties;
+import com.magicrepokit.gateway.provider.StreamLoadProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 长连接负载均衡：最少连接、随机打散、会话固定和过载切换
+ */
+public class StreamAwareLoadBalancerTest {
+    private static final ServiceInstance A = instance("10.0.0.1");
+    private static final ServiceInstance B = instance("10.0.0.2");
+    private static final ServiceInstance C = instance("10.0.0.3");
+    private static final List<ServiceInstance> INSTANCES = Arrays.asList(A, B, C);
+
+    private ReactiveValueOperations<String, Object> valueOperations;
+    private StreamLoadProvider streamLoadProvider;
+    private StreamBalancerProperties properties;
+    private StreamAwareLoadBalancer loadBalancer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ReactiveRedisTemplate<String, Object> redisTemplate = mock(ReactiveRedisTemplate.class);
+        valueOperations = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        streamLoadProvider = new StreamLoadProvider(redisTemplate);
+        properties = new StreamBalancerProperties();
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return GateWayConstant.CHAT_SERVICE_ID;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(INSTANCES);
+            }
+        };
+        ObjectProvider<ServiceInstanceListSupplier> supplierProvider = mock(ObjectProvider.class);
+        when(supplierProvider.getIfAvailable(any())).thenReturn(supplier);
+        loadBalancer = new StreamAwareLoadBalancer(supplierProvider, GateWayConstant.CHAT_SERVICE_ID, streamLoadProvider, properties);
+    }
+
+    @Test
+    public void chooseLeastLoaded() {
+        report(A, 3, B, 1, C, 2);
+
+        assertEquals(B, choose(null));
+        //选中后计入转发中的连接
+        assertEquals(1, streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(B)));
+        streamLoadProvider.acquire(B);
+        streamLoadProvider.acquire(B);
+        assertEquals(C, choose(null));
+    }
+
+    @Test
+    public void breakTiesRandomly() {
+        Set<ServiceInstance> chosen = new HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            ServiceInstance instance = choose(null);
+            chosen.add(instance);
+            streamLoadProvider.release(instance);
+        }
+        assertEquals(new HashSet<>(INSTANCES), chosen);
+    }
+
+    @Test
+    public void keepConversationOnSameNode() {
+        ServiceInstance first = choose("conversation-1");
+        for (int i = 0; i < 4; i++) {
+            //固定节点比最空闲节点多出的连接数未超过阈值
+            assertEquals(first, choose("conversation-1"));
+        }
+    }
+
+    @Test
+    public void overflowWhenPreferredOverloaded() {
+        ServiceInstance preferred = choose("conversation-1");
+        streamLoadProvider.release(preferred);
+        Map<ServiceInstance, Integer> loads = new HashMap<>();
+        for (ServiceInstance instance : INSTANCES) {
+            loads.put(instance, instance.equals(preferred) ? properties.getOverloadThreshold() : 0);
+        }
+        report(loads);
+        //刚好等于阈值时仍固定
+        assertEquals(preferred, choose("conversation-1"));
+        streamLoadProvider.release(preferred);
+
+        loads.put(preferred, properties.getOverloadThreshold() + 1);
+        report(loads);
+        ServiceInstance overflow = choose("conversation-1");
+        assertNotEquals(preferred, overflow);
+        assertEquals(1, streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(overflow)));
+    }
+
+    @Test
+    public void loadIsMaxOfReportedAndInflight() {
+        report(A, 2, B, 0, C, 0);
+        String a = StreamLoadProvider.getNodeId(A);
+
+        assertEquals(2, streamLoadProvider.getLoad(a));
+        streamLoadProvider.acquire(A);
+        streamLoadProvider.acquire(A);
+        streamLoadProvider.acquire(A);
+        assertEquals(3, streamLoadProvider.getLoad(a));
+        for (int i = 0; i < 5; i++) {
+            streamLoadProvider.release(A);
+        }
+        //转发中的连接不会减到负数
+        assertEquals(2, streamLoadProvider.getLoad(a));
+        streamLoadProvider.acquire(A);
+        assertEquals(2, streamLoadProvider.getLoad(a));
+    }
+
+    @Test
+    public void acquireWhenDisabled() {
+        properties.setEnabled(false);
+
+        ServiceInstance first = choose("conversation-1");
+        ServiceInstance second = choose("conversation-1");
+
+        //关闭时轮询，仍记录转发中的连接以便过滤器释放
+        assertNotEquals(first, second);
+        assertEquals(1, streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(first)));
+        assertEquals(1, streamLoadProvider.getLoad(StreamLoadProvider.getNodeId(second)));
+    }
+
+    private ServiceInstance choose(String conversationId) {
+        HttpHeaders headers = new HttpHeaders();
+        if (conversationId != null) {
+            headers.add(properties.getAffinityHeader(), conversationId);
+        }
+        RequestData requestData = new RequestData(HttpMethod.GET, URI.create("http://mrk-chat/chat/stream"), headers,
+                new LinkedMultiValueMap<>(), new HashMap<>());
+        Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext(requestData));
+        return loadBalancer.choose(request).block().getServer();
+    }
+
+    private void report(ServiceInstance a, int loadA, ServiceInstance b, int loadB, ServiceInstance c, int loadC) {
+        Map<ServiceInstance, Integer> loads = new HashMap<>();
+        loads.put(a, loadA);
+        loads.put(b, loadB);
+        loads.put(c, loadC);
+        report(loads);
+    }
+
+    /**
+     * 模拟各节点上报的连接数并刷新
+     */
+    @SuppressWarnings("unchecked")
+    private void report(Map<ServiceInstance, Integer> loads) {
+        List<String> nodes = new ArrayList<>();
+        for (ServiceInstance instance : INSTANCES) {
+            nodes.add(StreamLoadProvider.getNodeId(instance));
+        }
+        streamLoadProvider.setNodes(nodes);
+        when(valueOperations.multiGet(anyList())).thenAnswer(invocation -> {
+            List<Object> values = new ArrayList<>();
+            for (String key : (List<String>) invocation.getArgument(0)) {
+                String node = key.substring(GateWayConstant.REDIS_KEY_CHAT_STREAMS.length());
+                values.add(loads.entrySet().stream()
+                        .filter(entry -> StreamLoadProvider.getNodeId(entry.getKey()).equals(node))
+                        .map(Map.Entry::getValue).findFirst().orElse(null));
+            }
+            return Mono.just(values);
+        });
+        ReflectionTestUtils.<Mono<Void>>invokeMethod(streamLoadProvider, "refresh").block();
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host, GateWayConstant.CHAT_SERVICE_ID, host, 8080, false);
+    }
+}
@@ -18,4 +18,24 @@ public interface KnowledgeConstant {
     Integer COMPLETE = 4;
     //5.失败
     Integer FAIL = 5;
+
+    //-------------------------------检索缓存---------------------------
+    //检索结果缓存 mrk:chat:retrieval:{索引名}:{版本号}:{参数及问题摘要}
+    String REDIS_KEY_RETRIEVAL = "mrk:chat:retrieval:";
+    //索引版本号，入库完成或删除索引时递增
+    String REDIS_KEY_INDEX_GENERATION = "mrk:chat:index:generation:";
+    //检索结果缓存时间(秒)
+    long RETRIEVAL_CACHE_SECONDS = 60 * 60;
+
+    //-------------------------------检索去重---------------------------
+    //去重时候选结果倍数
+    int DIVERSIFY_FETCH_MULTIPLE = 3;
+    //默认相关性与多样性权衡
+    double DEFAULT_DIVERSITY_LAMBDA = 0.7;
+    //默认知识库内容token预算
+    int DEFAULT_TOKEN_BUDGET = 1500;
+    //余弦相似度超过该值视为重复分段
+    double DUPLICATE_SIMILARITY = 0.95;
+    //相邻分段文本重叠最少字符数
+    int MIN_OVERLAP_CHARS = 20;
 }
@@ -0,0 +1,26 @@
+package com.magicrepokit.chat.constant;
+
+/**
+ * SSE连接常量
+ */
+public interface StreamConstant {
+    /**
+     * 节点打开的SSE连接数 mrk:chat:streams:{host}:{port}，网关按此做负载均衡
+     */
+    String REDIS_KEY_STREAMS = "mrk:chat:streams:";
+
+    /**
+     * 连接数变化后上报的间隔(毫秒)
+     */
+    long REPORT_INTERVAL_MILLIS = 500;
+
+    /**
+     * 连接数不变时的心跳间隔(毫秒)
+     */
+    long HEARTBEAT_MILLIS = 5000;
+
+    /**
+     * 上报数据过期时间(秒)，节点下线后自动清除
+     */
+    long REPORT_TTL_SECONDS = 15;
+}
@@ -57,4 +57,29 @@ public class KnowledgeCreateDTO {
      */
     @ApiModelProperty(value = "知识库文件匹配度[只有文件类型才有,默认5，范围0-20]")
     private Integer maxResult;
+
+    /**
+     * 是否热点知识库[只有文件类型才有,1:否 2:是]
+     */
+    @ApiModelProperty(value = "是否热点知识库[只有文件类型才有,1:否 2:是]")
+    private Integer isHot;
+
+    /**
+     * 是否开启检索结果去重[只有文件类型才有,1:否 2:是]
+     */
+    @ApiModelProperty(value = "是否开启检索结果去重[只有文件类型才有,1:否 2:是]")
+    private Integer isDiversify;
+
+    /**
+     * 相关性与多样性权衡[只有文件类型才有,默认0.7](0-1.0)
+     */
+    @ApiModelProperty(value = "相关性与多样性权衡[只有文件类型才有,默认0.7，范围0-1.0，越大越偏向相关性]")
+    private Double diversityLambda;
+
+    /**
+     * 知识库内容token预算[只有文件类型才有,默认1500]
+     */
+    @ApiModelProperty(value = "知识库内容token预算[只有文件类型才有,默认1500]")
+    private Integer tokenBudget;
+
 }
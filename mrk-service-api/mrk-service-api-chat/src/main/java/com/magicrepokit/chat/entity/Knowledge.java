@@ -55,6 +55,27 @@ public class Knowledge extends BaseEntity {
      */
     private Integer maxResult;
 
+    /**
+     * 是否热点知识库[只有文件类型才有,1:否 2:是](热点知识库在对话服务本地加载向量索引)
+     */
+    private Integer isHot;
+
+    /**
+     * 是否开启检索结果去重[只有文件类型才有,1:否 2:是](多取候选后按最大边际相关性挑选，合并重叠的相邻分段，并按token预算截断)
+     */
+    private Integer isDiversify;
+
+    /**
+     * 相关性与多样性权衡[只有文件类型才有,默认0.7](0-1.0,越大越偏向相关性)
+     */
+    private Double diversityLambda;
+
+    /**
+     * 知识库内容token预算[只有文件类型才有,默认1500]
+     */
+    private Integer tokenBudget;
+
+
     /**
      * 知识库路径
      */
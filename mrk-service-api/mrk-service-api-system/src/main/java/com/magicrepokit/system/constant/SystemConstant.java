@@ -10,4 +10,39 @@ public interface SystemConstant {
 
     //当前服务名
     String APPLICATION_NAME = "mrk-system";
+
+    //==================登录锁定相关======================
+    //登录失败次数key(与认证中心共用)
+    String LOGIN_FAIL_REDIS_KEY = "mrk:auth:login:fail:";
+
+    //被锁定的最多次数
+    int LOGIN_FAIL_COUNT = 5;
+
+    //锁定时间(秒)
+    long LOGIN_FAIL_SECONDS = 5 * 60;
+
+    //==================用户信息缓存相关======================
+    //用户信息(用户id -> 用户信息)
+    String REDIS_KEY_USER_INFO = "mrk:system:userInfo:";
+
+    //账号对应的用户id
+    String REDIS_KEY_USER_ACCOUNT = "mrk:system:userAccount:";
+
+    //用户信息版本号，用户变更时+1
+    String REDIS_KEY_USER_VERSION = "mrk:system:userVersion:";
+
+    //密码哈希(用户id -> 密码哈希)，与用户信息分开保存
+    String REDIS_KEY_USER_PASSWORD = "mrk:system:userPassword:";
+
+    //用户信息变更通知频道，消息内容为用户id
+    String REDIS_CHANNEL_USER_INFO = "mrk:channel:userInfo";
+
+    //用户信息缓存时间(秒)
+    long USER_INFO_CACHE_SECONDS = 30 * 60;
+
+    //密码哈希缓存时间(秒)，短于用户信息缓存时间
+    long USER_PASSWORD_CACHE_SECONDS = 5 * 60;
+
+    //版本号保留时间(秒)，需要长于缓存时间
+    long USER_VERSION_SECONDS = 24 * 60 * 60;
 }
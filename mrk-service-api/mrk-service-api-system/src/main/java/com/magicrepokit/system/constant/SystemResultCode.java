@@ -38,7 +38,11 @@ public enum SystemResultCode implements IResultCode {
     //未绑定账号，需要进行绑定。
     AUTH_THIRD_LOGIN_NOT_BIND(10010206, "AUTH_THIRD_LOGIN_NOT_BIND"),
     //用户名存在
-    USERNAME_EXIST(10010207,"USERNAME_EXIST");
+    USERNAME_EXIST(10010207,"USERNAME_EXIST"),
+    //账户已被锁定
+    USER_IS_LOCKED(10010208,"USER_IS_LOCKED"),
+    //登录繁忙
+    LOGIN_BUSY(10010209,"LOGIN_BUSY");
 
 
 
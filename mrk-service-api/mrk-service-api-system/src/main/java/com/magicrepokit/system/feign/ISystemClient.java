@@ -8,6 +8,8 @@ import com.magicrepokit.system.vo.user.UserInfoVO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @FeignClient(value = SystemConstant.APPLICATION_NAME)
 public interface ISystemClient {
     String API_PREFIX = "/system";
@@ -15,6 +17,10 @@ public interface ISystemClient {
 
     String USER_INFO_ID = API_PREFIX + "user/info/{id}";
 
+    String USER_PASSWORD = API_PREFIX + "user/password/{id}";
+
+    String USER_INFO_LIST = API_PREFIX + "user/info-list";
+
     String Auth_Social = API_PREFIX + "social/auth-social-user";
 
     /**
@@ -35,6 +41,24 @@ public interface ISystemClient {
     @GetMapping(USER_INFO_ID)
     R<UserInfoVO> userInfo(@PathVariable("id") Long id);
 
+    /**
+     * 密码哈希，用户信息不含密码，只在校验密码时获取
+     *
+     * @param id 用户id
+     * @return 密码哈希
+     */
+    @GetMapping(USER_PASSWORD)
+    R<String> password(@PathVariable("id") Long id);
+
+    /**
+     * 批量获取用户信息
+     *
+     * @param ids 用户id
+     * @return 存在的用户信息
+     */
+    @PostMapping(USER_INFO_LIST)
+    R<List<UserInfoVO>> userInfo(@RequestBody List<Long> ids);
+
     /**
      * 三方登录认证
      *
@@ -0,0 +1,51 @@
+package com.magicrepokit.system.support;
+
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import com.magicrepokit.system.constant.SystemConstant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 登录失败锁定(系统服务与认证中心共用)
+ * <p>
+ * mrk:auth:login:fail:{account} 记录连续失败次数，达到上限后锁定，锁定时间从最后一次尝试开始计时；
+ * 校验密码前先按失败计入本次尝试(检查上限和计数在同一个lua脚本中完成)，同一账户并发的错误密码请求
+ * 最多只有上限次数能进入密码校验；校验通过后清除，未完成校验(系统繁忙等)时撤销本次计数
+ */
+@Component
+public class LoginFailCounter {
+    @Autowired
+    private MRKRedisUtils mrkRedisUtils;
+
+    /**
+     * 登录前检查，未锁定时计入本次尝试
+     *
+     * @param account 账户
+     * @return 计入本次后的连续失败次数，已锁定返回-1
+     */
+    public long acquire(String account) {
+        return mrkRedisUtils.checkAndIncr(getKey(account), SystemConstant.LOGIN_FAIL_COUNT, SystemConstant.LOGIN_FAIL_SECONDS);
+    }
+
+    /**
+     * 校验通过，清除错误次数
+     *
+     * @param account 账户
+     */
+    public void clear(String account) {
+        mrkRedisUtils.del(getKey(account));
+    }
+
+    /**
+     * 未完成校验，撤销本次尝试的计数
+     *
+     * @param account 账户
+     */
+    public void cancel(String account) {
+        mrkRedisUtils.decrIfExists(getKey(account));
+    }
+
+    private static String getKey(String account) {
+        return SystemConstant.LOGIN_FAIL_REDIS_KEY + account;
+    }
+}
@@ -0,0 +1,269 @@
+package com.magicrepokit.system.support;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.magicrepokit.system.constant.SystemConstant;
+import com.magicrepokit.system.entity.user.User;
+import com.magicrepokit.system.vo.user.UserInfoVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 用户信息redis缓存(系统服务与认证中心共用)
+ * <p>
+ * mrk:system:userInfo:{id} 保存用户信息(不含密码)，mrk:system:userAccount:{account} 保存账号对应的用户id，
+ * mrk:system:userPassword:{id} 单独保存密码哈希，缓存时间更短，只在校验密码时读取；
+ * 每个用户有一个版本号，用户变更时版本号+1并删除缓存，回填时版本号不一致则放弃，
+ * 避免查询数据库期间发生的变更被旧数据覆盖
+ */
+@Slf4j
+@Component
+public class UserInfoRedisCache {
+    /**
+     * KEYS[1] 版本号
+     */
+    private static final RedisScript<Long> VERSION_SCRIPT = new DefaultRedisScript<>(
+            "return tonumber(redis.call('GET', KEYS[1]) or '0')",
+            Long.class);
+
+    /**
+     * KEYS[1] 版本号 KEYS[2] 用户信息 KEYS[3] 账号; ARGV 查询前的版本号,用户信息,用户id,过期时间(秒)
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "if tonumber(redis.call('GET', KEYS[1]) or '0') ~= tonumber(ARGV[1]) then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[4])\n" +
+            "redis.call('SET', KEYS[3], ARGV[3], 'EX', ARGV[4])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * KEYS[1] 版本号 KEYS[2] 密码哈希; ARGV 查询前的版本号,密码哈希,过期时间(秒)
+     */
+    private static final RedisScript<Long> PUT_PASSWORD_SCRIPT = new DefaultRedisScript<>(
+            "if tonumber(redis.call('GET', KEYS[1]) or '0') ~= tonumber(ARGV[1]) then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * KEYS[1] 账号; ARGV 用户信息key前缀
+     */
+    private static final RedisScript<Object> GET_BY_ACCOUNT_SCRIPT = new DefaultRedisScript<>(
+            "local id = redis.call('GET', KEYS[1])\n" +
+            "if not id then\n" +
+            "  return false\n" +
+            "end\n" +
+            "return redis.call('GET', ARGV[1] .. id)",
+            Object.class);
+
+    /**
+     * KEYS[1] 版本号 KEYS[2] 用户信息 KEYS[3] 密码哈希; ARGV 版本号过期时间(秒),通知频道,用户id
+     */
+    private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('INCR', KEYS[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "redis.call('DEL', KEYS[2], KEYS[3])\n" +
+            "redis.call('PUBLISH', ARGV[2], ARGV[3])\n" +
+            "return version",
+            Long.class);
+
+    private final RedisSerializer<Object> valueSerializer = RedisSerializer.java();
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 根据用户id获取
+     *
+     * @param id 用户id
+     * @return 未缓存返回null
+     */
+    public UserInfoVO get(Long id) {
+        try {
+            byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(bytes(getInfoKey(id))));
+            return toUserInfo(value);
+        } catch (Exception e) {
+            log.warn("[用户缓存]读取失败:{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 根据账号获取，账号已修改的旧映射视为未缓存
+     *
+     * @param account 账号
+     * @return 未缓存返回null
+     */
+    public UserInfoVO get(String account) {
+        try {
+            Object value = redisTemplate.execute(GET_BY_ACCOUNT_SCRIPT, RedisSerializer.byteArray(), valueSerializer,
+                    Collections.singletonList(getAccountKey(account)), bytes(SystemConstant.REDIS_KEY_USER_INFO));
+            UserInfoVO userInfoVO = value instanceof UserInfoVO ? (UserInfoVO) value : null;
+            return userInfoVO != null && account.equals(userInfoVO.getUser().getAccount()) ? userInfoVO : null;
+        } catch (Exception e) {
+            log.warn("[用户缓存]读取失败:{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 根据用户id批量获取
+     *
+     * @param ids 用户id
+     * @return 已缓存的用户信息(用户id -> 用户信息)
+     */
+    public Map<Long, UserInfoVO> get(Collection<Long> ids) {
+        Map<Long, UserInfoVO> result = new HashMap<>(ids.size());
+        if (ids.isEmpty()) {
+            return result;
+        }
+        try {
+            List<Long> idList = new ArrayList<>(ids);
+            byte[][] keys = idList.stream().map(id -> bytes(getInfoKey(id))).toArray(byte[][]::new);
+            List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(keys));
+            for (int i = 0; values != null && i < values.size(); i++) {
+                UserInfoVO userInfoVO = toUserInfo(values.get(i));
+                if (userInfoVO != null) {
+                    result.put(idList.get(i), userInfoVO);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[用户缓存]批量读取失败:{}", e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 当前版本号，查询数据库之前获取，回填时使用
+     *
+     * @param id 用户id
+     * @return 版本号
+     */
+    public long version(Long id) {
+        try {
+            Long version = redisTemplate.execute(VERSION_SCRIPT, Collections.singletonList(getVersionKey(id)));
+            return version == null ? 0 : version;
+        } catch (Exception e) {
+            log.warn("[用户缓存]读取版本失败:{}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 获取密码哈希
+     *
+     * @param id 用户id
+     * @return 未缓存返回null
+     */
+    public String getPassword(Long id) {
+        try {
+            byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(bytes(getPasswordKey(id))));
+            return value == null ? null : new String(value, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.warn("[用户缓存]读取密码失败:{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 回填缓存，版本号已变化时放弃；密码不写入用户信息
+     *
+     * @param userInfoVO 用户信息
+     * @param version    查询数据库之前的版本号
+     */
+    public void put(UserInfoVO userInfoVO, long version) {
+        if (userInfoVO == null || userInfoVO.getUser() == null || version < 0) {
+            return;
+        }
+        if (userInfoVO.getUser().getPassword() != null) {
+            UserInfoVO withoutPassword = new UserInfoVO();
+            withoutPassword.setUser(BeanUtil.copyProperties(userInfoVO.getUser(), User.class, "password"));
+            userInfoVO = withoutPassword;
+        }
+        Long id = userInfoVO.getUser().getId();
+        try {
+            redisTemplate.execute(PUT_SCRIPT, RedisSerializer.byteArray(), null,
+                    Arrays.asList(getVersionKey(id), getInfoKey(id), getAccountKey(userInfoVO.getUser().getAccount())),
+                    bytes(String.valueOf(version)),
+                    valueSerializer.serialize(userInfoVO),
+                    bytes(String.valueOf(id)),
+                    bytes(String.valueOf(SystemConstant.USER_INFO_CACHE_SECONDS)));
+        } catch (Exception e) {
+            log.warn("[用户缓存]写入失败:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 回填密码哈希，版本号已变化时放弃
+     *
+     * @param id       用户id
+     * @param password 密码哈希
+     * @param version  查询数据库之前的版本号
+     */
+    public void putPassword(Long id, String password, long version) {
+        if (password == null || version < 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(PUT_PASSWORD_SCRIPT, RedisSerializer.byteArray(), null,
+                    Arrays.asList(getVersionKey(id), getPasswordKey(id)),
+                    bytes(String.valueOf(version)),
+                    bytes(password),
+                    bytes(String.valueOf(SystemConstant.USER_PASSWORD_CACHE_SECONDS)));
+        } catch (Exception e) {
+            log.warn("[用户缓存]写入密码失败:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用户变更后删除缓存并通知各节点
+     *
+     * @param id 用户id
+     */
+    public void evict(Long id) {
+        redisTemplate.execute(EVICT_SCRIPT, RedisSerializer.byteArray(), null,
+                Arrays.asList(getVersionKey(id), getInfoKey(id), getPasswordKey(id)),
+                bytes(String.valueOf(SystemConstant.USER_VERSION_SECONDS)),
+                bytes(SystemConstant.REDIS_CHANNEL_USER_INFO),
+                bytes(String.valueOf(id)));
+    }
+
+    private UserInfoVO toUserInfo(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        Object userInfo = valueSerializer.deserialize(value);
+        return userInfo instanceof UserInfoVO && ((UserInfoVO) userInfo).getUser() != null ? (UserInfoVO) userInfo : null;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getInfoKey(Long id) {
+        return SystemConstant.REDIS_KEY_USER_INFO + id;
+    }
+
+    private static String getAccountKey(String account) {
+        return SystemConstant.REDIS_KEY_USER_ACCOUNT + account;
+    }
+
+    private static String getPasswordKey(Long id) {
+        return SystemConstant.REDIS_KEY_USER_PASSWORD + id;
+    }
+
+    private static String getVersionKey(Long id) {
+        return SystemConstant.REDIS_KEY_USER_VERSION + id;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient
@@ -14,6 +15,7 @@ import org.springframework.scheduling.annotation.EnableAsync;
 @MapperScan("com.magicrepokit.**.mapper")
 @EnableCaching
 @EnableAsync
+@EnableScheduling
 public class MRKChatApplication {
     public static void main(String[] args) {
         SpringApplication.run(MRKChatApplication.class);
@@ -1,8 +1,11 @@
 package com.magicrepokit.chat.component;
 
-import cn.hutool.core.util.StrUtil;
 import com.magicrepokit.chat.constant.GptModel;
+import com.magicrepokit.chat.constant.KnowledgeConstant;
 import com.magicrepokit.langchain.config.ConfigProperties;
+import com.magicrepokit.langchain.index.LocalVectorIndexManager;
+import com.magicrepokit.langchain.store.EmbeddingStoreRegistry;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.Tokenizer;
@@ -11,19 +14,24 @@ import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
-import dev.langchain4j.retriever.EmbeddingStoreRetriever;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @AllArgsConstructor
 @Slf4j
 public class LangchainComponent {
     private ConfigProperties langchainConfigProperties;
+    private EmbeddingStoreRegistry embeddingStoreRegistry;
+    private LocalVectorIndexManager localVectorIndexManager;
+    private RetrievalCacheComponent retrievalCacheComponent;
+    private RetrievalPostProcessor retrievalPostProcessor;
 
     /**
      * 获取elasticsearch存储
@@ -36,16 +44,7 @@ public class LangchainComponent {
             log.error("未开启elasticsearch");
             return null;
         }
-        String elasticHost = langchainConfigProperties.getElasticHost();
-        int elasticPort = langchainConfigProperties.getElasticPort();
-        String url = StrUtil.format("{}:{}", elasticHost, elasticPort);
-        return ElasticsearchEmbeddingStore.builder()
-                .serverUrl(url)
-                .userName(langchainConfigProperties.getElasticUsername())
-                .password(langchainConfigProperties.getElasticPassword())
-                .indexName(indexName)
-                .dimension(1536)
-                .build();
+        return embeddingStoreRegistry.getStore(indexName, 1536);
     }
 
 
@@ -57,12 +56,7 @@ public class LangchainComponent {
      * @return List<TextSegment>
      */
     public List<TextSegment> findRelevant(String indexName, String question) {
-        EmbeddingStoreRetriever embeddingStoreRetriever = new EmbeddingStoreRetriever(getDefaultElasticsearchEmbeddingStore(indexName),
-                getDefaultEmbeddingModel(),
-                5,
-                0.8
-        );
-        return embeddingStoreRetriever.findRelevant(question);
+        return findRelevant(indexName, question, 5, 0.8);
     }
 
     /**
@@ -81,12 +75,69 @@ public class LangchainComponent {
         if(minScore<=0){
             minScore=0.7;
         }
-        EmbeddingStoreRetriever embeddingStoreRetriever = new EmbeddingStoreRetriever(getDefaultElasticsearchEmbeddingStore(indexName),
-                getDefaultEmbeddingModel(),
-                maxResult,
-                minScore
-        );
-        return embeddingStoreRetriever.findRelevant(question);
+        //1.检索缓存(版本号只读一次，检索期间索引变更时结果不会写入新版本)
+        long generation = retrievalCacheComponent.generation(indexName);
+        List<TextSegment> cached = retrievalCacheComponent.get(indexName, generation, question, maxResult, minScore, null);
+        if (cached != null) {
+            return cached;
+        }
+        //2.向量检索
+        Embedding embedding = getDefaultEmbeddingModel().embed(question).content();
+        List<EmbeddingMatch<TextSegment>> matches = search(indexName, embedding, maxResult, minScore);
+        List<TextSegment> relevant = matches.stream().map(EmbeddingMatch::embedded).collect(Collectors.toList());
+        retrievalCacheComponent.put(indexName, generation, question, maxResult, minScore, null, relevant);
+        return relevant;
+    }
+
+    /**
+     * 向量检索并去重:多取候选后按最大边际相关性排序，合并重叠的相邻分段，按token预算决定保留多少结果
+     *
+     * @param indexName       索引名称
+     * @param question        问题
+     * @param maxResult       最大结果(决定候选数量，实际数量由token预算决定)
+     * @param minScore        最小分数
+     * @param diversityLambda 相关性与多样性权衡(0-1.0)
+     * @param tokenBudget     token预算
+     * @return List<TextSegment>
+     */
+    public List<TextSegment> findDiverseRelevant(String indexName, String question, int maxResult, double minScore, double diversityLambda, int tokenBudget) {
+        if(maxResult<=0){
+            maxResult=5;
+        }
+        if(minScore<=0){
+            minScore=0.7;
+        }
+        if(diversityLambda<0||diversityLambda>1){
+            diversityLambda=KnowledgeConstant.DEFAULT_DIVERSITY_LAMBDA;
+        }
+        if(tokenBudget<=0){
+            tokenBudget=KnowledgeConstant.DEFAULT_TOKEN_BUDGET;
+        }
+        //1.检索缓存
+        String option = "diverse:" + diversityLambda + ":" + tokenBudget;
+        long generation = retrievalCacheComponent.generation(indexName);
+        List<TextSegment> cached = retrievalCacheComponent.get(indexName, generation, question, maxResult, minScore, option);
+        if (cached != null) {
+            return cached;
+        }
+        //2.多取候选(maxResult只决定候选数量)
+        Embedding embedding = getDefaultEmbeddingModel().embed(question).content();
+        List<EmbeddingMatch<TextSegment>> candidates = search(indexName, embedding, maxResult * KnowledgeConstant.DIVERSIFY_FETCH_MULTIPLE, minScore);
+        //3.后处理(结果数量由token预算决定)
+        List<TextSegment> relevant = retrievalPostProcessor.process(candidates, diversityLambda, tokenBudget);
+        retrievalCacheComponent.put(indexName, generation, question, maxResult, minScore, option, relevant);
+        return relevant;
+    }
+
+    /**
+     * 热点知识库优先走本地索引，未加载回退elasticsearch
+     */
+    private List<EmbeddingMatch<TextSegment>> search(String indexName, Embedding embedding, int maxResult, double minScore) {
+        List<EmbeddingMatch<TextSegment>> matches = localVectorIndexManager.findRelevant(indexName, embedding, maxResult, minScore);
+        if (matches == null) {
+            matches = getDefaultElasticsearchEmbeddingStore(indexName).findRelevant(embedding, maxResult, minScore);
+        }
+        return matches;
     }
 
 
@@ -0,0 +1,124 @@
+package com.magicrepokit.chat.component;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.magicrepokit.chat.constant.KnowledgeConstant;
+import com.magicrepokit.chat.vo.gpt.KnowledgeText;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库检索结果缓存
+ * <p>
+ * key由索引名、索引版本号、检索参数和归一化后的问题摘要组成；
+ * 入库完成或删除索引时递增版本号，旧版本的缓存不会再被命中，等待过期即可
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class RetrievalCacheComponent {
+    private final MRKRedisUtils mrkRedisUtils;
+
+    /**
+     * 当前索引版本号，检索前读取一次，get和put使用同一个版本号；
+     * 检索期间索引发生变更时，结果写入旧版本的key，不会被之后的查询命中
+     *
+     * @param indexName 索引名称
+     * @return 版本号
+     */
+    public long generation(String indexName) {
+        try {
+            return Convert.toLong(mrkRedisUtils.get(KnowledgeConstant.REDIS_KEY_INDEX_GENERATION + indexName), 0L);
+        } catch (Exception e) {
+            log.warn("[检索缓存]读取索引版本号失败:{}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 获取缓存的检索结果
+     *
+     * @param indexName  索引名称
+     * @param generation 检索前读取的索引版本号
+     * @param question   问题
+     * @param maxResult  最大结果
+     * @param minScore   最小分数
+     * @param option     其他影响结果的检索参数(例如后处理参数)，没有时传null
+     * @return 未命中返回null
+     */
+    @SuppressWarnings("unchecked")
+    public List<TextSegment> get(String indexName, long generation, String question, int maxResult, double minScore, String option) {
+        if (generation < 0) {
+            return null;
+        }
+        try {
+            Object cached = mrkRedisUtils.get(getKey(indexName, generation, question, maxResult, minScore, option));
+            if (ObjectUtil.isNull(cached)) {
+                return null;
+            }
+            return ((List<KnowledgeText>) cached).stream()
+                    .map(text -> TextSegment.from(text.getText(), new Metadata(text.getMetadata().getMetadata())))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.warn("[检索缓存]读取失败:{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 缓存检索结果
+     *
+     * @param indexName  索引名称
+     * @param generation 检索前读取的索引版本号
+     * @param question   问题
+     * @param maxResult  最大结果
+     * @param minScore   最小分数
+     * @param option     其他影响结果的检索参数(例如后处理参数)，没有时传null
+     * @param segments   检索结果
+     */
+    public void put(String indexName, long generation, String question, int maxResult, double minScore, String option, List<TextSegment> segments) {
+        if (generation < 0) {
+            return;
+        }
+        try {
+            mrkRedisUtils.set(getKey(indexName, generation, question, maxResult, minScore, option), KnowledgeText.of(segments), KnowledgeConstant.RETRIEVAL_CACHE_SECONDS);
+        } catch (Exception e) {
+            log.warn("[检索缓存]写入失败:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 递增索引版本号，使该索引的检索缓存全部失效
+     *
+     * @param indexName 索引名称
+     */
+    public void bumpGeneration(String indexName) {
+        if (StrUtil.isEmpty(indexName)) {
+            return;
+        }
+        mrkRedisUtils.incr(KnowledgeConstant.REDIS_KEY_INDEX_GENERATION + indexName, 1);
+    }
+
+    private String getKey(String indexName, long generation, String question, int maxResult, double minScore, String option) {
+        String params = StrUtil.isEmpty(option) ? maxResult + ":" + minScore : maxResult + ":" + minScore + ":" + option;
+        String digest = DigestUtil.sha256Hex(params + ":" + normalize(question));
+        return KnowledgeConstant.REDIS_KEY_RETRIEVAL + indexName + ":" + generation + ":" + digest;
+    }
+
+    /**
+     * 问题归一化:去掉首尾空白、合并连续空白、统一小写
+     */
+    private String normalize(String question) {
+        return StrUtil.trimToEmpty(question).replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,256 @@
+package com.magicrepokit.chat.component;
+
+import cn.hutool.core.util.ObjectUtil;
+import com.magicrepokit.chat.constant.GptModel;
+import com.magicrepokit.chat.constant.KnowledgeConstant;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 检索结果后处理
+ * <p>
+ * 分段时带有重叠(recursive(500,100))，直接取top-k经常拿到内容高度重叠的相邻分段，浪费提示词token。
+ * 处理流程:
+ * 1.按最大边际相关性(MMR)对全部候选排序，相似度过高的视为重复直接丢弃
+ * 2.同一文件的相邻分段(分段序号相邻或首尾文本重叠)合并为一段，去掉重叠部分
+ * 3.按排序装入token预算，超出预算的跳过；最终数量由token预算决定，候选数量(maxResult的倍数)只决定挑选范围
+ */
+@Slf4j
+@Component
+public class RetrievalPostProcessor {
+    /**
+     * 分段序号，由DocumentSplitter写入元数据
+     */
+    private static final String SEGMENT_INDEX = "index";
+
+    private final Tokenizer tokenizer = new OpenAiTokenizer(GptModel.MRK_3_5_TURBO.getAcutualModelName());
+    private final Counter tokensSaved = Metrics.counter("mrk.chat.retrieval.tokens.saved");
+
+    /**
+     * 后处理
+     *
+     * @param candidates      候选结果(按相关性降序)
+     * @param diversityLambda 相关性与多样性权衡(0-1.0)
+     * @param tokenBudget     token预算
+     * @return List<TextSegment>
+     */
+    public List<TextSegment> process(List<EmbeddingMatch<TextSegment>> candidates, double diversityLambda, int tokenBudget) {
+        if (ObjectUtil.isEmpty(candidates)) {
+            return new ArrayList<>();
+        }
+        //1.最大边际相关性排序
+        List<EmbeddingMatch<TextSegment>> selected = select(candidates, diversityLambda);
+        //2.合并相邻分段
+        List<TextSegment> merged = merge(selected);
+        //3.token预算
+        List<TextSegment> result = new ArrayList<>();
+        int used = 0;
+        for (TextSegment segment : merged) {
+            int tokens = tokenizer.estimateTokenCountInText(segment.text());
+            if (used + tokens > tokenBudget && !result.isEmpty()) {
+                continue;
+            }
+            result.add(segment);
+            used += tokens;
+        }
+        report(candidates, selected.size(), used);
+        return result;
+    }
+
+    /**
+     * 最大边际相关性排序:每轮选 lambda*相关性-(1-lambda)*与已选结果的最大相似度 最高的候选，直到候选用完
+     */
+    private List<EmbeddingMatch<TextSegment>> select(List<EmbeddingMatch<TextSegment>> candidates, double diversityLambda) {
+        int size = candidates.size();
+        float[][] vectors = new float[size][];
+        double[] norms = new double[size];
+        for (int i = 0; i < size; i++) {
+            Embedding embedding = candidates.get(i).embedding();
+            if (embedding != null) {
+                vectors[i] = embedding.vector();
+                norms[i] = norm(vectors[i]);
+            }
+        }
+        //与已选结果的最大余弦相似度
+        double[] maxSimilarity = new double[size];
+        Arrays.fill(maxSimilarity, -1);
+        boolean[] used = new boolean[size];
+        List<EmbeddingMatch<TextSegment>> selected = new ArrayList<>();
+        while (true) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                if (used[i]) {
+                    continue;
+                }
+                //相似度与检索分数保持同一区间(0-1)
+                double redundancy = selected.isEmpty() ? 0 : (maxSimilarity[i] + 1) / 2;
+                double score = diversityLambda * candidates.get(i).score() - (1 - diversityLambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            used[best] = true;
+            selected.add(candidates.get(best));
+            for (int i = 0; i < size; i++) {
+                if (used[i]) {
+                    continue;
+                }
+                double similarity = cosine(vectors[best], norms[best], vectors[i], norms[i]);
+                maxSimilarity[i] = Math.max(maxSimilarity[i], similarity);
+                if (similarity >= KnowledgeConstant.DUPLICATE_SIMILARITY) {
+                    //近似重复，不再参与挑选
+                    used[i] = true;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 合并同一文件的相邻分段，合并后按组内最靠前的挑选顺序输出
+     */
+    private List<TextSegment> merge(List<EmbeddingMatch<TextSegment>> selected) {
+        Map<String, List<Ranked>> groups = new LinkedHashMap<>();
+        for (int rank = 0; rank < selected.size(); rank++) {
+            TextSegment segment = selected.get(rank).embedded();
+            groups.computeIfAbsent(sourceOf(segment), k -> new ArrayList<>()).add(new Ranked(rank, segment));
+        }
+        List<Ranked> blocks = new ArrayList<>();
+        for (List<Ranked> group : groups.values()) {
+            group.sort(Comparator.comparingInt(ranked -> indexOf(ranked.segment)));
+            Ranked current = group.get(0);
+            int currentEnd = indexOf(current.segment);
+            for (int i = 1; i < group.size(); i++) {
+                Ranked next = group.get(i);
+                int nextIndex = indexOf(next.segment);
+                String text = join(current.segment.text(), next.segment.text(), nextIndex >= 0 && nextIndex == currentEnd + 1);
+                if (text == null) {
+                    blocks.add(current);
+                    current = next;
+                } else {
+                    current = new Ranked(Math.min(current.rank, next.rank), TextSegment.from(text, current.segment.metadata()));
+                }
+                currentEnd = nextIndex;
+            }
+            blocks.add(current);
+        }
+        blocks.sort(Comparator.comparingInt(ranked -> ranked.rank));
+        List<TextSegment> result = new ArrayList<>(blocks.size());
+        for (Ranked block : blocks) {
+            result.add(block.segment);
+        }
+        return result;
+    }
+
+    /**
+     * 拼接两个分段，去掉重叠部分
+     *
+     * @param adjacent 分段序号是否相邻
+     * @return 不相邻且没有重叠返回null
+     */
+    private String join(String first, String second, boolean adjacent) {
+        if (first.contains(second)) {
+            return first;
+        }
+        int overlap = overlap(first, second);
+        if (overlap >= KnowledgeConstant.MIN_OVERLAP_CHARS) {
+            return first + second.substring(overlap);
+        }
+        return adjacent ? first + "\n" + second : null;
+    }
+
+    /**
+     * first的后缀与second的前缀最长重叠长度(KMP前缀函数)
+     */
+    private static int overlap(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        String text = second.substring(0, length) + '\u0000' + first.substring(first.length() - length);
+        int[] prefix = new int[text.length()];
+        for (int i = 1; i < text.length(); i++) {
+            int k = prefix[i - 1];
+            while (k > 0 && text.charAt(i) != text.charAt(k)) {
+                k = prefix[k - 1];
+            }
+            if (text.charAt(i) == text.charAt(k)) {
+                k++;
+            }
+            prefix[i] = k;
+        }
+        return prefix[text.length() - 1];
+    }
+
+    /**
+     * 统计节省的token:不去重时取同样数量的top-k候选的token数减去最终结果的token数
+     */
+    private void report(List<EmbeddingMatch<TextSegment>> candidates, int count, int used) {
+        int naive = 0;
+        for (int i = 0; i < Math.min(count, candidates.size()); i++) {
+            naive += tokenizer.estimateTokenCountInText(candidates.get(i).embedded().text());
+        }
+        int saved = naive - used;
+        if (saved > 0) {
+            tokensSaved.increment(saved);
+        }
+        log.debug("[检索后处理]候选:{},top-k token:{},最终token:{},节省:{}", candidates.size(), naive, used, saved);
+    }
+
+    /**
+     * 分段来源:除分段序号外的元数据(文件名、文件url等)
+     */
+    private static String sourceOf(TextSegment segment) {
+        Map<String, String> metadata = new TreeMap<>(segment.metadata().asMap());
+        metadata.remove(SEGMENT_INDEX);
+        return metadata.toString();
+    }
+
+    private static int indexOf(TextSegment segment) {
+        Metadata metadata = segment.metadata();
+        String index = metadata == null ? null : metadata.get(SEGMENT_INDEX);
+        try {
+            return index == null ? -1 : Integer.parseInt(index);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static double cosine(float[] a, double normA, float[] b, double normB) {
+        if (a == null || b == null || a.length != b.length || normA == 0 || normB == 0) {
+            return 0;
+        }
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot / (normA * normB);
+    }
+
+    @AllArgsConstructor
+    private static class Ranked {
+        private final int rank;
+        private final TextSegment segment;
+    }
+}
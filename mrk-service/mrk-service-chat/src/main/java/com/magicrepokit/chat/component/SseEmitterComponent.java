@@ -4,6 +4,7 @@ import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.magicrepokit.log.exceotion.ServiceException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -17,6 +18,7 @@ import java.util.function.Consumer;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SseEmitterComponent {
     private static AtomicInteger count = new AtomicInteger(0);
 
@@ -24,6 +26,8 @@ public class SseEmitterComponent {
 
     private static ConcurrentMap<String, SseEmitter> maps = new ConcurrentHashMap<>();
 
+    private final StreamLoadReporter streamLoadReporter;
+
 
     /**
      * 建立连接
@@ -36,6 +40,7 @@ public class SseEmitterComponent {
         //建立连接
         SseEmitter connect = connect(key);
         maps.put(key,connect);
+        streamLoadReporter.update(maps.size());
         return connect;
     }
 
@@ -154,6 +159,7 @@ public class SseEmitterComponent {
      */
     private void removeUser(String key) {
         maps.remove(key);
+        streamLoadReporter.update(maps.size());
         log.info("移除用户：{}", key);
     }
 
@@ -0,0 +1,93 @@
+package com.magicrepokit.chat.component;
+
+import com.magicrepokit.chat.constant.StreamConstant;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE连接数上报
+ * <p>
+ * 连接建立和关闭时只更新本地计数，由定时任务在计数变化后写入redis，计数不变时按心跳间隔续期；
+ * key以注册中心中的地址命名，网关据此选择连接数最少的节点
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StreamLoadReporter {
+    private final MRKRedisUtils mrkRedisUtils;
+    private final ObjectProvider<Registration> registrationProvider;
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private volatile int reported = -1;
+    private volatile long reportedAt;
+
+    @PostConstruct
+    public void init() {
+        Metrics.gauge("mrk.chat.streams.open", openStreams);
+    }
+
+    /**
+     * 更新当前打开的连接数
+     *
+     * @param count 连接数
+     */
+    public void update(int count) {
+        openStreams.set(count);
+    }
+
+    @Scheduled(fixedDelay = StreamConstant.REPORT_INTERVAL_MILLIS)
+    public void report() {
+        int current = openStreams.get();
+        long now = System.currentTimeMillis();
+        if (current == reported && now - reportedAt < StreamConstant.HEARTBEAT_MILLIS) {
+            return;
+        }
+        String key = getKey();
+        if (key == null) {
+            return;
+        }
+        try {
+            mrkRedisUtils.setExpire(key, current, StreamConstant.REPORT_TTL_SECONDS);
+            reported = current;
+            reportedAt = now;
+        } catch (Exception e) {
+            log.warn("[连接数上报]写入失败:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 节点下线时删除上报数据，网关不再参考
+     */
+    @PreDestroy
+    public void shutdown() {
+        String key = getKey();
+        if (key == null) {
+            return;
+        }
+        try {
+            mrkRedisUtils.del(key);
+        } catch (Exception e) {
+            log.warn("[连接数上报]删除失败:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 服务未注册(端口未确定)时返回null
+     */
+    private String getKey() {
+        Registration registration = registrationProvider.getIfAvailable();
+        if (registration == null || registration.getPort() <= 0) {
+            return null;
+        }
+        return StreamConstant.REDIS_KEY_STREAMS + registration.getHost() + ":" + registration.getPort();
+    }
+}
@@ -2,10 +2,12 @@ package com.magicrepokit.chat.event.listener;
 
 import cn.hutool.core.util.ObjectUtil;
 import com.magicrepokit.chat.component.LangchainComponent;
+import com.magicrepokit.chat.component.RetrievalCacheComponent;
 import com.magicrepokit.chat.constant.KnowledgeConstant;
 import com.magicrepokit.chat.entity.KnowledgeDetail;
 import com.magicrepokit.chat.event.KnowledgeProcessEvent;
 import com.magicrepokit.chat.service.IKnowledgeDetailService;
+import com.magicrepokit.langchain.index.LocalVectorIndexManager;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentParser;
 import dev.langchain4j.data.document.DocumentSplitter;
@@ -14,8 +16,9 @@ import dev.langchain4j.data.document.parser.TextDocumentParser;
 import dev.langchain4j.data.document.parser.apache.pdfbox.ApachePdfBoxDocumentParser;
 import dev.langchain4j.data.document.parser.apache.poi.ApachePoiDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationListener;
@@ -32,6 +35,8 @@ import static dev.langchain4j.model.openai.OpenAiModelName.GPT_3_5_TURBO;
 public class KnowledgeProcessListener implements ApplicationListener<KnowledgeProcessEvent> {
     private final IKnowledgeDetailService knowledgeDetailService;
     private final LangchainComponent langchainComponent;
+    private final LocalVectorIndexManager localVectorIndexManager;
+    private final RetrievalCacheComponent retrievalCacheComponent;
     @Override
     @Async
     public void onApplicationEvent(KnowledgeProcessEvent event) {
@@ -73,13 +78,14 @@ public class KnowledgeProcessListener implements ApplicationListener<KnowledgePr
             //开始训练
             log.info("{}:文件开始处理-训练",knowledgeDetail.getName());
             changeStatus(knowledgeDetail,KnowledgeConstant.TRAINING,null);
-            EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                    .documentSplitter(documentSplitter)
-                    .embeddingModel(langchainComponent.getDefaultEmbeddingModel())
-                    .embeddingStore(langchainComponent.getDefaultElasticsearchEmbeddingStore(event.getIndexName()))
-                    .build();
-            ingestor.ingest(document);
+            List<TextSegment> segments = documentSplitter.split(document);
+            List<Embedding> embeddings = langchainComponent.getDefaultEmbeddingModel().embedAll(segments).content();
+            List<String> ids = langchainComponent.getDefaultElasticsearchEmbeddingStore(event.getIndexName()).addAll(embeddings, segments);
+            //热点知识库增量刷新本地索引
+            localVectorIndexManager.append(event.getIndexName(), ids, embeddings, segments);
             changeStatus(knowledgeDetail,KnowledgeConstant.COMPLETE,null);
+            //检索缓存失效
+            retrievalCacheComponent.bumpGeneration(event.getIndexName());
         }catch (Exception e){
             log.error("{}:文件开始处理-失败:{}",knowledgeDetail.getName(),e.getMessage());
             changeStatus(knowledgeDetail,KnowledgeConstant.FAIL,e.getMessage());
@@ -10,6 +10,7 @@ import com.magicrepokit.chat.component.LangchainComponent;
 import com.magicrepokit.chat.component.SseEmitterComponent;
 import com.magicrepokit.chat.constant.ChatResultCode;
 import com.magicrepokit.chat.constant.GptModel;
+import com.magicrepokit.chat.constant.KnowledgeConstant;
 import com.magicrepokit.chat.constant.StatusConstant;
 import com.magicrepokit.chat.dto.gpt.GptChatDTO;
 import com.magicrepokit.chat.dto.gpt.GptChatPresetDTO;
@@ -107,7 +108,7 @@ public class GptServiceImpl implements IGptService {
         List<TextSegment> relevant = null;
         if(ObjectUtil.isNotEmpty(gptRoleVO.getKnowledgeFileListVO())){
             KnowledgeFileListVO knowledge = gptRoleVO.getKnowledgeFileListVO();
-            relevant = getRelevant(knowledge.getIndexName(),gptChatDTO.getContent(),knowledge.getMinScore(),knowledge.getMaxResult());
+            relevant = getRelevant(knowledge,gptChatDTO.getContent());
             SystemMessage knowledgeMessage = getKnowledgeMessage(relevant);
             String text = systemMessage.text();
             if(ObjectUtil.isNotEmpty(knowledgeMessage)){
@@ -211,7 +212,7 @@ public class GptServiceImpl implements IGptService {
         if(ObjectUtil.isNotEmpty(chatPresetDTO.getKnowledgeId())){
             KnowledgeFileListVO knowledge = knowledgeService.detailFile(chatPresetDTO.getKnowledgeId());
             if(!ObjectUtil.isEmpty(knowledge)){
-                relevant = getRelevant(knowledge.getIndexName(), chatPresetDTO.getUserInput(), knowledge.getMinScore(), knowledge.getMaxResult());
+                relevant = getRelevant(knowledge, chatPresetDTO.getUserInput());
                 SystemMessage knowledgeMessage = getKnowledgeMessage(relevant);
                 if(ObjectUtil.isNotEmpty(knowledgeMessage)&&ObjectUtil.isNotEmpty(systemMessage)){
                     String text = systemMessage.text();
@@ -396,12 +397,19 @@ public class GptServiceImpl implements IGptService {
 
     /**
      * 获取相关内容
-     * @param indexName
-     * @param context
+     * @param knowledge 知识库
+     * @param context 问题
      * @return
      */
-    private List<TextSegment> getRelevant(String indexName, String context,Double minScore,Integer maxResult) {
-        return langchainComponent.findRelevant(indexName, context, maxResult, minScore);
+    private List<TextSegment> getRelevant(KnowledgeFileListVO knowledge, String context) {
+        int maxResult = ObjectUtil.isNull(knowledge.getMaxResult()) ? 0 : knowledge.getMaxResult();
+        double minScore = ObjectUtil.isNull(knowledge.getMinScore()) ? 0 : knowledge.getMinScore();
+        if(StatusConstant.YES.equals(knowledge.getIsDiversify())){
+            double diversityLambda = ObjectUtil.isNull(knowledge.getDiversityLambda()) ? KnowledgeConstant.DEFAULT_DIVERSITY_LAMBDA : knowledge.getDiversityLambda();
+            int tokenBudget = ObjectUtil.isNull(knowledge.getTokenBudget()) ? KnowledgeConstant.DEFAULT_TOKEN_BUDGET : knowledge.getTokenBudget();
+            return langchainComponent.findDiverseRelevant(knowledge.getIndexName(), context, maxResult, minScore, diversityLambda, tokenBudget);
+        }
+        return langchainComponent.findRelevant(knowledge.getIndexName(), context, maxResult, minScore);
     }
 
     /**
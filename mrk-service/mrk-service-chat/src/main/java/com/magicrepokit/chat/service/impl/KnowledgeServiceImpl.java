@@ -4,8 +4,10 @@ import cn.hutool.core.lang.UUID;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.magicrepokit.chat.component.RetrievalCacheComponent;
 import com.magicrepokit.chat.constant.ChatResultCode;
 import com.magicrepokit.chat.constant.KnowledgeConstant;
+import com.magicrepokit.chat.constant.StatusConstant;
 import com.magicrepokit.chat.converter.KnowledgeConverter;
 import com.magicrepokit.chat.dto.knowledge.*;
 import com.magicrepokit.chat.entity.Knowledge;
@@ -20,6 +22,7 @@ import com.magicrepokit.common.utils.AuthUtil;
 import com.magicrepokit.common.utils.StringUtil;
 import com.magicrepokit.jwt.entity.MRKUser;
 import com.magicrepokit.langchain.ElasticOperation;
+import com.magicrepokit.langchain.index.LocalVectorIndexManager;
 import com.magicrepokit.log.exceotion.ServiceException;
 import com.magicrepokit.mb.base.BaseServiceImpl;
 import lombok.AllArgsConstructor;
@@ -27,6 +30,7 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +45,16 @@ public class KnowledgeServiceImpl extends BaseServiceImpl<KnowledgeMapper, Knowl
     private final IKnowledgeDetailService knowledgeDetailService;
     private final ApplicationEventPublisher applicationEventPublisher;
     private final ElasticOperation elasticOperation;
+    private final LocalVectorIndexManager localVectorIndexManager;
+    private final RetrievalCacheComponent retrievalCacheComponent;
+
+    /**
+     * 注册热点知识库来源，由本地向量索引定时同步
+     */
+    @PostConstruct
+    public void registerHotIndexSource() {
+        localVectorIndexManager.registerHotIndexSource(this::listHotIndexName);
+    }
 
     /**
      * 创建文件夹或文件
@@ -76,8 +90,15 @@ public class KnowledgeServiceImpl extends BaseServiceImpl<KnowledgeMapper, Knowl
         }else{
             knowledge.setIndexName(null);
             knowledge.setImageUrl(null);
+            knowledge.setIsHot(null);
+            knowledge.setIsDiversify(null);
+            knowledge.setDiversityLambda(null);
+            knowledge.setTokenBudget(null);
         }
         this.save(knowledge);
+        if(StatusConstant.YES.equals(knowledge.getIsHot())){
+            localVectorIndexManager.requestSync();
+        }
         return knowledgeConverter.entityToVO(knowledge);
     }
 
@@ -355,6 +376,9 @@ public class KnowledgeServiceImpl extends BaseServiceImpl<KnowledgeMapper, Knowl
         if(!elasticOperation.deleteIndex(indexName)){
             throw new ServiceException(ChatResultCode.DELETE_INDEX_ERROR);
         }
+        //3.卸载本地索引并使检索缓存失效
+        indexName.forEach(localVectorIndexManager::drop);
+        indexName.forEach(retrievalCacheComponent::bumpGeneration);
         return flag;
     }
 
@@ -384,8 +408,26 @@ public class KnowledgeServiceImpl extends BaseServiceImpl<KnowledgeMapper, Knowl
             if(ObjectUtil.isEmpty(updateDTO.getMaxResult())){
                 knowledge.setMaxResult(updateDTO.getMaxResult());
             }
+            if(ObjectUtil.isNotNull(updateDTO.getIsHot())){
+                knowledge.setIsHot(updateDTO.getIsHot());
+            }
+            if(ObjectUtil.isNotNull(updateDTO.getIsDiversify())){
+                knowledge.setIsDiversify(updateDTO.getIsDiversify());
+            }
+            if(ObjectUtil.isNotNull(updateDTO.getDiversityLambda())){
+                knowledge.setDiversityLambda(updateDTO.getDiversityLambda());
+            }
+            if(ObjectUtil.isNotNull(updateDTO.getTokenBudget())){
+                knowledge.setTokenBudget(updateDTO.getTokenBudget());
+            }
         }
-        return updateById(knowledge) ? knowledgeConverter.entityToVO(knowledge) : null;
+        if(!updateById(knowledge)){
+            return null;
+        }
+        if(ObjectUtil.isNotNull(updateDTO.getIsHot())){
+            localVectorIndexManager.requestSync();
+        }
+        return knowledgeConverter.entityToVO(knowledge);
     }
 
 
@@ -408,6 +450,21 @@ public class KnowledgeServiceImpl extends BaseServiceImpl<KnowledgeMapper, Knowl
         return true;
     }
 
+    /**
+     * 热点知识库索引名
+     * @return 索引名
+     */
+    private List<String> listHotIndexName() {
+        return this.list(new LambdaQueryWrapper<Knowledge>()
+                        .select(Knowledge::getIndexName)
+                        .eq(Knowledge::getType, KnowledgeConstant.FILE)
+                        .eq(Knowledge::getIsHot, StatusConstant.YES))
+                .stream()
+                .map(Knowledge::getIndexName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 生成索引名
      * @return 索引名
@@ -0,0 +1,114 @@
+package com.magicrepokit.chat.component;
+
+import com.magicrepokit.chat.constant.GptModel;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 检索结果后处理
+ */
+class RetrievalPostProcessorTest {
+    private final RetrievalPostProcessor processor = new RetrievalPostProcessor();
+    private final Tokenizer tokenizer = new OpenAiTokenizer(GptModel.MRK_3_5_TURBO.getAcutualModelName());
+
+    @Test
+    void tokenBudgetDecidesHowManyResultsAreKept() {
+        List<EmbeddingMatch<TextSegment>> candidates = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            candidates.add(match(0.9 - i * 0.01, axis(i, 8), "file" + i, 0, "第" + i + "段内容，讲的是完全不同的主题" + i));
+        }
+
+        //预算足够时保留全部候选，不受原来的maxResult限制
+        List<TextSegment> all = processor.process(candidates, 0.7, 100000);
+        assertEquals(8, all.size());
+
+        //预算只够前三段
+        int budget = 0;
+        for (int i = 0; i < 3; i++) {
+            budget += tokenizer.estimateTokenCountInText(candidates.get(i).embedded().text());
+        }
+        List<TextSegment> limited = processor.process(candidates, 0.7, budget);
+        assertEquals(texts(candidates.subList(0, 3)), limited.stream().map(TextSegment::text).collect(Collectors.toList()));
+    }
+
+    @Test
+    void budgetSmallerThanFirstResultStillReturnsIt() {
+        List<EmbeddingMatch<TextSegment>> candidates = Arrays.asList(
+                match(0.9, axis(0, 2), "a", 0, "第一段比较长的内容，超过了预算"),
+                match(0.8, axis(1, 2), "b", 0, "第二段"));
+        List<TextSegment> result = processor.process(candidates, 0.7, 1);
+        assertEquals(1, result.size());
+        assertEquals("第一段比较长的内容，超过了预算", result.get(0).text());
+    }
+
+    @Test
+    void nearDuplicatesAreDroppedAndDiverseResultsPromoted() {
+        float[] base = {1, 0, 0};
+        float[] duplicate = {1, 0.01f, 0};
+        float[] similar = {1, 0.6f, 0};
+        float[] diverse = {0, 0, 1};
+        List<EmbeddingMatch<TextSegment>> candidates = Arrays.asList(
+                match(0.95, base, "a", 0, "原始段落"),
+                match(0.94, duplicate, "b", 0, "几乎相同的段落"),
+                match(0.93, similar, "c", 0, "相似段落"),
+                match(0.85, diverse, "d", 0, "不同主题段落"));
+
+        List<String> result = processor.process(candidates, 0.5, 100000).stream().map(TextSegment::text).collect(Collectors.toList());
+
+        assertFalse(result.contains("几乎相同的段落"));
+        assertEquals(Arrays.asList("原始段落", "不同主题段落", "相似段落"), result);
+    }
+
+    @Test
+    void overlappingNeighboursFromTheSameFileAreMerged() {
+        String overlap = "这是两个相邻分段共有的重叠文本，长度超过二十个字符";
+        List<EmbeddingMatch<TextSegment>> candidates = Arrays.asList(
+                match(0.9, axis(0, 3), "same", 1, "第二段开头。" + overlap),
+                match(0.88, axis(1, 3), "same", 2, overlap + "第三段结尾。"),
+                match(0.7, axis(2, 3), "other", 0, "其他文件"));
+
+        List<TextSegment> result = processor.process(candidates, 0.7, 100000);
+
+        assertEquals(2, result.size());
+        assertEquals("第二段开头。" + overlap + "第三段结尾。", result.get(0).text());
+        assertEquals("其他文件", result.get(1).text());
+    }
+
+    @Test
+    void emptyCandidates() {
+        assertTrue(processor.process(new ArrayList<>(), 0.7, 1500).isEmpty());
+    }
+
+    private static EmbeddingMatch<TextSegment> match(double score, float[] vector, String file, int index, String text) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("file_name", file);
+        metadata.put("index", String.valueOf(index));
+        return new EmbeddingMatch<>(score, file + index, Embedding.from(vector), TextSegment.from(text, new Metadata(metadata)));
+    }
+
+    private static float[] axis(int i, int dimension) {
+        float[] vector = new float[dimension];
+        vector[i] = 1;
+        return vector;
+    }
+
+    private static List<String> texts(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(match -> match.embedded().text()).collect(Collectors.toList());
+    }
+}
@@ -51,6 +51,18 @@ public class AuthController {
         return R.data(authService.refreshToken(refreshToken));
     }
 
+    /**
+     * 退出登录
+     *
+     * @return 是否成功
+     */
+    @PostMapping("/logout")
+    @ApiOperation(value = "退出登录", notes = "退出登录")
+    public R<Boolean> logout(){
+        authService.logout();
+        return R.status(true);
+    }
+
 
     /**
      * 获得三方登录跳转地址
@@ -9,6 +9,8 @@ import com.magicrepokit.system.service.IUserService;
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @AllArgsConstructor
 public class SystemClient implements ISystemClient{
@@ -37,6 +39,28 @@ public class SystemClient implements ISystemClient{
         return R.data(userService.userInfo(id));
     }
 
+    /**
+     * 获取密码哈希
+     * @param id
+     * @return
+     */
+    @Override
+    @GetMapping(USER_PASSWORD)
+    public R<String> password(@PathVariable("id") Long id) {
+        return R.data(userService.password(id));
+    }
+
+    /**
+     * 批量获取用户信息
+     * @param ids
+     * @return
+     */
+    @Override
+    @PostMapping(USER_INFO_LIST)
+    public R<List<UserInfoVO>> userInfo(@RequestBody List<Long> ids) {
+        return R.data(userService.userInfo(ids));
+    }
+
     /**
      * 获取社交用户信息
      * @param authSocialLoginDTO
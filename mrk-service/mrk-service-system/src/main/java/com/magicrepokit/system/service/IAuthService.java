@@ -30,6 +30,11 @@ public interface IAuthService {
      */
     AuthTokenVO refreshToken(String refreshToken);
 
+    /**
+     * 退出登录，吊销当前令牌
+     */
+    void logout();
+
     /**
      *  获取三方认证请求地址
      *
@@ -4,6 +4,8 @@ import com.magicrepokit.mb.base.BaseService;
 import com.magicrepokit.system.entity.user.User;
 import com.magicrepokit.system.vo.user.UserInfoVO;
 
+import java.util.List;
+
 /**
  * user服务类
  */
@@ -24,6 +26,29 @@ public interface IUserService extends BaseService<User> {
      */
     UserInfoVO userInfo(String account);
 
+    /**
+     * 密码哈希(用户信息不含密码)
+     *
+     * @param userId 用户id
+     * @return 不存在返回null
+     */
+    String password(Long userId);
+
+    /**
+     * 批量获取用户信息
+     *
+     * @param ids 用户id
+     * @return 存在的用户信息
+     */
+    List<UserInfoVO> userInfo(List<Long> ids);
+
+    /**
+     * 用户变更后清除用户信息缓存
+     *
+     * @param id 用户id
+     */
+    void evictUserInfo(Long id);
+
     /**
      * 判断密码是否匹配
      *
@@ -33,6 +58,15 @@ public interface IUserService extends BaseService<User> {
      */
     boolean isPasswordMatch(String rawPassword, String encodedPassword);
 
+    /**
+     * 密码强度与目标强度不一致时后台重新哈希
+     *
+     * @param userId 已通过密码校验的用户id
+     * @param encodedPassword 校验时使用的密码哈希
+     * @param rawPassword 未加密的密码
+     */
+    void upgradePassword(Long userId, String encodedPassword, String rawPassword);
+
     /**
      * 创建用户
      * @param user
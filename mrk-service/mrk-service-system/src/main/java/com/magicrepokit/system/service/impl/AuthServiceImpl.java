@@ -4,8 +4,12 @@ package com.magicrepokit.system.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjectUtil;
+import com.magicrepokit.common.utils.AuthUtil;
 import com.magicrepokit.common.utils.WebUtil;
 import com.magicrepokit.jwt.constant.JWTConstant;
+import com.magicrepokit.jwt.constant.UserType;
+import com.magicrepokit.jwt.entity.MRKUser;
+import com.magicrepokit.jwt.support.TrustedIdentity;
 import com.magicrepokit.jwt.utils.JWTUtil;
 import com.magicrepokit.log.exceotion.ServiceException;
 import com.magicrepokit.system.constant.SocialTypeEnum;
@@ -14,10 +18,12 @@ import com.magicrepokit.system.constant.SystemResultCode;
 import com.magicrepokit.system.constant.SystemUserStatus;
 import com.magicrepokit.system.dto.auth.AuthLoginDTO;
 import com.magicrepokit.system.dto.auth.AuthSocialLoginDTO;
+import com.magicrepokit.system.entity.user.User;
 import com.magicrepokit.system.vo.auth.AuthTokenVO;
 import com.magicrepokit.system.service.IAuthService;
 import com.magicrepokit.system.service.ISocialUserService;
 import com.magicrepokit.system.service.IUserService;
+import com.magicrepokit.system.support.LoginFailCounter;
 import com.magicrepokit.system.vo.user.UserInfoVO;
 import com.xingyuv.jushauth.request.AuthRequest;
 import com.xingyuv.jushauth.utils.AuthStateUtils;
@@ -54,6 +60,7 @@ public class AuthServiceImpl implements IAuthService {
     private final AuthRequestFactory authRequestFactory;
     private final ISocialUserService socialUserService;
     private final RestTemplate restTemplate;
+    private final LoginFailCounter loginFailCounter;
     @Value("${mrk.auth.local.client-id}")
     private final String clientId = null;
     @Value("${mrk.auth.local.client-secret}")
@@ -67,11 +74,21 @@ public class AuthServiceImpl implements IAuthService {
      */
     @Override
     public AuthTokenVO login(AuthLoginDTO authLoginDTO) {
-        //校验用户
-        UserInfoVO authenticate = authenticate(authLoginDTO.getUsername(), authLoginDTO.getPassword());
+        String userType = getUserType();
+        //校验用户(只在这里查询一次用户并校验一次密码)
+        UserInfoVO authenticate = authenticate(authLoginDTO.getUsername(), authLoginDTO.getPassword(), userType);
+        //签发可信断言，认证中心校验签名后直接签发令牌，不再重复查询用户和校验密码
+        User user = authenticate.getUser();
+        MRKUser mrkUser = new MRKUser(user.getId(), user.getName(), user.getRealName(), user.getAccount(), user.getDeptId(), user.getPostId(), user.getRoleId());
+        String assertion = TrustedIdentity.encodeAssertion(mrkUser, userType);
+        long timestamp = System.currentTimeMillis();
+        MultiValueMap<String, Object> formData = new LinkedMultiValueMap<>();
+        formData.add(JWTConstant.GRANT_TYPE, JWTConstant.ASSERTION);
+        formData.add(JWTConstant.ASSERTION, assertion);
+        formData.add(JWTConstant.ASSERTION_TIMESTAMP, String.valueOf(timestamp));
+        formData.add(JWTConstant.ASSERTION_SIGNATURE, TrustedIdentity.sign(TrustedIdentity.PURPOSE_ASSERTION, assertion, timestamp));
         //oauth登录获取令牌
-
-        return remoteTokenService(JWTConstant.PASSWORD, clientId, clientSecret, authLoginDTO.getUsername(), authLoginDTO.getPassword(), null,null,null,null);
+        return remoteTokenService(clientId, clientSecret, formData);
     }
 
     /**
@@ -95,6 +112,19 @@ public class AuthServiceImpl implements IAuthService {
         return remoteTokenService(JWTConstant.REFRESH_TOKEN,clientId,clientSecret,null,null,refreshToken,null,null,null);
     }
 
+    /**
+     * 退出登录，令牌已失效时不做处理
+     */
+    @Override
+    public void logout() {
+        HttpServletRequest request = WebUtil.getRequest();
+        Claims claims = request == null ? null : AuthUtil.getClaims(request);
+        if (claims == null) {
+            return;
+        }
+        JWTUtil.revokeToken(claims, getUserType());
+    }
+
     /**
      *  获取三方认证请求地址
      *
@@ -142,14 +172,6 @@ public class AuthServiceImpl implements IAuthService {
      * @return 令牌信息
      */
     private AuthTokenVO remoteTokenService(String grantType,String clientId,String clientSecret,String username,String password,String refreshToken,Integer socialType,String socialCode,String socialState){
-        String userType = getUserType();
-        //负载获取远程服务
-        ServiceInstance serviceInstance = loadBalancerClient.choose(SystemConstant.REMOTE_AUTH_NAME);
-        if(serviceInstance==null){
-            throw new ServiceException(SystemResultCode.NOT_FOUND_SERVICE,SystemConstant.REMOTE_AUTH_NAME);
-        }
-        //获取远程地址
-        String path = serviceInstance.getUri().toString()+SystemConstant.OAUTH_TOKEN_URL;
         //定义body
         MultiValueMap<String, Object> formData = new LinkedMultiValueMap<>();
         formData.add(JWTConstant.GRANT_TYPE,grantType);
@@ -159,6 +181,26 @@ public class AuthServiceImpl implements IAuthService {
         formData.add(JWTConstant.SOURCE,socialType==null?null:socialType+"");
         formData.add(JWTConstant.CODE,socialCode);
         formData.add(JWTConstant.STATE,socialState);
+        return remoteTokenService(clientId, clientSecret, formData);
+    }
+
+    /**
+     * 认证中心获取令牌
+     *
+     * @param clientId 客户端id
+     * @param clientSecret 客户端密码
+     * @param formData 请求参数(含授权类型)
+     * @return 令牌信息
+     */
+    private AuthTokenVO remoteTokenService(String clientId,String clientSecret,MultiValueMap<String, Object> formData){
+        String userType = getUserType();
+        //负载获取远程服务
+        ServiceInstance serviceInstance = loadBalancerClient.choose(SystemConstant.REMOTE_AUTH_NAME);
+        if(serviceInstance==null){
+            throw new ServiceException(SystemResultCode.NOT_FOUND_SERVICE,SystemConstant.REMOTE_AUTH_NAME);
+        }
+        //获取远程地址
+        String path = serviceInstance.getUri().toString()+SystemConstant.OAUTH_TOKEN_URL;
         String queryParams = WebUtil.buildQueryParams(formData);
         String urlWithParams = path + queryParams;
 
@@ -202,22 +244,55 @@ public class AuthServiceImpl implements IAuthService {
      *
      * @param username 用户名
      * @param password 密码
+     * @param userType 用户类型
      * @return
      */
-    public UserInfoVO authenticate(String username, String password){
-        //查询用户信息
-        UserInfoVO userInfoVO = userService.userInfo(username);
-        if(ObjectUtil.isEmpty(userInfoVO)){
-            throw new ServiceException(SystemResultCode.NOT_FOUND_USER);
+    public UserInfoVO authenticate(String username, String password, String userType){
+        UserType userTypeEnum = UserType.getByUserType(userType);
+        if(userTypeEnum==null){
+            throw new ServiceException(SystemResultCode.NOT_FOUND_USER_TYPE);
         }
-        //校验密码
-        if (!userService.isPasswordMatch(password, userInfoVO.getUser().getPassword())) {
+        //判断账户是否已锁定，同时计入本次尝试
+        judgeFail(username);
+        UserInfoVO userInfoVO;
+        String encodedPassword = null;
+        boolean matched = false;
+        try {
+            //查询用户信息
+            userInfoVO = userService.userInfo(username);
+            if (ObjectUtil.isNotEmpty(userInfoVO) && ObjectUtil.isNotEmpty(userInfoVO.getUser())) {
+                //校验密码(用户信息不含密码，单独获取密码哈希)
+                encodedPassword = userService.password(userInfoVO.getUser().getId());
+                matched = encodedPassword != null && userService.isPasswordMatch(password, encodedPassword);
+            }
+        } catch (RuntimeException e) {
+            //未完成校验(系统繁忙等)，不计入错误次数
+            loginFailCounter.cancel(username);
+            throw e;
+        }
+        //用户不存在、密码错误、用户type不匹配都保留本次计数
+        if (!matched || userInfoVO.getUser().getUserType() == null || !userInfoVO.getUser().getUserType().contains(userTypeEnum.getCode())) {
             throw new ServiceException(SystemResultCode.NOT_FOUND_USER);
         }
+        //账户密码正确，清除错误次数
+        loginFailCounter.clear(username);
         //判断是否激活
         if(userInfoVO.getUser().getStatus()== SystemUserStatus.Disabled.getCode()){
             throw new ServiceException(SystemResultCode.DISABLED_USER);
         }
+        //密码强度与目标强度不一致时重新哈希
+        userService.upgradePassword(userInfoVO.getUser().getId(), encodedPassword, password);
         return userInfoVO;
     }
+
+    /**
+     * 判断是否被锁定，未锁定时计入本次尝试
+     *
+     * @param account 账户
+     */
+    private void judgeFail(String account) {
+        if (loginFailCounter.acquire(account) < 0) {
+            throw new ServiceException(SystemResultCode.USER_IS_LOCKED);
+        }
+    }
 }
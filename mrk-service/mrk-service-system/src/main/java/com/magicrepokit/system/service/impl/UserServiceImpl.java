@@ -1,6 +1,9 @@
 package com.magicrepokit.system.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.magicrepokit.common.support.PasswordHasher;
 import com.magicrepokit.log.exceotion.ServiceException;
 import com.magicrepokit.mb.base.BaseServiceImpl;
 import com.magicrepokit.system.build.IBuildUserService;
@@ -8,15 +11,22 @@ import com.magicrepokit.system.constant.SystemResultCode;
 import com.magicrepokit.system.entity.user.User;
 import com.magicrepokit.system.mapper.UserMapper;
 import com.magicrepokit.system.service.IUserService;
+import com.magicrepokit.system.support.UserInfoRedisCache;
 import com.magicrepokit.system.vo.user.UserInfoVO;
 import lombok.AllArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
 
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
 @Service
 @AllArgsConstructor
 public class UserServiceImpl extends BaseServiceImpl<UserMapper, User> implements IUserService {
     private IBuildUserService userBuild;
+    private PasswordHasher passwordHasher;
+    private UserInfoRedisCache userInfoRedisCache;
 
     /**
      * 用户信息
@@ -25,8 +35,39 @@ public class UserServiceImpl extends BaseServiceImpl<UserMapper, User> implement
      */
     @Override
     public UserInfoVO userInfo(Long userId) {
+        UserInfoVO userInfoVO = userInfoRedisCache.get(userId);
+        if (userInfoVO != null) {
+            return userInfoVO;
+        }
+        //查询前记录版本号，查询期间用户发生变更时不回填
+        long version = userInfoRedisCache.version(userId);
         User user = this.getById(userId);
-        return userBuild.userInfoBuild(user);
+        userInfoVO = userBuild.userInfoBuild(withoutPassword(user));
+        userInfoRedisCache.put(userInfoVO, version);
+        return userInfoVO;
+    }
+
+    /**
+     * 密码哈希，只在校验密码时使用，不随用户信息返回
+     * @param userId
+     * @return
+     */
+    @Override
+    public String password(Long userId) {
+        String password = userInfoRedisCache.getPassword(userId);
+        if (password != null) {
+            return password;
+        }
+        long version = userInfoRedisCache.version(userId);
+        User user = this.getOne(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getPassword)
+                .eq(User::getId, userId)
+        );
+        if (user == null) {
+            return null;
+        }
+        userInfoRedisCache.putPassword(userId, user.getPassword(), version);
+        return user.getPassword();
     }
 
     /**
@@ -36,10 +77,138 @@ public class UserServiceImpl extends BaseServiceImpl<UserMapper, User> implement
      */
     @Override
     public UserInfoVO userInfo(String account) {
+        UserInfoVO userInfoVO = userInfoRedisCache.get(account);
+        if (userInfoVO != null) {
+            return userInfoVO;
+        }
+        //只查询用户id，再按用户id加载(带版本号回填)
         User user = this.getOne(new LambdaQueryWrapper<User>()
+                .select(User::getId)
                 .eq(User::getAccount,account)
         );
-        return userBuild.userInfoBuild(user);
+        return user == null ? null : userInfo(user.getId());
+    }
+
+    /**
+     * 批量获取用户信息
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<UserInfoVO> userInfo(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> idSet = new LinkedHashSet<>(ids);
+        Map<Long, UserInfoVO> cached = userInfoRedisCache.get(idSet);
+        List<Long> missIds = new ArrayList<>();
+        Map<Long, Long> versions = new HashMap<>();
+        for (Long id : idSet) {
+            if (!cached.containsKey(id)) {
+                missIds.add(id);
+                versions.put(id, userInfoRedisCache.version(id));
+            }
+        }
+        if (!missIds.isEmpty()) {
+            for (User user : this.listByIds(missIds)) {
+                UserInfoVO userInfoVO = userBuild.userInfoBuild(withoutPassword(user));
+                userInfoRedisCache.put(userInfoVO, versions.get(user.getId()));
+                cached.put(user.getId(), userInfoVO);
+            }
+        }
+        List<UserInfoVO> result = new ArrayList<>(cached.size());
+        for (Long id : idSet) {
+            UserInfoVO userInfoVO = cached.get(id);
+            if (userInfoVO != null) {
+                result.add(userInfoVO);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清除用户信息缓存
+     * @param id
+     */
+    @Override
+    public void evictUserInfo(Long id) {
+        userInfoRedisCache.evict(id);
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean updated = super.updateById(entity);
+        if (updated) {
+            evictUserInfo(entity.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean update(User entity, Wrapper<User> updateWrapper) {
+        //条件更新无法得知影响的用户，更新前按相同条件查出用户id
+        List<Long> ids = listIds(updateWrapper);
+        boolean updated = super.update(entity, updateWrapper);
+        if (updated) {
+            ids.forEach(this::evictUserInfo);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean updateBatchById(Collection<User> entityList, int batchSize) {
+        boolean updated = super.updateBatchById(entityList, batchSize);
+        if (updated) {
+            entityList.forEach(user -> evictUserInfo(user.getId()));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean saveOrUpdateBatch(Collection<User> entityList, int batchSize) {
+        boolean saved = super.saveOrUpdateBatch(entityList, batchSize);
+        if (saved) {
+            entityList.stream().map(User::getId).filter(Objects::nonNull).forEach(this::evictUserInfo);
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (removed) {
+            evictUserInfo(Long.valueOf(String.valueOf(id)));
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeByIds(Collection<? extends Serializable> idList) {
+        boolean removed = super.removeByIds(idList);
+        if (removed) {
+            idList.forEach(id -> evictUserInfo(Long.valueOf(String.valueOf(id))));
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeByMap(Map<String, Object> columnMap) {
+        List<Long> ids = this.listByMap(columnMap).stream().map(User::getId).collect(Collectors.toList());
+        boolean removed = super.removeByMap(columnMap);
+        if (removed) {
+            ids.forEach(this::evictUserInfo);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Wrapper<User> queryWrapper) {
+        List<Long> ids = listIds(queryWrapper);
+        boolean removed = super.remove(queryWrapper);
+        if (removed) {
+            ids.forEach(this::evictUserInfo);
+        }
+        return removed;
     }
 
     /**
@@ -51,7 +220,30 @@ public class UserServiceImpl extends BaseServiceImpl<UserMapper, User> implement
      */
     @Override
     public boolean isPasswordMatch(String rawPassword, String encodedPassword) {
-        return BCrypt.checkpw(rawPassword,encodedPassword);
+        try {
+            return passwordHasher.matches(rawPassword, encodedPassword);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceException(SystemResultCode.LOGIN_BUSY);
+        }
+    }
+
+    /**
+     * 密码重新哈希
+     *
+     * @param userId 已通过密码校验的用户id
+     * @param encodedPassword 校验时使用的密码哈希
+     * @param rawPassword 未加密的密码
+     */
+    @Override
+    public void upgradePassword(Long userId, String encodedPassword, String rawPassword) {
+        if (!passwordHasher.needsUpgrade(encodedPassword)) {
+            return;
+        }
+        //只在密码未被修改时更新(更新成功后清除缓存)
+        passwordHasher.upgradeAsync(rawPassword, upgradedPassword -> this.update(new LambdaUpdateWrapper<User>()
+                .eq(User::getId, userId)
+                .eq(User::getPassword, encodedPassword)
+                .set(User::getPassword, upgradedPassword)));
     }
 
     /**
@@ -70,6 +262,27 @@ public class UserServiceImpl extends BaseServiceImpl<UserMapper, User> implement
         return true;
     }
 
+    /**
+     * 用户信息不含密码，密码通过{@link #password(Long)}单独获取
+     * @param user 数据库查询的用户
+     * @return 去掉密码的用户
+     */
+    private static User withoutPassword(User user) {
+        if (user != null) {
+            user.setPassword(null);
+        }
+        return user;
+    }
+
+    /**
+     * 按条件查询用户id
+     * @param wrapper 更新或删除条件
+     * @return 用户id
+     */
+    private List<Long> listIds(Wrapper<User> wrapper) {
+        return this.listObjs(wrapper, id -> Long.valueOf(String.valueOf(id)));
+    }
+
     /**
      * 检测用户名
      * @param account 用户名
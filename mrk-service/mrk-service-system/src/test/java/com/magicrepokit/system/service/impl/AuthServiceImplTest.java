@@ -0,0 +1,107 @@
+package com.magicrepokit.system.service.impl;
+
+import com.magicrepokit.i18n.component.CustomMessageSource;
+import com.magicrepokit.i18n.config.LoadMessageResource;
+import com.magicrepokit.i18n.utils.MessageUtil;
+import com.magicrepokit.log.exceotion.ServiceException;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import com.magicrepokit.system.constant.SystemResultCode;
+import com.magicrepokit.system.constant.SystemUserStatus;
+import com.magicrepokit.system.entity.user.User;
+import com.magicrepokit.system.service.IUserService;
+import com.magicrepokit.system.support.LoginFailCounter;
+import com.magicrepokit.system.vo.user.UserInfoVO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 账户密码校验：校验前计入本次尝试，成功清除，未完成校验时撤销
+ */
+public class AuthServiceImplTest {
+    private static final String ACCOUNT = "admin";
+    private static final String HASH = "$2a$10$hash";
+
+    private IUserService userService;
+    private LoginFailCounter loginFailCounter;
+    private AuthServiceImpl authService;
+
+    @BeforeAll
+    public static void initMessageSource() {
+        //错误码的提示信息从国际化资源中读取，没有资源时返回错误码本身
+        new MessageUtil().setMessageSource(new CustomMessageSource("mrk-system", mock(MRKRedisUtils.class), mock(LoadMessageResource.class)));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        userService = mock(IUserService.class);
+        loginFailCounter = mock(LoginFailCounter.class);
+        authService = new AuthServiceImpl(userService, null, null, null, null, loginFailCounter);
+        User user = new User();
+        user.setId(1L);
+        user.setUserType(Collections.singletonList(2));
+        user.setStatus(SystemUserStatus.ACTIVATED.getCode());
+        UserInfoVO userInfoVO = new UserInfoVO();
+        userInfoVO.setUser(user);
+        when(userService.userInfo(ACCOUNT)).thenReturn(userInfoVO);
+        when(userService.password(1L)).thenReturn(HASH);
+        when(loginFailCounter.acquire(ACCOUNT)).thenReturn(1L);
+    }
+
+    @Test
+    public void lockedBeforeLookup() {
+        when(loginFailCounter.acquire(ACCOUNT)).thenReturn(-1L);
+
+        assertCode(SystemResultCode.USER_IS_LOCKED, "123456");
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void clearOnSuccess() {
+        when(userService.isPasswordMatch("123456", HASH)).thenReturn(true);
+
+        authService.authenticate(ACCOUNT, "123456", "pc");
+
+        verify(loginFailCounter).clear(ACCOUNT);
+        verify(loginFailCounter, never()).cancel(anyString());
+        verify(userService).upgradePassword(1L, HASH, "123456");
+    }
+
+    @Test
+    public void keepCountOnWrongPassword() {
+        when(userService.isPasswordMatch("654321", HASH)).thenReturn(false);
+
+        assertCode(SystemResultCode.NOT_FOUND_USER, "654321");
+
+        //本次尝试已在检查时计入
+        verify(loginFailCounter).acquire(ACCOUNT);
+        verify(loginFailCounter, never()).clear(anyString());
+        verify(loginFailCounter, never()).cancel(anyString());
+        verify(userService, never()).upgradePassword(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    public void cancelWhenBusy() {
+        ServiceException busy = new ServiceException(SystemResultCode.LOGIN_BUSY);
+        when(userService.isPasswordMatch("123456", HASH)).thenThrow(busy);
+
+        assertCode(SystemResultCode.LOGIN_BUSY, "123456");
+
+        verify(loginFailCounter).cancel(ACCOUNT);
+        verify(loginFailCounter, never()).clear(anyString());
+    }
+
+    private void assertCode(SystemResultCode code, String password) {
+        ServiceException e = assertThrows(ServiceException.class, () -> authService.authenticate(ACCOUNT, password, "pc"));
+        assertEquals(code, e.getResultCode());
+    }
+}
@@ -0,0 +1,126 @@
+package com.magicrepokit.system.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.magicrepokit.common.support.PasswordHasher;
+import com.magicrepokit.i18n.component.CustomMessageSource;
+import com.magicrepokit.i18n.config.LoadMessageResource;
+import com.magicrepokit.i18n.utils.MessageUtil;
+import com.magicrepokit.log.exceotion.ServiceException;
+import com.magicrepokit.redis.utils.MRKRedisUtils;
+import com.magicrepokit.system.build.IBuildUserService;
+import com.magicrepokit.system.constant.SystemResultCode;
+import com.magicrepokit.system.entity.user.User;
+import com.magicrepokit.system.mapper.UserMapper;
+import com.magicrepokit.system.support.UserInfoRedisCache;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户服务：密码校验繁忙和登录后按旧哈希条件更新密码
+ */
+public class UserServiceImplTest {
+    private static final Long USER_ID = 1L;
+    private static final String OLD_HASH = "$2a$04$old";
+    private static final String NEW_HASH = "$2a$10$new";
+
+    private PasswordHasher passwordHasher;
+    private UserInfoRedisCache userInfoRedisCache;
+    private UserMapper userMapper;
+    private UserServiceImpl userService;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        //lambda条件需要实体的字段映射
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), User.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        passwordHasher = mock(PasswordHasher.class);
+        userInfoRedisCache = mock(UserInfoRedisCache.class);
+        userMapper = mock(UserMapper.class);
+        userService = new UserServiceImpl(mock(IBuildUserService.class), passwordHasher, userInfoRedisCache);
+        ReflectionTestUtils.setField(userService, "baseMapper", userMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void upgradeWhenPasswordUnchanged() {
+        when(passwordHasher.needsUpgrade(OLD_HASH)).thenReturn(true);
+        //回调在调用线程中执行
+        doAnswer(invocation -> {
+            ((Consumer<String>) invocation.getArgument(1)).accept(NEW_HASH);
+            return null;
+        }).when(passwordHasher).upgradeAsync(eq("123456"), any());
+        when(userMapper.selectObjs(any())).thenReturn(Collections.singletonList(USER_ID));
+        when(userMapper.update(isNull(), any())).thenReturn(1);
+
+        userService.upgradePassword(USER_ID, OLD_HASH, "123456");
+
+        ArgumentCaptor<Wrapper<User>> captor = ArgumentCaptor.forClass(Wrapper.class);
+        verify(userMapper).update(isNull(), captor.capture());
+        LambdaUpdateWrapper<User> wrapper = (LambdaUpdateWrapper<User>) captor.getValue();
+        //按id和旧哈希更新，期间修改过密码时不覆盖
+        assertTrue(wrapper.getSqlSet().startsWith("password="), wrapper.getSqlSet());
+        assertTrue(wrapper.getSqlSegment().contains("id ="), wrapper.getSqlSegment());
+        assertTrue(wrapper.getSqlSegment().contains("password ="), wrapper.getSqlSegment());
+        assertTrue(wrapper.getParamNameValuePairs().values().containsAll(Arrays.asList(USER_ID, OLD_HASH, NEW_HASH)));
+        verify(userInfoRedisCache).evict(USER_ID);
+    }
+
+    @Test
+    public void keepCacheWhenPasswordChanged() {
+        when(passwordHasher.needsUpgrade(OLD_HASH)).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<Consumer<String>>getArgument(1).accept(NEW_HASH);
+            return null;
+        }).when(passwordHasher).upgradeAsync(anyString(), any());
+        when(userMapper.selectObjs(any())).thenReturn(Collections.emptyList());
+        when(userMapper.update(isNull(), any())).thenReturn(0);
+
+        userService.upgradePassword(USER_ID, OLD_HASH, "123456");
+
+        verify(userMapper).update(isNull(), any());
+        verify(userInfoRedisCache, never()).evict(any());
+    }
+
+    @Test
+    public void skipWhenCostMatches() {
+        when(passwordHasher.needsUpgrade(OLD_HASH)).thenReturn(false);
+
+        userService.upgradePassword(USER_ID, OLD_HASH, "123456");
+
+        verify(passwordHasher, never()).upgradeAsync(anyString(), any());
+        verifyNoInteractions(userMapper);
+    }
+
+    @Test
+    public void loginBusyWhenHasherRejects() {
+        //错误码的提示信息从国际化资源中读取，没有资源时返回错误码本身
+        new MessageUtil().setMessageSource(new CustomMessageSource("mrk-system", mock(MRKRedisUtils.class), mock(LoadMessageResource.class)));
+        when(passwordHasher.matches("123456", OLD_HASH)).thenThrow(new RejectedExecutionException("密码哈希等待超时"));
+
+        ServiceException e = assertThrows(ServiceException.class, () -> userService.isPasswordMatch("123456", OLD_HASH));
+
+        assertEquals(SystemResultCode.LOGIN_BUSY, e.getResultCode());
+        assertEquals("LOGIN_BUSY", e.getMessage());
+    }
+}
@@ -0,0 +1,5 @@
+-- ----------------------------
+-- 热点知识库(对话服务本地加载向量索引)
+-- ----------------------------
+ALTER TABLE `mrk_gpt_knowledge`
+    ADD COLUMN `is_hot` int(11) NULL DEFAULT 1 COMMENT '是否热点知识库[只有文件类型才有,1:否 2:是]' AFTER `max_result`;
@@ -0,0 +1,7 @@
+-- ----------------------------
+-- 知识库检索结果去重(最大边际相关性挑选、合并重叠分段、token预算)
+-- ----------------------------
+ALTER TABLE `mrk_gpt_knowledge`
+    ADD COLUMN `is_diversify` int(11) NULL DEFAULT 1 COMMENT '是否开启检索结果去重[只有文件类型才有,1:否 2:是]' AFTER `is_hot`,
+    ADD COLUMN `diversity_lambda` double NULL DEFAULT 0.7 COMMENT '相关性与多样性权衡[只有文件类型才有,默认0.7](0-1.0,越大越偏向相关性)' AFTER `is_diversify`,
+    ADD COLUMN `token_budget` int(11) NULL DEFAULT 1500 COMMENT '知识库内容token预算[只有文件类型才有,默认1500]' AFTER `diversity_lambda`;
@@ -0,0 +1,8 @@
+-- ----------------------------
+-- 可信断言登录(系统服务校验密码后用签名断言换取令牌)，客户端需要开放assertion授权类型
+-- 执行后等客户端信息缓存过期(redis 10分钟、本地1分钟)生效，需提前生效时删除redis中的 mrk:auth:client:magicrepokit
+-- ----------------------------
+UPDATE `mrk_client`
+SET `authorized_grant_types` = CONCAT_WS(',', NULLIF(`authorized_grant_types`, ''), 'assertion')
+WHERE `client_id` = 'magicrepokit'
+  AND NOT FIND_IN_SET('assertion', IFNULL(`authorized_grant_types`, ''));